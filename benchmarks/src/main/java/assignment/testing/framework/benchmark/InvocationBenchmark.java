@@ -0,0 +1,53 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework.benchmark;
+
+import assignment.testing.framework.Utilities;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+
+/// `classCreateInstance` and `classInstanceInvokeMethod`
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark
+{
+    private Object instance;
+
+
+    @Setup
+    public void setUp() {
+        this.instance = new Subject();
+    }
+
+
+    @Benchmark
+    public Object createInstanceNoArguments() {
+        return Utilities.classCreateInstance(Subject.class);
+    }
+
+    @Benchmark
+    public Object createInstanceWithArguments() {
+        return Utilities.classCreateInstance(Subject.class, "Bob", 30);
+    }
+
+    @Benchmark
+    public void invokeGetter(Blackhole blackhole) {
+        Utilities.testClass(Subject.class, () ->
+            blackhole.consume(Utilities.classInstanceInvokeMethod(this.instance, "getName"))
+        );
+    }
+
+    @Benchmark
+    public void invokeWithWidening(Blackhole blackhole) {
+        Utilities.testClass(Subject.class, () ->
+            blackhole.consume(Utilities.classInstanceInvokeMethod(this.instance, "add", 1, 2))
+        );
+    }
+}
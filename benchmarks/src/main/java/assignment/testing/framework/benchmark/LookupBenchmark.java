@@ -0,0 +1,60 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework.benchmark;
+
+import assignment.testing.framework.Utilities;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+
+/// `findClass`, `findMethod` and `findField`, hits and misses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark
+{
+    static private final String SUBJECT = "assignment.testing.framework.benchmark.Subject";
+
+
+    @Benchmark
+    public Optional<Class<?>> findClassHit() {
+        return Utilities.findClass(SUBJECT);
+    }
+
+    @Benchmark
+    public Optional<Class<?>> findClassMiss() {
+        return Utilities.findClass("assignment.testing.framework.benchmark.Missing");
+    }
+
+    @Benchmark
+    public Optional<Method> findMethodHit() {
+        return Utilities.findMethod(Subject.class, "setName", String.class);
+    }
+
+    @Benchmark
+    public Optional<Method> findMethodMiss() {
+        return Utilities.findMethod(Subject.class, "setName", int.class);
+    }
+
+    @Benchmark
+    public Optional<Method> findMethodByClassNameHit() {
+        return Utilities.findMethod(SUBJECT, "getName");
+    }
+
+    @Benchmark
+    public Optional<Field> findFieldHit() {
+        return Utilities.findField(Subject.class, "name");
+    }
+
+    @Benchmark
+    public Optional<Field> findFieldMiss() {
+        return Utilities.findField(Subject.class, "missing");
+    }
+}
@@ -0,0 +1,41 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework.benchmark;
+
+import assignment.testing.framework.Utilities;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/// `testClass`/`testClassMethod` scoping through `ScopedValue.where`
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScopingBenchmark
+{
+    static private final String SUBJECT = "assignment.testing.framework.benchmark.Subject";
+
+
+    @Benchmark
+    public void testClassByObject(Blackhole blackhole) {
+        Utilities.testClass(Subject.class, () -> blackhole.consume(Utilities.getScopedClass()));
+    }
+
+    @Benchmark
+    public void testClassByName(Blackhole blackhole) {
+        Utilities.testClass(SUBJECT, () -> blackhole.consume(Utilities.getScopedClass()));
+    }
+
+    @Benchmark
+    public void testClassMethodNested(Blackhole blackhole) {
+        Utilities.testClassMethod(SUBJECT, "setName", List.of(String.class), () ->
+            Utilities.testField("name", () -> blackhole.consume(Utilities.getScopedField()))
+        );
+    }
+}
@@ -0,0 +1,57 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework.benchmark;
+
+import assignment.testing.framework.Utilities;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/// `getStandardOutput` and `assertStandardOutputEquals` on large captured buffers
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StandardOutputBenchmark
+{
+    @Param({ "1024", "1048576" })
+    public int bytes;
+
+    private String expected;
+
+
+    /// Runs on the benchmark thread, which is the thread whose output is captured
+    @Setup
+    public void setUp() {
+        var line = "The quick brown fox jumps over the lazy dog";
+        var output = new StringBuilder();
+
+        Utilities.setStandardOutput();
+
+        while (output.length() < this.bytes) {
+            System.out.println(line);
+            output.append(line);
+        }
+
+        this.expected = output.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Utilities.resetStandardOutput();
+    }
+
+
+    @Benchmark
+    public String getStandardOutput() {
+        return Utilities.getStandardOutput();
+    }
+
+    @Benchmark
+    public void assertStandardOutputEquals() {
+        Utilities.assertStandardOutputEquals(this.expected);
+    }
+}
@@ -0,0 +1,43 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/// Stand-in for a class of a student submission
+public class Subject
+{
+    public String name;
+    public int age;
+    public Map<String, List<Map<Integer, Set<List<Map<String, List<Integer>>>>>>> nested;
+
+
+    public Subject() {
+        this("Alice", 20);
+    }
+
+    public Subject(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long add(long a, long b) {
+        return a + b;
+    }
+
+    public void printName() {
+        System.out.println(this.name);
+    }
+}
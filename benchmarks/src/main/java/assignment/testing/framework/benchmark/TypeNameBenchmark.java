@@ -0,0 +1,34 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework.benchmark;
+
+import assignment.testing.framework.Utilities;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.TimeUnit;
+
+
+/// `getParameterizedTypeName` on deeply nested generic types
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeNameBenchmark
+{
+    private ParameterizedType nested;
+
+
+    @Setup
+    public void setUp() throws NoSuchFieldException {
+        this.nested = (ParameterizedType) Subject.class.getField("nested").getGenericType();
+    }
+
+
+    @Benchmark
+    public String getParameterizedTypeName() {
+        return Utilities.getParameterizedTypeName(this.nested);
+    }
+}
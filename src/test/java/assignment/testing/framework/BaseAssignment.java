@@ -2,7 +2,11 @@ package assignment.testing.framework;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
 
+@ExtendWith(GradingReport.class)
+@ExtendWith(GradingCache.class)
+@ExtendWith(Snapshots.class)
 public abstract class BaseAssignment
 {
     @BeforeEach
@@ -13,5 +17,6 @@ public abstract class BaseAssignment
     @AfterEach
     public void tearDown() {
         Utilities.resetStandardOutput();
+        Utilities.resetStandardInput();
     }
 }
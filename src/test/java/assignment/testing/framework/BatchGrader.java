@@ -0,0 +1,235 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.ScopedValue.where;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+
+/// Grades many submissions in one JVM
+///
+/// Every submission is a directory of compiled classes, either `<student>/target/classes` or `<student>` itself,
+/// loaded through a `SubmissionClassLoader` of its own, while the framework, JUnit and the suites are shared. The
+/// suites run once per submission across a pool of workers, and one JSON record per student is written to the
+/// output file as soon as that student is graded.
+///
+/// ```
+/// mvn test-compile exec:java -Dexec.classpathScope=test \
+///     -Dexec.mainClass=assignment.testing.framework.BatchGrader \
+///     -Dexec.args="submissions/ --workers 8 --suite assignment.TestAssignment --output target/grading/results.jsonl"
+/// ```
+public final class BatchGrader
+{
+    static private final String DEFAULT_PACKAGE = "assignment";
+    static private final String DEFAULT_SUITE = "assignment.TestAssignment";
+    static private final Path DEFAULT_OUTPUT = Path.of("target", "grading", "results.jsonl");
+
+
+    /// Outcome of running the suites against one submission
+    public record Result(
+            String student,
+            long tests, long succeeded, long failed, long skipped, long aborted,
+            Duration duration,
+            List<String> failures
+    ) {
+        public String toJson() {
+            var quotedFailures = new ArrayList<String>();
+
+            for (var failure : this.failures) {
+                quotedFailures.add(BatchGrader.quote(failure));
+            }
+
+            return "{\"student\":%s,\"tests\":%d,\"succeeded\":%d,\"failed\":%d,\"skipped\":%d,\"aborted\":%d,\"durationMillis\":%d,\"failures\":[%s]}".formatted(
+                BatchGrader.quote(this.student),
+                this.tests, this.succeeded, this.failed, this.skipped, this.aborted,
+                this.duration.toMillis(),
+                String.join(",", quotedFailures)
+            );
+        }
+    }
+
+
+    static public void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println(
+                "Usage: BatchGrader <submissions-directory> [--workers N] [--suite FQCN]... [--package NAME] [--output FILE]"
+            );
+            System.exit(2);
+        }
+
+        var submissions = Path.of(args[0]);
+        var workers = Runtime.getRuntime().availableProcessors();
+        var suites = new ArrayList<String>();
+        var packageName = DEFAULT_PACKAGE;
+        var output = DEFAULT_OUTPUT;
+
+        for (var i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--suite" -> suites.add(args[++i]);
+                case "--package" -> packageName = args[++i];
+                case "--output" -> output = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (suites.isEmpty()) {
+            suites.add(DEFAULT_SUITE);
+        }
+
+        BatchGrader.gradeAll(submissions, suites, packageName, workers, output);
+    }
+
+
+    /// Grade every submission directory below `submissions`, writing one JSON line per student to `output`
+    static public void gradeAll(
+            Path submissions,
+            List<String> suites, String packageName,
+            int workers,
+            Path output
+    ) throws IOException, InterruptedException {
+        List<Path> students;
+
+        try (var directories = Files.list(submissions)) {
+            students = directories.filter(Files::isDirectory).sorted().toList();
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        try (
+            var writer = Files.newBufferedWriter(output);
+            var executor = Executors.newFixedThreadPool(workers)
+        ) {
+            var futures = new ArrayList<Future<?>>();
+
+            for (var student : students) {
+                futures.add(executor.submit(() -> {
+                    var result = BatchGrader.grade(
+                        student.getFileName().toString(), BatchGrader.classesDirectory(student), suites, packageName
+                    );
+
+                    BatchGrader.write(writer, result);
+                }));
+            }
+
+            for (var future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+    }
+
+
+    /// Run `suites` against the classes of a single submission, on the calling thread
+    static public Result grade(String student, Path classesDirectory, List<String> suites, String packageName) {
+        var classLoader = new SubmissionClassLoader(
+            student, classesDirectory, packageName, suites, BatchGrader.class.getClassLoader()
+        );
+
+        try (classLoader) {
+            return BatchGrader.grade(student, classLoader, suites);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Result grade(String student, SubmissionClassLoader classLoader, List<String> suites) {
+        var request = LauncherDiscoveryRequestBuilder.request()
+            .selectors(suites.stream().map(suite -> selectClass(suite)).toList())
+            // The submission is bound to the grading thread, tests must not move to other threads
+            .configurationParameter("junit.jupiter.execution.parallel.enabled", "false")
+            .build();
+
+        var listener = new SummaryGeneratingListener();
+        var launcher = LauncherFactory.create();
+
+        where(Utilities.SUBMISSION, classLoader).run(() -> launcher.execute(request, listener));
+
+        var summary = listener.getSummary();
+        var failures = summary.getFailures().stream()
+            .map(failure -> "%s: %s".formatted(
+                failure.getTestIdentifier().getDisplayName(), failure.getException().getMessage()
+            ))
+            .toList();
+
+        return new Result(
+            student,
+            summary.getTestsFoundCount(),
+            summary.getTestsSucceededCount(),
+            summary.getTestsFailedCount(),
+            summary.getTestsSkippedCount(),
+            summary.getTestsAbortedCount(),
+            Duration.ofMillis(summary.getTimeFinished() - summary.getTimeStarted()),
+            failures
+        );
+    }
+
+
+    static Path classesDirectory(Path student) {
+        var mavenOutput = student.resolve("target").resolve("classes");
+
+        return Files.isDirectory(mavenOutput) ? mavenOutput : student;
+    }
+
+    static private void write(BufferedWriter writer, Result result) {
+        synchronized (writer) {
+            try {
+                writer.write(result.toJson());
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        var json = new StringBuilder(value.length() + 2).append('"');
+
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) json.append("\\u%04x".formatted((int) c));
+                    else json.append(c);
+                }
+            }
+        }
+
+        return json.append('"').toString();
+    }
+
+
+    private BatchGrader() {}
+}
@@ -0,0 +1,16 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.opentest4j.AssertionFailedError;
+
+
+/// Failure of a call into student code that overran its time budget or ran out of fuel; it fails the test as it is,
+/// so callers running student code many times over (shrinking a property, comparing against a reference) do not
+/// take it for an outcome of the student code, and stop instead of running it again
+final class BudgetExceededError extends AssertionFailedError
+{
+    BudgetExceededError(String message) {
+        super(message);
+    }
+}
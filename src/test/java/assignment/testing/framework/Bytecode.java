@@ -0,0 +1,332 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.Label;
+import java.lang.classfile.instruction.BranchInstruction;
+import java.lang.classfile.instruction.InvokeDynamicInstruction;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.instruction.LabelTarget;
+import java.lang.classfile.instruction.LookupSwitchInstruction;
+import java.lang.classfile.instruction.NewMultiArrayInstruction;
+import java.lang.classfile.instruction.NewObjectInstruction;
+import java.lang.classfile.instruction.NewPrimitiveArrayInstruction;
+import java.lang.classfile.instruction.NewReferenceArrayInstruction;
+import java.lang.classfile.instruction.TableSwitchInstruction;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+
+/// Summary of the bytecode of each method of a class, parsed once per class with the ClassFile API
+///
+/// Loops are found as backward branches: a branch to a label earlier in the method closes a loop spanning the
+/// instructions from that label to the branch, and the loop depth of an instruction is the number of loops spanning
+/// it. This holds for everything `javac` generates for `for`, `while`, `do` and enhanced `for` loops.
+///
+/// Calls are resolved statically, to the owner named in the invoke instruction, so recursion through an overriding
+/// method of a subclass is not seen.
+final class Bytecode
+{
+    static private final ClassValue<Map<String, Summary>> summaries = new ClassValue<>() {
+        @Override
+        protected Map<String, Summary> computeValue(Class<?> classObject) {
+            return Bytecode.summarize(classObject);
+        }
+    };
+
+    static private final String STRING_CONCAT_FACTORY = "Ljava/lang/invoke/StringConcatFactory;";
+
+
+    /// Invoke instruction, `owner` as an internal name (`java/util/List`)
+    record Call(String owner, String name, String descriptor, int loopDepth)
+    {
+        boolean isInLoop() {
+            return this.loopDepth > 0;
+        }
+    }
+
+    /// `new` of an object or array, or a string concatenation, `type` as an internal name or descriptor
+    record Allocation(String type, int loopDepth)
+    {
+        boolean isInLoop() {
+            return this.loopDepth > 0;
+        }
+    }
+
+    record Summary(int maxLoopDepth, List<Call> calls, List<Allocation> allocations) {}
+
+    /// Method `name` of `owner` or of subtypes of it, matched on the declared type of the receiver, so
+    /// `Collection#contains` does not match `List#contains`: a `Collection` may as well be a `HashSet`; with
+    /// `parameterTypes` only the overload taking those
+    record Target(Class<?> owner, String name, Class<?>... parameterTypes)
+    {
+        boolean matches(Call call, Class<?> context) {
+            if (!call.name().equals(this.name)) {
+                return false;
+            }
+
+            if (this.parameterTypes.length > 0) {
+                if (!call.descriptor().startsWith(Bytecode.parameterDescriptor(this.parameterTypes))) {
+                    return false;
+                }
+            }
+
+            var callOwner = Bytecode.resolve(call.owner(), context);
+
+            return callOwner != null && this.owner.isAssignableFrom(callOwner);
+        }
+    }
+
+
+    /// JDK methods taking time linear in the size of their receiver, so quadratic when called in a loop over it
+    static final List<Target> LINEAR_TIME = List.of(
+        new Target(List.class, "contains"),
+        new Target(List.class, "indexOf"),
+        new Target(List.class, "lastIndexOf"),
+        new Target(List.class, "remove", int.class),
+        new Target(List.class, "remove", Object.class),
+        new Target(List.class, "add", int.class, Object.class),
+        new Target(String.class, "indexOf"),
+        new Target(String.class, "lastIndexOf"),
+        new Target(String.class, "contains"),
+        new Target(String.class, "replace"),
+        new Target(StringBuilder.class, "insert"),
+        new Target(StringBuilder.class, "deleteCharAt")
+    );
+
+
+    /// Summary of `method`, empty for abstract and native methods
+    static Summary of(Method method) {
+        return Bytecode.of(method.getDeclaringClass(), method.getName(), Bytecode.descriptor(method));
+    }
+
+    static private Summary of(Class<?> classObject, String name, String descriptor) {
+        return Bytecode.summaries.get(classObject).getOrDefault(name + descriptor, new Summary(0, List.of(), List.of()));
+    }
+
+
+    /// Method of its own class that the bridge `bridge` delegates to, read from the single call in its body; `null`
+    /// when it calls none, e.g. a bridge javac generated to make a method of a package-private superclass public
+    static Method bridged(Method bridge) {
+        var calls = Bytecode.of(bridge).calls();
+        var classObject = bridge.getDeclaringClass();
+
+        if (calls.size() != 1 || !calls.getFirst().owner().equals(Bytecode.internalName(classObject))) {
+            return null;
+        }
+
+        var call = calls.getFirst();
+
+        for (var method : classObject.getDeclaredMethods()) {
+            if (!method.isBridge() && method.getName().equals(call.name())
+                && Bytecode.descriptor(method).equals(call.descriptor())) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+
+
+    /// Whether `method` calls itself, directly or (when `directly` is false) through other methods of classes in
+    /// the same package
+    static boolean isRecursive(Method method, boolean directly) {
+        var classObject = method.getDeclaringClass();
+        var start = Bytecode.internalName(classObject) + "." + method.getName() + Bytecode.descriptor(method);
+
+        var visited = new HashSet<String>();
+        var pending = new ArrayDeque<Call>(Bytecode.of(method).calls());
+
+        while (!pending.isEmpty()) {
+            var call = pending.pop();
+            var target = call.owner() + "." + call.name() + call.descriptor();
+
+            if (target.equals(start)) {
+                return true;
+            }
+
+            if (directly || !visited.add(target)) {
+                continue;
+            }
+
+            var owner = Bytecode.resolve(call.owner(), classObject);
+
+            if (owner != null && owner.getPackageName().equals(classObject.getPackageName())) {
+                pending.addAll(Bytecode.of(owner, call.name(), call.descriptor()).calls());
+            }
+        }
+
+        return false;
+    }
+
+    static private Map<String, Summary> summarize(Class<?> classObject) {
+        byte[] bytes;
+
+        try (var stream = classObject.getResourceAsStream("/" + Bytecode.internalName(classObject) + ".class")) {
+            if (stream == null) {
+                return Map.of();
+            }
+
+            bytes = stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var summaries = new HashMap<String, Summary>();
+
+        for (var method : ClassFile.of().parse(bytes).methods()) {
+            method.code().ifPresent(code -> summaries.put(
+                method.methodName().stringValue() + method.methodType().stringValue(),
+                Bytecode.summarize(code.elementList())
+            ));
+        }
+
+        return summaries;
+    }
+
+    static private Summary summarize(List<CodeElement> elements) {
+        // Position of each label, counted in instructions
+        var labels = new HashMap<Label, Integer>();
+        var position = 0;
+
+        for (var element : elements) {
+            if (element instanceof LabelTarget target) {
+                labels.put(target.label(), position);
+            }
+            else if (element instanceof Instruction) {
+                position++;
+            }
+        }
+
+        // Loop header to the last backward branch to it, a `continue` is another backward branch to the same loop
+        var loops = new HashMap<Integer, Integer>();
+
+        position = 0;
+
+        for (var element : elements) {
+            if (!(element instanceof Instruction)) {
+                continue;
+            }
+
+            for (var target : Bytecode.targets(element)) {
+                var targetPosition = labels.get(target);
+
+                if (targetPosition <= position) {
+                    loops.merge(targetPosition, position, Math::max);
+                }
+            }
+
+            position++;
+        }
+
+        // Loop depth of each instruction, and of each call and allocation
+        var calls = new ArrayList<Call>();
+        var allocations = new ArrayList<Allocation>();
+        var maxLoopDepth = 0;
+
+        position = 0;
+
+        for (var element : elements) {
+            if (!(element instanceof Instruction)) {
+                continue;
+            }
+
+            var depth = 0;
+
+            for (var loop : loops.entrySet()) {
+                if (loop.getKey() <= position && position <= loop.getValue()) {
+                    depth++;
+                }
+            }
+
+            maxLoopDepth = Math.max(maxLoopDepth, depth);
+
+            switch (element) {
+                case InvokeInstruction invoke -> calls.add(new Call(
+                    invoke.owner().asInternalName(), invoke.name().stringValue(), invoke.type().stringValue(), depth
+                ));
+                case InvokeDynamicInstruction invoke
+                    when invoke.bootstrapMethod().owner().descriptorString().equals(STRING_CONCAT_FACTORY) ->
+                    allocations.add(new Allocation("java/lang/String", depth));
+                case NewObjectInstruction instruction ->
+                    allocations.add(new Allocation(instruction.className().asInternalName(), depth));
+                case NewPrimitiveArrayInstruction instruction ->
+                    allocations.add(new Allocation("[" + instruction.typeKind().upperBound().descriptorString(), depth));
+                case NewReferenceArrayInstruction instruction ->
+                    allocations.add(new Allocation("[" + instruction.componentType().asSymbol().descriptorString(), depth));
+                case NewMultiArrayInstruction instruction ->
+                    allocations.add(new Allocation(instruction.arrayType().asInternalName(), depth));
+                default -> {}
+            }
+
+            position++;
+        }
+
+        return new Summary(maxLoopDepth, List.copyOf(calls), List.copyOf(allocations));
+    }
+
+    static private List<Label> targets(CodeElement instruction) {
+        return switch (instruction) {
+            case BranchInstruction branch -> List.of(branch.target());
+            case TableSwitchInstruction table -> {
+                var targets = new ArrayList<Label>();
+
+                targets.add(table.defaultTarget());
+                table.cases().forEach(switchCase -> targets.add(switchCase.target()));
+
+                yield targets;
+            }
+            case LookupSwitchInstruction lookup -> {
+                var targets = new ArrayList<Label>();
+
+                targets.add(lookup.defaultTarget());
+                lookup.cases().forEach(switchCase -> targets.add(switchCase.target()));
+
+                yield targets;
+            }
+            default -> List.of();
+        };
+    }
+
+
+    /// Class named by an internal name or array descriptor, as seen from `context`; `null` when it cannot be loaded
+    static private Class<?> resolve(String internalName, Class<?> context) {
+        try {
+            return Class.forName(internalName.replace('/', '.'), false, context.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError _) {
+            return null;
+        }
+    }
+
+    static private String internalName(Class<?> classObject) {
+        return classObject.getName().replace('.', '/');
+    }
+
+    static private String descriptor(Method method) {
+        return MethodType.methodType(method.getReturnType(), method.getParameterTypes()).toMethodDescriptorString();
+    }
+
+    static String parameterDescriptor(Class<?>[] parameterTypes) {
+        var descriptor = new StringBuilder("(");
+
+        for (var parameterType : parameterTypes) {
+            descriptor.append(parameterType.descriptorString());
+        }
+
+        return descriptor.append(")").toString();
+    }
+
+
+    private Bytecode() {}
+}
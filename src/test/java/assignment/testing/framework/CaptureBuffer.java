@@ -0,0 +1,253 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+
+/// Captured standard output of one test (or scope), capped at a number of bytes
+///
+/// Bytes past the limit are counted but dropped, and the overflow is flagged. While an expectation is set, every
+/// byte is compared against the expected output as it arrives, and the first diverging byte aborts the write with
+/// a `Mismatch`, stopping the student code that printed it.
+///
+/// Control characters are skipped when comparing and when converting to a string, the same as
+/// `Utilities#getStandardOutput` always did with `\p{Cntrl}`. UTF-8 never uses bytes below `0x80` within a
+/// multibyte sequence, so this is done on the bytes before decoding them.
+final class CaptureBuffer extends OutputStream
+{
+    static private volatile long defaultLimit = Long.getLong("assignment.output.limit", 8L * 1024 * 1024);
+
+
+    /// Thrown from within a write at the first byte not matching the expectation
+    static final class Mismatch extends Error
+    {
+        private Mismatch() {
+            super("Standard output differs from the expected output", null, false, false);
+        }
+    }
+
+
+    private final long limit;
+    private final PrintStream printStream;
+    private byte[] bytes = new byte[256];
+    private int count;
+    private long written;
+
+    private byte[] expected;
+    private int expectedFrom;
+    private int matched;
+    private long mismatchAt = -1;
+
+    /// The test owning this buffer is over, threads that inherited it no longer write into it
+    private volatile boolean released;
+
+
+    CaptureBuffer() {
+        this(CaptureBuffer.defaultLimit);
+    }
+
+    CaptureBuffer(long limit) {
+        this.limit = Math.min(limit, Integer.MAX_VALUE - 8);
+        this.printStream = new PrintStream(this, true, Charset.defaultCharset());
+    }
+
+
+    static void setDefaultLimit(long bytes) {
+        CaptureBuffer.defaultLimit = bytes;
+    }
+
+
+    /// Print stream writing into this buffer, used by the `MultiplexingPrintStream` for the capturing thread
+    PrintStream printStream() {
+        return this.printStream;
+    }
+
+
+    @Override
+    public synchronized void write(int b) {
+        Metrics.count(Metrics.Operation.CAPTURE, 1);
+
+        this.written++;
+
+        if (this.count < this.limit) {
+            this.ensureCapacity(this.count + 1);
+            this.bytes[this.count++] = (byte) b;
+        }
+
+        if (this.expected != null) {
+            this.match((byte) b);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int offset, int length) {
+        Metrics.count(Metrics.Operation.CAPTURE, length);
+
+        this.written += length;
+
+        var kept = (int) Math.min(length, Math.max(0, this.limit - this.count));
+
+        if (kept > 0) {
+            this.ensureCapacity(this.count + kept);
+            System.arraycopy(b, offset, this.bytes, this.count, kept);
+            this.count += kept;
+        }
+
+        if (this.expected != null) {
+            for (var i = offset; i < offset + length; i++) {
+                this.match(b[i]);
+            }
+        }
+    }
+
+
+    /// More bytes were written than the limit allows, the captured output is truncated
+    synchronized boolean overflowed() {
+        return this.written > this.count;
+    }
+
+    synchronized long written() {
+        return this.written;
+    }
+
+    long limit() {
+        return this.limit;
+    }
+
+    void release() {
+        this.released = true;
+    }
+
+    boolean isReleased() {
+        return this.released;
+    }
+
+    /// Number of bytes kept, a position to slice the captured output at later
+    synchronized int size() {
+        return this.count;
+    }
+
+
+    /// Captured output without control characters
+    synchronized String toNormalizedString() {
+        return this.toNormalizedString(0);
+    }
+
+    synchronized String toNormalizedString(int from) {
+        return new String(this.toNormalizedBytes(from), this.printStream.charset());
+    }
+
+    /// Captured output from `from` up to `to`, control characters included
+    synchronized String toString(int from, int to) {
+        var end = Math.min(to, this.count);
+
+        return new String(this.bytes, from, Math.max(0, end - from), this.printStream.charset());
+    }
+
+    /// Captured output without control characters, still encoded
+    synchronized byte[] toNormalizedBytes(int from) {
+        var start = Metrics.start();
+        var normalized = new byte[this.count - from];
+        var length = 0;
+
+        for (var i = from; i < this.count; i++) {
+            if (!CaptureBuffer.isControl(this.bytes[i])) {
+                normalized[length++] = this.bytes[i];
+            }
+        }
+
+        Metrics.record(Metrics.Operation.NORMALIZE, start);
+
+        return Arrays.copyOf(normalized, length);
+    }
+
+    /// Compare the captured output without control characters to `expected`, without decoding it
+    synchronized boolean normalizedEquals(String expected) {
+        var start = Metrics.start();
+
+        try {
+            return this.compareNormalized(expected);
+        } finally {
+            Metrics.record(Metrics.Operation.COMPARE, start);
+        }
+    }
+
+    private boolean compareNormalized(String expected) {
+        var expectedBytes = expected.getBytes(this.printStream.charset());
+        var matched = 0;
+
+        for (var i = 0; i < this.count; i++) {
+            if (CaptureBuffer.isControl(this.bytes[i])) {
+                continue;
+            }
+
+            if (matched == expectedBytes.length || expectedBytes[matched] != this.bytes[i]) {
+                return false;
+            }
+
+            matched++;
+        }
+
+        return matched == expectedBytes.length;
+    }
+
+
+    /// Compare everything written from now on against `expected`, byte by byte as it arrives
+    synchronized void expect(String expected) {
+        this.expected = expected.getBytes(this.printStream.charset());
+        this.expectedFrom = this.count;
+        this.matched = 0;
+        this.mismatchAt = -1;
+    }
+
+    /// Stop comparing, returns whether all of the expected output, and nothing else, was written
+    synchronized boolean stopExpecting() {
+        var complete = this.mismatchAt < 0 && this.expected != null && this.matched == this.expected.length;
+
+        this.expected = null;
+
+        return complete;
+    }
+
+    /// Offset (in bytes, control characters not counted) of the first byte that differed, `-1` if none did
+    synchronized long mismatchAt() {
+        return this.mismatchAt;
+    }
+
+    /// Position in the buffer where the current (or last) expectation started
+    synchronized int expectedFrom() {
+        return this.expectedFrom;
+    }
+
+
+    private void match(byte b) {
+        if (CaptureBuffer.isControl(b)) {
+            return;
+        }
+
+        if (this.matched < this.expected.length && this.expected[this.matched] == b) {
+            this.matched++;
+            return;
+        }
+
+        this.mismatchAt = this.matched;
+        this.expected = null;
+
+        throw new Mismatch();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, (int) Math.min(Math.max(capacity, this.bytes.length * 2L), this.limit));
+        }
+    }
+
+    /// Same characters as `\p{Cntrl}`: `[\x00-\x1F\x7F]`
+    static private boolean isControl(byte b) {
+        return (b >= 0 && b < 0x20) || b == 0x7F;
+    }
+}
@@ -0,0 +1,338 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/// Supertypes of a single class and what its declared methods override, implement or hide, built once per class
+///
+/// Follows JLS 8.4.8: an instance method overrides the nearest method of the same signature in a superclass that
+/// is neither private nor static, and accessible (package-private ones only from the same package and class loader);
+/// it implements every abstract or default method of the same signature in any superinterface; a static method hides
+/// the nearest such static method of a superclass. Bridge and synthetic methods are left out, but the signatures of
+/// the bridges javac generated for a method count as its own: `compareTo(Person)` of a `Comparable<Person>`, bridged
+/// by `compareTo(Object)`, implements `Comparable.compareTo(Object)`. The method of a bridge is the one it calls, read
+/// from its bytecode, so overloads of the same name are told apart.
+///
+/// Subclasses are found among the classes in the same class path directory and top-level package as the class (the
+/// submission), listed once per directory and loaded without being initialized, when first asked for.
+final class ClassHierarchy
+{
+    static private final ClassValue<ClassHierarchy> hierarchies = new ClassValue<>() {
+        @Override
+        protected ClassHierarchy computeValue(Class<?> classObject) {
+            return new ClassHierarchy(classObject);
+        }
+    };
+
+    /// Names of the classes under a class path directory and top-level package, e.g. `target/classes` and `assignment`
+    static private final Map<Path, List<String>> submissions = new ConcurrentHashMap<>();
+
+
+    static ClassHierarchy of(Class<?> classObject) {
+        return ClassHierarchy.hierarchies.get(classObject);
+    }
+
+
+    private final Class<?> classObject;
+    private final Set<Class<?>> superclasses = new HashSet<>();
+    private final Set<Class<?>> interfaces = new HashSet<>();
+    private final Map<Method, Method> overridden = new HashMap<>();
+    private final Map<Method, List<Method>> implemented = new HashMap<>();
+    private final Map<Method, Method> hidden = new HashMap<>();
+
+    /// Subclasses and subinterfaces within the submission, and the methods of this class they override or implement
+    private volatile Subtypes subtypes;
+
+    private record Subtypes(List<Class<?>> classes, Set<Method> overriddenMethods) {}
+
+
+    private ClassHierarchy(Class<?> classObject) {
+        this.classObject = classObject;
+
+        var superClass = classObject.getSuperclass();
+
+        for (; superClass != null; superClass = superClass.getSuperclass()) {
+            this.superclasses.add(superClass);
+        }
+
+        ClassHierarchy.collectInterfaces(classObject, this.interfaces);
+
+        for (var inherited : this.superclasses) {
+            ClassHierarchy.collectInterfaces(inherited, this.interfaces);
+        }
+
+        var declaredMethods = classObject.getDeclaredMethods();
+        var bridges = new HashMap<Method, List<Class<?>[]>>();
+
+        for (var bridge : declaredMethods) {
+            var target = bridge.isBridge() ? Bytecode.bridged(bridge) : null;
+
+            if (target != null) {
+                bridges.computeIfAbsent(target, _ -> new ArrayList<>()).add(bridge.getParameterTypes());
+            }
+        }
+
+        for (var method : declaredMethods) {
+            if (method.isBridge() || method.isSynthetic() || Modifier.isPrivate(method.getModifiers())) {
+                continue;
+            }
+
+            var signatures = new ArrayList<Class<?>[]>();
+
+            signatures.add(method.getParameterTypes());
+            signatures.addAll(bridges.getOrDefault(method, List.of()));
+
+            if (Modifier.isStatic(method.getModifiers())) {
+                var hiddenMethod = this.inheritedFromSuperclass(method.getName(), signatures, true);
+
+                if (hiddenMethod != null) {
+                    this.hidden.put(method, hiddenMethod);
+                }
+
+                continue;
+            }
+
+            var overriddenMethod = this.inheritedFromSuperclass(method.getName(), signatures, false);
+
+            if (overriddenMethod != null) {
+                this.overridden.put(method, overriddenMethod);
+            }
+
+            var implementedMethods = new ArrayList<Method>();
+
+            for (var superInterface : this.interfaces) {
+                for (var parameterTypes : signatures) {
+                    var interfaceMethod = MemberIndex.of(superInterface).declaredMethod(
+                        method.getName(), parameterTypes
+                    );
+
+                    if (interfaceMethod != null && !interfaceMethod.isBridge()
+                        && !Modifier.isStatic(interfaceMethod.getModifiers())
+                        && !Modifier.isPrivate(interfaceMethod.getModifiers())
+                        && !implementedMethods.contains(interfaceMethod)) {
+                        implementedMethods.add(interfaceMethod);
+                    }
+                }
+            }
+
+            if (!implementedMethods.isEmpty()) {
+                this.implemented.put(method, List.copyOf(implementedMethods));
+            }
+        }
+    }
+
+
+    /// Whether `type` is a superclass or superinterface, not the class itself
+    boolean isSubtypeOf(Class<?> type) {
+        return this.superclasses.contains(type) || this.interfaces.contains(type);
+    }
+
+    /// Superclasses and superinterfaces
+    Set<Class<?>> supertypes() {
+        var supertypes = new HashSet<Class<?>>(this.superclasses);
+
+        supertypes.addAll(this.interfaces);
+
+        return supertypes;
+    }
+
+    boolean extendsClass(Class<?> superClass) {
+        return this.superclasses.contains(superClass);
+    }
+
+    boolean implementsInterface(Class<?> superInterface) {
+        return this.interfaces.contains(superInterface);
+    }
+
+    /// Superclass method `method` overrides, `null` when none
+    Method overridden(Method method) {
+        return this.overridden.get(method);
+    }
+
+    /// Interface methods `method` implements (or overrides, for a method of an interface)
+    List<Method> implemented(Method method) {
+        return this.implemented.getOrDefault(method, List.of());
+    }
+
+    /// Superclass method static `method` hides, `null` when none
+    Method hidden(Method method) {
+        return this.hidden.get(method);
+    }
+
+
+    /// Classes and interfaces of the submission that are subtypes of this class
+    List<Class<?>> subtypes() {
+        return this.submissionSubtypes().classes();
+    }
+
+    /// Whether a subtype within the submission overrides or implements `method`, declared by this class
+    boolean isOverriddenBySubtype(Method method) {
+        return this.submissionSubtypes().overriddenMethods().contains(method);
+    }
+
+    private Subtypes submissionSubtypes() {
+        var subtypes = this.subtypes;
+
+        if (subtypes == null) {
+            synchronized (this) {
+                if (this.subtypes == null) {
+                    this.subtypes = this.findSubtypes();
+                }
+
+                subtypes = this.subtypes;
+            }
+        }
+
+        return subtypes;
+    }
+
+    private Subtypes findSubtypes() {
+        var classes = new ArrayList<Class<?>>();
+        var overriddenMethods = new HashSet<Method>();
+
+        for (var className : ClassHierarchy.submissionClassNames(this.classObject)) {
+            Class<?> candidate;
+
+            try {
+                candidate = Class.forName(className, false, this.classObject.getClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+
+            var hierarchy = ClassHierarchy.of(candidate);
+
+            if (!hierarchy.isSubtypeOf(this.classObject)) {
+                continue;
+            }
+
+            classes.add(candidate);
+
+            for (var method : hierarchy.overridden.values()) {
+                if (method.getDeclaringClass() == this.classObject) {
+                    overriddenMethods.add(method);
+                }
+            }
+
+            for (var methods : hierarchy.implemented.values()) {
+                for (var method : methods) {
+                    if (method.getDeclaringClass() == this.classObject) {
+                        overriddenMethods.add(method);
+                    }
+                }
+            }
+        }
+
+        return new Subtypes(List.copyOf(classes), Set.copyOf(overriddenMethods));
+    }
+
+
+    /// Nearest method of a superclass named `name` with one of `signatures` (parameter types) that a method can
+    /// override (or hide, when `isStatic`)
+    private Method inheritedFromSuperclass(String name, List<Class<?>[]> signatures, boolean isStatic) {
+        var superClass = this.classObject.getSuperclass();
+
+        for (; superClass != null; superClass = superClass.getSuperclass()) {
+            for (var parameterTypes : signatures) {
+                var candidate = MemberIndex.of(superClass).declaredMethod(name, parameterTypes);
+
+                if (candidate == null || candidate.isBridge()) {
+                    continue;
+                }
+
+                var modifiers = candidate.getModifiers();
+
+                if (Modifier.isPrivate(modifiers) || Modifier.isStatic(modifiers) != isStatic) {
+                    continue;
+                }
+
+                if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers) || this.isSamePackage(superClass)) {
+                    return candidate;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /// Same run-time package: same package name and class loader
+    private boolean isSamePackage(Class<?> other) {
+        return other.getPackageName().equals(this.classObject.getPackageName())
+            && other.getClassLoader() == this.classObject.getClassLoader();
+    }
+
+    static private void collectInterfaces(Class<?> classObject, Set<Class<?>> interfaces) {
+        for (var superInterface : classObject.getInterfaces()) {
+            if (interfaces.add(superInterface)) {
+                ClassHierarchy.collectInterfaces(superInterface, interfaces);
+            }
+        }
+    }
+
+
+    /// Names of the classes in the class path directory and top-level package of `classObject`, empty when it was not
+    /// loaded from a directory (e.g. from a JAR or the JDK)
+    static private List<String> submissionClassNames(Class<?> classObject) {
+        var classLoader = classObject.getClassLoader();
+
+        if (classLoader == null) {
+            return List.of();
+        }
+
+        var resourceName = classObject.getName().replace('.', '/') + ".class";
+        var resource = classLoader.getResource(resourceName);
+
+        if (resource == null || !resource.getProtocol().equals("file")) {
+            return List.of();
+        }
+
+        Path classFile;
+
+        try {
+            classFile = Path.of(resource.toURI());
+        } catch (URISyntaxException e) {
+            return List.of();
+        }
+
+        // Class path directory, as many levels up from the class file as the class name has segments
+        var depth = classObject.getName().split("\\.").length;
+        var root = classFile.getRoot().resolve(classFile.subpath(0, classFile.getNameCount() - depth));
+
+        var packageName = classObject.getPackageName();
+        var topLevelPackage = packageName.isEmpty() ? "" : packageName.split("\\.")[0];
+        var directory = topLevelPackage.isEmpty() ? root : root.resolve(topLevelPackage);
+
+        return ClassHierarchy.submissions.computeIfAbsent(directory, _ -> ClassHierarchy.list(root, directory));
+    }
+
+    static private List<String> list(Path root, Path directory) {
+        var separator = root.getFileSystem().getSeparator();
+
+        // Classes of the default package are only those directly within the class path directory
+        try (var files = root.equals(directory) ? Files.list(directory) : Files.walk(directory)) {
+            return files
+                .map(file -> root.relativize(file).toString())
+                .filter(name -> name.endsWith(".class"))
+                .map(name -> name.substring(0, name.length() - ".class".length()).replace(separator, "."))
+                .filter(name -> !name.endsWith("module-info") && !name.endsWith("package-info"))
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
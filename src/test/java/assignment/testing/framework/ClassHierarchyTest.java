@@ -0,0 +1,105 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/// Overriding and implementing through the bridges javac generates for generic supertypes
+class ClassHierarchyTest
+{
+    static class Person implements Comparable<Person>
+    {
+        @Override
+        public int compareTo(Person other) {
+            return 0;
+        }
+    }
+
+    static class A<T>
+    {
+        void accept(T value) {}
+
+        T get() {
+            return null;
+        }
+    }
+
+    static class B extends A<String>
+    {
+        @Override
+        void accept(String value) {}
+
+        @Override
+        String get() {
+            return "";
+        }
+    }
+
+    static class C extends B
+    {
+        @Override
+        void accept(String value) {}
+    }
+
+    static class D extends A<String>
+    {
+        void accept(Integer value) {}
+
+        @Override
+        void accept(String value) {}
+
+        void accept(CharSequence value) {}
+    }
+
+
+    @Test()
+    public void implementsGenericInterfaceMethod() throws NoSuchMethodException {
+        var compareTo = Person.class.getDeclaredMethod("compareTo", Person.class);
+
+        assertEquals(
+            List.of(Comparable.class.getDeclaredMethod("compareTo", Object.class)),
+            ClassHierarchy.of(Person.class).implemented(compareTo)
+        );
+    }
+
+    @Test()
+    public void overridesMethodOfGenericSuperclass() throws NoSuchMethodException {
+        var accept = B.class.getDeclaredMethod("accept", String.class);
+        var get = B.class.getDeclaredMethod("get");
+
+        assertEquals(A.class.getDeclaredMethod("accept", Object.class), ClassHierarchy.of(B.class).overridden(accept));
+        assertEquals(A.class.getDeclaredMethod("get"), ClassHierarchy.of(B.class).overridden(get));
+    }
+
+    @Test()
+    public void tellsOverloadsApartByTheCallOfTheBridge() throws NoSuchMethodException {
+        var hierarchy = ClassHierarchy.of(D.class);
+
+        assertEquals(
+            A.class.getDeclaredMethod("accept", Object.class),
+            hierarchy.overridden(D.class.getDeclaredMethod("accept", String.class))
+        );
+        assertNull(hierarchy.overridden(D.class.getDeclaredMethod("accept", Integer.class)));
+        assertNull(hierarchy.overridden(D.class.getDeclaredMethod("accept", CharSequence.class)));
+    }
+
+    @Test()
+    public void overridesNearestMethodWithTheSameSignature() throws NoSuchMethodException {
+        var accept = C.class.getDeclaredMethod("accept", String.class);
+
+        assertEquals(B.class.getDeclaredMethod("accept", String.class), ClassHierarchy.of(C.class).overridden(accept));
+    }
+
+    @Test()
+    public void findsOverridingSubtypes() throws NoSuchMethodException {
+        var hierarchy = ClassHierarchy.of(A.class);
+
+        assertTrue(hierarchy.subtypes().containsAll(List.of(B.class, C.class)));
+        assertTrue(hierarchy.isOverriddenBySubtype(A.class.getDeclaredMethod("accept", Object.class)));
+    }
+}
@@ -0,0 +1,44 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+
+/// Growth classes `assertComplexity` fits measured running times against, from slowest to fastest growing
+public enum ComplexityClass
+{
+    CONSTANT("O(1)"),
+    LOGARITHMIC("O(log n)"),
+    LINEAR("O(n)"),
+    LINEARITHMIC("O(n log n)"),
+    QUADRATIC("O(n²)"),
+    EXPONENTIAL("O(2ⁿ)");
+
+
+    private final String notation;
+
+
+    ComplexityClass(String notation) {
+        this.notation = notation;
+    }
+
+
+    /// Natural logarithm of the growth function at `n`, so `2ⁿ` does not overflow for large sizes
+    double logGrowth(double n) {
+        var logN = Math.log(Math.max(n, 2));
+
+        return switch (this) {
+            case CONSTANT -> 0;
+            case LOGARITHMIC -> Math.log(logN);
+            case LINEAR -> logN;
+            case LINEARITHMIC -> logN + Math.log(logN);
+            case QUADRATIC -> 2 * logN;
+            case EXPONENTIAL -> n * Math.log(2);
+        };
+    }
+
+
+    @Override
+    public String toString() {
+        return this.notation;
+    }
+}
@@ -0,0 +1,200 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+
+/// Times a method at a geometric series of input sizes and fits the timings against each `ComplexityClass`
+///
+/// To keep JIT compilation and garbage collection out of the timings, the method is first warmed up on the smaller
+/// sizes, the heap is collected before every size, and every size is timed as the median of several samples. Short
+/// calls are batched so each sample lasts about `MIN_SAMPLE_TIME`, as long as the inputs of a batch stay within about
+/// `MAX_BATCH_INPUT` elements (sizes) and so within memory. Inputs (and receivers) are generated ahead of each
+/// sample and never timed.
+///
+/// Each candidate `f` is fitted as `t(n) = b f(n)`, without a constant term, by least squares on the logarithms:
+/// `log b` is the mean of `log t(n) - log f(n)`, and the root mean square of what is left over is the error of the
+/// fit, about the relative error of a typical timing. Candidates whose error is at most `TOLERANCE` above the least
+/// error, an absolute margin on that root mean square (so about 8% more timing noise), are considered equally good,
+/// and the slowest-growing of them wins, giving the benefit of the doubt to a solution measured on a noisy machine.
+/// An absolute margin, as a relative one would shrink to nothing for a near-perfect best fit.
+final class ComplexityMeter
+{
+    static private final int SIZES = 7;
+    static private final int SAMPLES = 9;
+    static private final long MIN_SAMPLE_TIME = TimeUnit.MICROSECONDS.toNanos(100);
+    static private final int MAX_BATCH_INPUT = 1 << 20;
+    static private final long WARMUP_TIME = TimeUnit.MILLISECONDS.toNanos(500);
+    static private final int WARMUP_CALLS = 10_000;
+    static private final double TOLERANCE = 0.08;
+
+
+    /// Median time per call at each size, and the class that fits them best
+    record Measurement(int[] sizes, double[] nanos, ComplexityClass fitted)
+    {
+        String describe() {
+            var description = new StringBuilder();
+
+            for (var i = 0; i < this.sizes.length; i++) {
+                description.append("\n    n = %,10d: %,14.0f ns".formatted(this.sizes[i], this.nanos[i]));
+            }
+
+            return description.toString();
+        }
+    }
+
+
+    private final String name;
+    private final MethodHandle handle;
+    private final IntFunction<Object> instance;
+    private final IntFunction<Object[]> arguments;
+
+
+    /// `instance` creates the receiver for each call (ignored for static methods), `arguments` the arguments for
+    /// input size `n`
+    ComplexityMeter(Method method, IntFunction<Object> instance, IntFunction<Object[]> arguments) {
+        this.name = "%s#%s".formatted(method.getDeclaringClass().getName(), method.getName());
+        this.handle = Invoker.method(method);
+        this.instance = instance;
+        this.arguments = arguments;
+    }
+
+
+    /// Geometric series of `SIZES` distinct sizes from `fromSize` to `toSize`
+    static int[] sizes(int fromSize, int toSize) {
+        var ratio = Math.pow((double) toSize / fromSize, 1.0 / (SIZES - 1));
+
+        return IntStream.range(0, SIZES)
+            .map(i -> (int) Math.round(fromSize * Math.pow(ratio, i)))
+            .distinct()
+            .toArray()
+        ;
+    }
+
+
+    Measurement measure(int[] sizes) throws Exception {
+        this.warmUp(Arrays.copyOf(sizes, Math.max(1, sizes.length / 2)));
+
+        var nanos = new double[sizes.length];
+
+        for (var i = 0; i < sizes.length; i++) {
+            var size = sizes[i];
+
+            // Each size is one call into student code as far as a time budget in scope is concerned
+            nanos[i] = Supervisor.isActive()
+                ? Supervisor.call("%s (n = %d)".formatted(this.name, size), () -> this.time(size))
+                : this.time(size)
+            ;
+        }
+
+        return new Measurement(sizes, nanos, ComplexityMeter.fit(sizes, nanos));
+    }
+
+
+    /// Run the smaller sizes until the method has been called `WARMUP_CALLS` times or for `WARMUP_TIME`
+    private void warmUp(int[] sizes) throws Exception {
+        var started = System.nanoTime();
+        var calls = 0;
+
+        while (calls < WARMUP_CALLS && System.nanoTime() - started < WARMUP_TIME) {
+            for (var size : sizes) {
+                this.invoke(this.receiver(size), this.arguments.apply(size));
+                calls++;
+            }
+        }
+    }
+
+    /// Median time per call at `size`
+    private double time(int size) throws Exception {
+        System.gc();
+
+        // A single untimed call to find out how many calls make a sample last at least MIN_SAMPLE_TIME
+        var receiver = this.receiver(size);
+        var arguments = this.arguments.apply(size);
+        var started = System.nanoTime();
+
+        this.invoke(receiver, arguments);
+
+        var batch = Math.clamp(
+            MIN_SAMPLE_TIME / Math.max(1, System.nanoTime() - started), 1, Math.max(1, MAX_BATCH_INPUT / size)
+        );
+        var receivers = new Object[batch];
+        var argumentLists = new Object[batch][];
+        var samples = new double[SAMPLES];
+
+        for (var sample = 0; sample < SAMPLES; sample++) {
+            for (var call = 0; call < batch; call++) {
+                receivers[call] = this.receiver(size);
+                argumentLists[call] = this.arguments.apply(size);
+            }
+
+            started = System.nanoTime();
+
+            for (var call = 0; call < batch; call++) {
+                this.invoke(receivers[call], argumentLists[call]);
+            }
+
+            samples[sample] = (double) (System.nanoTime() - started) / batch;
+        }
+
+        Arrays.sort(samples);
+
+        return samples[SAMPLES / 2];
+    }
+
+    private Object receiver(int size) {
+        return this.instance == null ? null : this.instance.apply(size);
+    }
+
+    private Object invoke(Object receiver, Object[] arguments) throws Exception {
+        try {
+            return (Object) this.handle.invokeExact(receiver, arguments);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+
+    static private ComplexityClass fit(int[] sizes, double[] nanos) {
+        var candidates = ComplexityClass.values();
+        var errors = Arrays.stream(candidates).mapToDouble(c -> ComplexityMeter.error(c, sizes, nanos)).toArray();
+        var best = Arrays.stream(errors).min().orElseThrow();
+
+        for (var i = 0; i < candidates.length; i++) {
+            if (errors[i] <= best + TOLERANCE) {
+                return candidates[i];
+            }
+        }
+
+        return candidates[candidates.length - 1];
+    }
+
+    /// Root mean square deviation of `log t(n) - log f(n)` from its mean, zero when the timings are exactly
+    /// proportional to `f`
+    static private double error(ComplexityClass candidate, int[] sizes, double[] nanos) {
+        var residuals = new double[sizes.length];
+        var mean = 0.0;
+
+        for (var i = 0; i < sizes.length; i++) {
+            residuals[i] = Math.log(Math.max(nanos[i], 1)) - candidate.logGrowth(sizes[i]);
+            mean += residuals[i] / sizes.length;
+        }
+
+        var squaredDeviations = 0.0;
+
+        for (var residual : residuals) {
+            squaredDeviations += (residual - mean) * (residual - mean);
+        }
+
+        return Math.sqrt(squaredDeviations / sizes.length);
+    }
+}
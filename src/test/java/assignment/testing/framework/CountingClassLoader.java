@@ -0,0 +1,196 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassTransform;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeTransform;
+import java.lang.classfile.Label;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.MethodTransform;
+import java.lang.classfile.instruction.BranchInstruction;
+import java.lang.classfile.instruction.LabelTarget;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/// Loads application classes again, with calls to `InvocationCounter.enter` and `Fuel.burn` at the start of every
+/// method and to `Fuel.burn` before every backward branch (the end of every loop iteration)
+///
+/// Classes are chosen as by `SandboxClassLoader`: those from a directory on the class path of the parent, so the
+/// classes the student's code uses are counted too, and the JDK and the framework never are. Every method with code
+/// (constructors, static initializers and lambda bodies included) gets an id, the same for the same method in every
+/// loader, and starts by passing it to `enter`, which counts it for the `withInvocationCounting` scope it runs in.
+/// `burn` takes a step from the fuel of the call within a fuel budget, and only checks the scope without one.
+///
+/// One loader is kept per parent, and one more over the sandbox loader for counting within `withFileSandbox`, whose
+/// classes have their file I/O redirected before they are instrumented.
+final class CountingClassLoader extends ClassLoader
+{
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    static private final String FRAMEWORK_PACKAGE = Utilities.class.getPackageName() + ".";
+    static private final List<String> PLATFORM_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.", "com.sun.");
+
+    static private final ClassDesc INVOCATION_COUNTER = ClassDesc.of(InvocationCounter.class.getName());
+    static private final MethodTypeDesc ENTER = MethodTypeDesc.ofDescriptor("(I)V");
+    static private final ClassDesc FUEL = ClassDesc.of(Fuel.class.getName());
+    static private final MethodTypeDesc BURN = MethodTypeDesc.ofDescriptor("()V");
+
+
+    /// Classes found (or not found) by `Utilities#findClass` within `withInvocationCounting` or a fuel budget
+    final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+    /// Loader redirecting file I/O first, `null` outside of sandboxes
+    private final SandboxClassLoader sandbox;
+    private final ClassFile classFile;
+
+
+    /// Loader counting the classes of `submission`, or of the class path when it is `null`, and redirecting their
+    /// file I/O too when `sandboxed`
+    static CountingClassLoader of(SubmissionClassLoader submission, boolean sandboxed) {
+        if (submission == null) {
+            return sandboxed ? ClassPath.SANDBOXED_LOADER : ClassPath.LOADER;
+        }
+
+        return submission.countingClassLoader(sandboxed);
+    }
+
+    static private final class ClassPath
+    {
+        static final CountingClassLoader LOADER = new CountingClassLoader(Utilities.class.getClassLoader(), null);
+        static final CountingClassLoader SANDBOXED_LOADER = new CountingClassLoader(
+            Utilities.class.getClassLoader(), SandboxClassLoader.of(null)
+        );
+    }
+
+
+    CountingClassLoader(ClassLoader parent, SandboxClassLoader sandbox) {
+        super(sandbox == null ? "counting" : "counting-sandbox", parent);
+
+        this.sandbox = sandbox;
+        this.classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(
+            ClassHierarchyResolver.ofResourceParsing(parent)
+        ));
+    }
+
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!this.isApplicationClass(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (this.getClassLoadingLock(name)) {
+            var classObject = this.findLoadedClass(name);
+
+            if (classObject == null) {
+                classObject = this.findClass(name);
+            }
+
+            if (resolve) {
+                this.resolveClass(classObject);
+            }
+
+            return classObject;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes;
+
+        try (var stream = this.getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (stream == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            bytes = stream.readAllBytes();
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+
+        if (this.sandbox != null) {
+            bytes = this.sandbox.redirect(bytes);
+        }
+
+        var instrumented = this.instrument(bytes);
+
+        return this.defineClass(name, instrumented, 0, instrumented.length);
+    }
+
+    private boolean isApplicationClass(String name) {
+        if (name.startsWith(FRAMEWORK_PACKAGE) || PLATFORM_PACKAGES.stream().anyMatch(name::startsWith)) {
+            return false;
+        }
+
+        var resource = this.getParent().getResource(name.replace('.', '/') + ".class");
+
+        return resource != null && resource.getProtocol().equals("file");
+    }
+
+
+    /// `bytes` with the calls to `InvocationCounter` and `Fuel` in every method with code
+    private byte[] instrument(byte[] bytes) {
+        var model = this.classFile.parse(bytes);
+        var owner = model.thisClass().asInternalName().replace('/', '.');
+
+        return this.classFile.transformClass(model, (ClassTransform) (classBuilder, element) -> {
+            if (element instanceof MethodModel method && method.code().isPresent()) {
+                var id = InvocationCounter.register(
+                    owner, method.methodName().stringValue(), method.methodType().stringValue()
+                );
+
+                classBuilder.transformMethod(method, MethodTransform.transformingCode(new Instrumenter(id)));
+            }
+            else {
+                classBuilder.with(element);
+            }
+        });
+    }
+
+
+    /// Instruments the method `id`; pushing a constant and calling a static method is valid before `super()` too, so
+    /// constructors are instrumented the same way. A branch is backward when its target label was already bound,
+    /// which is how javac ends every loop, `continue` included
+    static private final class Instrumenter implements CodeTransform
+    {
+        private final int id;
+        private final Set<Label> bound = new HashSet<>();
+
+        Instrumenter(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void atStart(CodeBuilder builder) {
+            builder.loadConstant(this.id);
+            builder.invokestatic(INVOCATION_COUNTER, "enter", ENTER);
+            builder.invokestatic(FUEL, "burn", BURN);
+        }
+
+        @Override
+        public void accept(CodeBuilder builder, CodeElement element) {
+            switch (element) {
+                case LabelTarget target -> this.bound.add(target.label());
+                case BranchInstruction branch when this.bound.contains(branch.target()) ->
+                    builder.invokestatic(FUEL, "burn", BURN);
+                default -> {}
+            }
+
+            builder.with(element);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+
+/// Embedded database for JDBC assignments, seeded once per script and reset per `withDatabase` scope by rollback
+///
+/// The first scope for a script creates an in-memory database (H2 by default, `-Dassignment.database.url=<url>`
+/// with a `%s` for the database name for another engine) and runs the script on it, committed. Every scope then
+/// works in a single transaction on a connection of its own, rolled back when the scope ends, so each test starts
+/// from the seeded state without running DDL again. DDL within a scope is not rolled back by every engine.
+///
+/// Identity columns are not transactional: the keys generated in a scope stay used after its rollback. When a scope
+/// ends they are restarted after the largest key seeded (`ALTER TABLE ... ALTER COLUMN ... RESTART WITH`), so the
+/// keys a test sees do not depend on the tests before it; scopes on the same script running at the same time still
+/// share them.
+///
+/// Student code gets proxies of that connection: `commit` only marks a savepoint that a later `rollback` returns to,
+/// `setAutoCommit` and `close` only change the proxy, and `unwrap` only ever returns the proxy. Every statement
+/// executed through a proxy is counted, as are round trips (a batch is one round trip of many statements), by SQL text
+/// with literals replaced by `?`, so an N+1 query pattern shows up as one text executed N times.
+final class Database
+{
+    static final ScopedValue<Session> CURRENT = ScopedValue.newInstance();
+
+    static private final String URL = System.getProperty(
+        "assignment.database.url", "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1"
+    );
+
+    /// Script to the database seeded from it
+    static private final Map<String, Seeded> databases = new ConcurrentHashMap<>();
+
+    static private final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+
+
+    /// Database seeded from a script, and the statements restarting its identity columns
+    private record Seeded(String url, List<String> identityRestarts) {}
+
+
+    /// Connection to a fresh transaction on the database seeded from `script`, a file or class path resource
+    static Session open(String script) throws SQLException {
+        if (Files.isRegularFile(Path.of(script))) {
+            GradingCache.recordFile(Path.of(script));
+        }
+        else {
+            GradingCache.recordResource(script);
+        }
+
+        var seeded = Database.databases.computeIfAbsent(script, Database::seed);
+        var connection = DriverManager.getConnection(seeded.url());
+
+        connection.setAutoCommit(false);
+
+        return new Session(connection, seeded.identityRestarts());
+    }
+
+    static private Seeded seed(String script) {
+        var url = URL.formatted("assignment_" + HexFormat.of().toHexDigits(script.hashCode()));
+
+        try (var connection = DriverManager.getConnection(url); var statement = connection.createStatement()) {
+            for (var sql : Database.split(Database.read(script))) {
+                statement.execute(sql);
+            }
+
+            return new Seeded(url, Database.identityRestarts(connection));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Seeding the database from " + script + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /// `ALTER TABLE` statements restarting every identity column of the tables of `connection` after its largest key
+    static private List<String> identityRestarts(Connection connection) throws SQLException {
+        var metaData = connection.getMetaData();
+        var quote = metaData.getIdentifierQuoteString().strip();
+        var restarts = new ArrayList<String>();
+
+        try (
+            var columns = metaData.getColumns(null, null, "%", "%");
+            var statement = connection.createStatement()
+        ) {
+            while (columns.next()) {
+                var schema = columns.getString("TABLE_SCHEM");
+
+                if (!"YES".equals(columns.getString("IS_AUTOINCREMENT")) || "INFORMATION_SCHEMA".equals(schema)) {
+                    continue;
+                }
+
+                var table = quote + schema + quote + "." + quote + columns.getString("TABLE_NAME") + quote;
+                var column = quote + columns.getString("COLUMN_NAME") + quote;
+
+                var sql = "SELECT COALESCE(MAX(%s), 0) + 1 FROM %s".formatted(column, table);
+
+                try (var next = statement.executeQuery(sql)) {
+                    next.next();
+                    restarts.add(
+                        "ALTER TABLE %s ALTER COLUMN %s RESTART WITH %d".formatted(table, column, next.getLong(1))
+                    );
+                }
+            }
+        }
+
+        return List.copyOf(restarts);
+    }
+
+    static private String read(String script) {
+        try {
+            if (Files.isRegularFile(Path.of(script))) {
+                return Files.readString(Path.of(script));
+            }
+
+            try (var stream = Database.class.getClassLoader().getResourceAsStream(script)) {
+                if (stream == null) {
+                    throw new IllegalArgumentException("No database script " + script);
+                }
+
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /// Statements of a script, split on `;` outside of quotes and comments
+    static private List<String> split(String script) {
+        var statements = new ArrayList<String>();
+        var statement = new StringBuilder();
+
+        for (var i = 0; i < script.length(); i++) {
+            var c = script.charAt(i);
+
+            if (c == '\'' || c == '"') {
+                var end = script.indexOf(c, i + 1);
+
+                end = end == -1 ? script.length() - 1 : end;
+                statement.append(script, i, end + 1);
+                i = end;
+            }
+            else if (script.startsWith("--", i)) {
+                var end = script.indexOf('\n', i);
+
+                i = end == -1 ? script.length() : end;
+            }
+            else if (script.startsWith("/*", i)) {
+                var end = script.indexOf("*/", i + 2);
+
+                i = end == -1 ? script.length() : end + 1;
+            }
+            else if (c == ';') {
+                statements.add(statement.toString());
+                statement.setLength(0);
+            }
+            else {
+                statement.append(c);
+            }
+        }
+
+        statements.add(statement.toString());
+        statements.removeIf(String::isBlank);
+
+        return statements;
+    }
+
+    /// `sql` with its literals replaced by `?`
+    static String normalize(String sql) {
+        return LITERAL.matcher(sql.strip()).replaceAll("?");
+    }
+
+
+
+    /// Transaction of one `withDatabase` scope, and the statements executed within it
+    static final class Session implements AutoCloseable
+    {
+        private final Connection connection;
+        private final List<String> identityRestarts;
+
+        final AtomicLong statements = new AtomicLong();
+        final AtomicLong roundTrips = new AtomicLong();
+        final Map<String, LongAdder> executions = new ConcurrentHashMap<>();
+
+        /// Savepoint of the latest `commit` by student code, a `rollback` returns to it
+        private volatile Savepoint committed;
+
+
+        private Session(Connection connection, List<String> identityRestarts) {
+            this.connection = connection;
+            this.identityRestarts = identityRestarts;
+        }
+
+
+        /// Connection for the test itself; not counted
+        Connection connection() {
+            return this.connection;
+        }
+
+        /// Connection for student code, closing it leaves the transaction open
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(
+                Database.class.getClassLoader(), new Class<?>[] { Connection.class }, new ConnectionHandler(this)
+            );
+        }
+
+        DataSource dataSource() {
+            return (DataSource) Proxy.newProxyInstance(
+                Database.class.getClassLoader(), new Class<?>[] { DataSource.class }, (proxy, method, arguments) ->
+                    switch (method.getName()) {
+                        case "getConnection" -> this.proxy();
+                        case "unwrap", "isWrapperFor" -> Database.unwrap(proxy, method, arguments);
+                        case "toString" -> "DataSource of the assignment database";
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == arguments[0];
+                        default -> throw new SQLException(
+                            "Not available for the assignment database: " + method.getName()
+                        );
+                    }
+            );
+        }
+
+        private void record(String sql) {
+            this.statements.incrementAndGet();
+            this.executions.computeIfAbsent(Database.normalize(sql), _ -> new LongAdder()).increment();
+        }
+
+        /// Rolls back the transaction, then restarts the identity columns, which commits on most engines
+        @Override
+        public void close() throws SQLException {
+            try (var statement = this.connection.createStatement()) {
+                this.connection.rollback();
+
+                for (var sql : this.identityRestarts) {
+                    statement.execute(sql);
+                }
+            } finally {
+                this.connection.close();
+            }
+        }
+    }
+
+
+    static private final class ConnectionHandler implements InvocationHandler
+    {
+        private final Session session;
+        private volatile boolean autoCommit = true;
+        private volatile boolean closed;
+
+        ConnectionHandler(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+            switch (method.getName()) {
+                case "toString": return "Connection to the assignment database";
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == arguments[0];
+                case "close": this.closed = true; return null;
+                case "isClosed": return this.closed;
+                case "isValid": return !this.closed;
+            }
+
+            if (this.closed) {
+                throw new SQLException("Connection is closed");
+            }
+
+            var connection = this.session.connection;
+
+            switch (method.getName()) {
+                case "unwrap", "isWrapperFor":
+                    return Database.unwrap(proxy, method, arguments);
+                case "getAutoCommit":
+                    return this.autoCommit;
+                case "setAutoCommit":
+                    this.autoCommit = (boolean) arguments[0];
+                    return null;
+                case "commit":
+                    this.session.committed = connection.setSavepoint();
+                    return null;
+                case "rollback":
+                    if (arguments == null || arguments.length == 0) {
+                        var committed = this.session.committed;
+
+                        if (committed == null) {
+                            connection.rollback();
+                        }
+                        else {
+                            connection.rollback(committed);
+                        }
+
+                        return null;
+                    }
+                    break;
+            }
+
+            var result = Database.call(connection, method, arguments);
+
+            if (result instanceof Statement statement) {
+                var sql = arguments != null && arguments.length > 0 && arguments[0] instanceof String string
+                    ? string
+                    : null;
+
+                return Proxy.newProxyInstance(
+                    Database.class.getClassLoader(),
+                    new Class<?>[] { Database.statementType(statement) },
+                    new StatementHandler(this.session, (Connection) proxy, statement, sql)
+                );
+            }
+
+            return result;
+        }
+    }
+
+    static private final class StatementHandler implements InvocationHandler
+    {
+        private final Session session;
+        private final Connection connection;
+        private final Statement statement;
+        private final String preparedSql;
+        private final List<String> batch = new ArrayList<>();
+
+        StatementHandler(Session session, Connection connection, Statement statement, String preparedSql) {
+            this.session = session;
+            this.connection = connection;
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] arguments) throws Throwable {
+            var name = method.getName();
+            var sql = arguments != null && arguments.length > 0 && arguments[0] instanceof String string
+                ? string
+                : this.preparedSql;
+
+            switch (name) {
+                case "toString": return this.statement.toString();
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == arguments[0];
+                case "getConnection": return this.connection;
+                case "unwrap", "isWrapperFor": return Database.unwrap(proxy, method, arguments);
+                case "addBatch": this.batch.add(sql); break;
+                case "clearBatch": this.batch.clear(); break;
+                case "executeBatch", "executeLargeBatch":
+                    this.session.roundTrips.incrementAndGet();
+                    this.batch.forEach(this.session::record);
+                    this.batch.clear();
+                    break;
+                default:
+                    if (name.startsWith("execute")) {
+                        this.session.roundTrips.incrementAndGet();
+                        this.session.record(sql);
+                    }
+            }
+
+            return Database.call(this.statement, method, arguments);
+        }
+    }
+
+
+    static private Class<?> statementType(Statement statement) {
+        if (statement instanceof CallableStatement) return CallableStatement.class;
+        if (statement instanceof PreparedStatement) return PreparedStatement.class;
+
+        return Statement.class;
+    }
+
+    /// `unwrap` and `isWrapperFor` of a proxy, which only wraps itself: the connection or statement behind it would
+    /// not be counted, nor keep the transaction open
+    static private Object unwrap(Object proxy, Method method, Object[] arguments) throws SQLException {
+        var type = (Class<?>) arguments[0];
+
+        if (method.getName().equals("isWrapperFor")) {
+            return type.isInstance(proxy);
+        }
+
+        if (!type.isInstance(proxy)) {
+            throw new SQLException("Not a wrapper for " + type.getName());
+        }
+
+        return proxy;
+    }
+
+    static private Object call(Object target, Method method, Object[] arguments) throws Throwable {
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+
+    private Database() {}
+}
@@ -0,0 +1,163 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.opentest4j.AssertionFailedError;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+
+/// Runs a method of the student class and the same method of a reference class on the same generated inputs, and
+/// finds the smallest case where they behave differently
+///
+/// Cases are numbered from `0`, and the inputs of a case come from calling the generator with its number, once for
+/// each side, so neither side sees arguments the other has changed. Every case runs on a fresh pair of instances
+/// (for methods that are not static) and with standard output captured by a buffer of its own, on one of a pool of
+/// workers. Worker `w` of `n` runs cases `w`, `w + n`, `w + 2n`, ..., so the smallest cases run first, and stops once
+/// its next case is past the smallest divergence found so far by any worker: the divergence reported is always the
+/// one with the smallest case number. Cases running at the same time share the static state of both classes, so
+/// when either declares a static field that is not final, a single worker runs every case in order; static state
+/// elsewhere, e.g. in a helper class or behind a final field, is not detected and must be kept out of the method.
+///
+/// Return values are compared as written by `ObjectDump`, so instances of the student class and of the reference
+/// class compare equal when their fields do. Exceptions are compared by their simple class name only.
+final class DifferentialTester
+{
+    /// What a call did: what it returned (as dumped) or the exception it threw, and the output it printed
+    record Outcome(String returned, String thrown, String output)
+    {
+        String describe() {
+            var description = this.thrown == null ? "returned " + this.returned : "threw " + this.thrown;
+
+            return this.output.isEmpty() ? description : description + " and printed \"%s\"".formatted(this.output);
+        }
+    }
+
+    /// First case where the student class behaved differently from the reference class
+    record Divergence(int index, String arguments, Outcome expected, Outcome actual) {}
+
+
+    /// One side: the class, the handle calling the method and the handle creating receivers (`null` if static)
+    record Side(Class<?> classObject, MethodHandle method, MethodHandle constructor) {}
+
+
+    private final String name;
+    private final Side student;
+    private final Side reference;
+    private final IntFunction<Object[]> arguments;
+
+
+    DifferentialTester(String name, Side student, Side reference, IntFunction<Object[]> arguments) {
+        this.name = name;
+        this.student = student;
+        this.reference = reference;
+        this.arguments = arguments;
+    }
+
+
+    /// Smallest of the first `cases` cases where the two sides differ, `null` when they never do
+    Divergence run(int cases) throws Exception {
+        var workers = DifferentialTester.hasStaticState(this.student.classObject())
+            || DifferentialTester.hasStaticState(this.reference.classObject())
+            ? 1
+            : Math.max(1, Math.min(cases, Runtime.getRuntime().availableProcessors()));
+        var bound = new AtomicInteger(cases);
+        var divergence = new AtomicReference<Divergence>();
+
+        try (var executor = Executors.newFixedThreadPool(workers)) {
+            var futures = new ArrayList<Future<Void>>();
+
+            for (var worker = 0; worker < workers; worker++) {
+                var first = worker;
+
+                futures.add(executor.submit(Utilities.inheritContext((Callable<Void>) () -> {
+                    for (var i = first; i < bound.get(); i += workers) {
+                        var found = this.compare(i);
+
+                        if (found != null) {
+                            bound.accumulateAndGet(i, Math::min);
+                            divergence.accumulateAndGet(found, (a, b) -> a == null || b.index() < a.index() ? b : a);
+                        }
+                    }
+
+                    return null;
+                })));
+            }
+
+            for (var future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception exception) throw exception;
+                    if (e.getCause() instanceof Error error) throw error;
+                    throw e;
+                }
+            }
+        }
+
+        return divergence.get();
+    }
+
+    /// Whether `classObject` declares a static field that is not final, which cases running at the same time would
+    /// share
+    static private boolean hasStaticState(Class<?> classObject) {
+        for (var field : classObject.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Divergence compare(int index) {
+        var expected = this.call(this.reference, index);
+        var actual = this.call(this.student, index);
+
+        if (expected.equals(actual)) {
+            return null;
+        }
+
+        var arguments = Arrays.stream(this.arguments.apply(index))
+            .map(ObjectDump::of)
+            .collect(Collectors.joining(", "));
+
+        return new Divergence(index, arguments, expected, actual);
+    }
+
+    private Outcome call(Side side, int index) {
+        var arguments = this.arguments.apply(index);
+        var result = new Object[1];
+        var thrown = new Throwable[1];
+
+        var output = Utilities.captureStandardOutputOf(() -> {
+            try {
+                var instance = side.constructor() == null
+                    ? null
+                    : Utilities.invoke(side.classObject().getName(), side.constructor(), null, new Object[0]);
+
+                result[0] = Utilities.invoke(this.name, side.method(), instance, arguments);
+            } catch (AssertionFailedError e) {
+                // A call over its time budget fails the test, it does not count as a difference
+                throw e;
+            } catch (RuntimeException | Error e) {
+                thrown[0] = e.getClass() == RuntimeException.class && e.getCause() != null ? e.getCause() : e;
+            }
+        });
+
+        return thrown[0] == null
+            ? new Outcome(ObjectDump.of(result[0]), null, output)
+            : new Outcome(null, thrown[0].getClass().getSimpleName(), output);
+    }
+}
@@ -0,0 +1,137 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/// Grading process started and fed by `ForkedWorkerPool`
+///
+/// Reads one request per line from standard input, `<student>\t<classes directory>`, grades that submission with
+/// `BatchGrader#grade` and answers with the JSON result on a line of its own. The file descriptors of standard
+/// input and output are reserved for this protocol, student code sees an empty `System.in` and a `System.out`
+/// that goes to standard error.
+///
+/// Started with `--archive`, the worker grades the reference solution once and exits, which is how the build
+/// records the classes for the class-data-sharing archive (see the `cds` profile in `pom.xml`).
+public final class ForkedWorker
+{
+    static final String READY = "READY";
+
+
+    static public void main(String[] args) throws IOException {
+        var protocolOutput = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        var protocolInput = new BufferedReader(
+            new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.UTF_8)
+        );
+
+        // Before anything touches Utilities, which keeps the System.out it finds as the original standard output
+        System.setOut(System.err);
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+
+        var suites = new ArrayList<String>();
+        var packageName = "assignment";
+        Path archiveClassPath = null;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--suite" -> suites.add(args[++i]);
+                case "--package" -> packageName = args[++i];
+                case "--archive" -> archiveClassPath = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (suites.isEmpty()) {
+            suites.add("assignment.TestAssignment");
+        }
+
+        // Warm up: load the framework and JUnit by grading the reference solution on the class path
+        ForkedWorker.warmUp(suites, packageName);
+
+        if (archiveClassPath != null) {
+            // The archive is only used when the workers are started with the same class path
+            Files.writeString(archiveClassPath, System.getProperty("java.class.path"));
+            return;
+        }
+
+        protocolOutput.println(ForkedWorker.READY);
+
+        String request;
+
+        while ((request = protocolInput.readLine()) != null) {
+            var separator = request.indexOf('\t');
+
+            if (separator == -1) {
+                protocolOutput.println(new BatchGrader.Result(
+                    request, 0, 0, 0, 0, 0, Duration.ZERO,
+                    List.of("Malformed request, expected <student>\\t<classes directory>")
+                ).toJson());
+                continue;
+            }
+
+            var student = request.substring(0, separator);
+            var classesDirectory = Path.of(request.substring(separator + 1));
+
+            var result = BatchGrader.grade(student, classesDirectory, suites, packageName);
+
+            protocolOutput.println(result.toJson());
+        }
+    }
+
+
+    static private void warmUp(List<String> suites, String packageName) throws IOException {
+        var referenceSolution = ForkedWorker.referenceClassesDirectory(packageName);
+
+        if (referenceSolution != null) {
+            BatchGrader.grade("warm-up", referenceSolution, suites, packageName);
+        }
+    }
+
+    /// Class path entry holding the assignment package (`target/classes`), other than the one holding the framework
+    static private Path referenceClassesDirectory(String packageName) throws IOException {
+        var frameworkLocation = ForkedWorker.class.getProtectionDomain().getCodeSource().getLocation();
+        var packageDirectories = ForkedWorker.class.getClassLoader().getResources(packageName.replace('.', '/'));
+
+        while (packageDirectories.hasMoreElements()) {
+            var packageDirectory = packageDirectories.nextElement();
+
+            if (!packageDirectory.getProtocol().equals("file")) {
+                continue;
+            }
+
+            try {
+                var classesDirectory = Path.of(packageDirectory.toURI());
+
+                for (var _ : packageName.split("\\.")) {
+                    classesDirectory = classesDirectory.getParent();
+                }
+
+                if (!classesDirectory.equals(Path.of(frameworkLocation.toURI()))) {
+                    return classesDirectory;
+                }
+            } catch (URISyntaxException _) {
+                // Not a plain directory, keep looking
+            }
+        }
+
+        return null;
+    }
+
+
+    private ForkedWorker() {}
+}
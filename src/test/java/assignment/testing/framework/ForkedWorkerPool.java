@@ -0,0 +1,348 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/// Grades submissions in a pool of pre-started `ForkedWorker` processes
+///
+/// For submissions that cannot share a JVM: student code calling `System.exit`, corrupting statics or leaking
+/// threads only takes down its own worker. Workers are started ahead of time, warmed up and, when the build has
+/// produced it, mapped from the class-data-sharing archive `target/framework.jsa`. A worker is replaced after
+/// `--recycle-after` submissions (default 1, a fresh JVM per submission), when it dies, or when a submission takes
+/// longer than `--timeout` seconds.
+///
+/// ```
+/// mvn package -Pcds
+/// java -cp "$(cat target/framework.classpath)" assignment.testing.framework.ForkedWorkerPool \
+///     submissions/ --workers 4 --recycle-after 1 --output target/grading/results.jsonl
+/// ```
+public final class ForkedWorkerPool implements AutoCloseable
+{
+    static private final Path DEFAULT_ARCHIVE = Path.of("target", "framework.jsa");
+    static private final Path DEFAULT_OUTPUT = Path.of("target", "grading", "results.jsonl");
+    static private final Duration STOP_GRACE_PERIOD = Duration.ofSeconds(10);
+
+
+    /// One worker process and the pipes to talk to it
+    static private final class Worker
+    {
+        private final Process process;
+        private final BufferedWriter requests;
+        private final BufferedReader responses;
+        private int runs;
+
+        private Worker(Process process) {
+            this.process = process;
+            this.requests = new BufferedWriter(
+                new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)
+            );
+            this.responses = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)
+            );
+        }
+    }
+
+
+    private final List<String> command;
+    private final int recycleAfter;
+    private final Duration timeout;
+    private final LinkedBlockingQueue<CompletableFuture<Worker>> idle = new LinkedBlockingQueue<>();
+    /// Workers asked to exit after their last submission, waited for by `close`
+    private final Queue<Process> stopped = new ConcurrentLinkedQueue<>();
+
+
+    public ForkedWorkerPool(
+            int workers, int recycleAfter, Duration timeout,
+            List<String> suites, String packageName,
+            Path archive
+    ) throws IOException {
+        this.recycleAfter = recycleAfter;
+        this.timeout = timeout;
+        this.command = ForkedWorkerPool.command(suites, packageName, archive);
+
+        for (var i = 0; i < workers; i++) {
+            this.idle.add(this.start());
+        }
+    }
+
+
+    static public void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println(
+                "Usage: ForkedWorkerPool <submissions-directory> [--workers N] [--recycle-after N] [--timeout SECONDS]"
+                + " [--suite FQCN]... [--package NAME] [--archive FILE] [--output FILE]"
+            );
+            System.exit(2);
+        }
+
+        var submissions = Path.of(args[0]);
+        var workers = Runtime.getRuntime().availableProcessors();
+        var recycleAfter = 1;
+        var timeout = Duration.ofMinutes(5);
+        var suites = new ArrayList<String>();
+        var packageName = "assignment";
+        var archive = DEFAULT_ARCHIVE;
+        var output = DEFAULT_OUTPUT;
+
+        for (var i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--recycle-after" -> recycleAfter = Integer.parseInt(args[++i]);
+                case "--timeout" -> timeout = Duration.ofSeconds(Long.parseLong(args[++i]));
+                case "--suite" -> suites.add(args[++i]);
+                case "--package" -> packageName = args[++i];
+                case "--archive" -> archive = Path.of(args[++i]);
+                case "--output" -> output = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        List<Path> students;
+
+        try (var directories = Files.list(submissions)) {
+            students = directories.filter(Files::isDirectory).sorted().toList();
+        }
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+
+        try (
+            var pool = new ForkedWorkerPool(workers, recycleAfter, timeout, suites, packageName, archive);
+            var writer = Files.newBufferedWriter(output);
+            var executor = Executors.newFixedThreadPool(workers)
+        ) {
+            var futures = new ArrayList<Future<?>>();
+
+            for (var student : students) {
+                futures.add(executor.submit(() -> {
+                    var json = pool.grade(student.getFileName().toString(), BatchGrader.classesDirectory(student));
+
+                    synchronized (writer) {
+                        try {
+                            writer.write(json);
+                            writer.newLine();
+                            writer.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    return json;
+                }));
+            }
+
+            for (var future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+    }
+
+
+    /// Grade one submission on the next idle worker, returns the JSON result record
+    public String grade(String student, Path classesDirectory) throws InterruptedException {
+        var started = System.nanoTime();
+        Worker worker;
+
+        try {
+            worker = this.idle.take().get();
+        } catch (ExecutionException e) {
+            this.idle.add(this.start());
+
+            return ForkedWorkerPool.failure(student, started, "Worker failed to start: " + e.getCause());
+        }
+
+        String response;
+        var timedOut = false;
+
+        try {
+            worker.requests.write(student + "\t" + classesDirectory.toAbsolutePath());
+            worker.requests.newLine();
+            worker.requests.flush();
+
+            response = CompletableFuture
+                .supplyAsync(() -> ForkedWorkerPool.readLine(worker))
+                .get(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException _) {
+            response = null;
+            timedOut = true;
+        } catch (IOException | ExecutionException _) {
+            response = null;
+        }
+
+        worker.runs++;
+
+        if (response == null) {
+            worker.process.destroyForcibly();
+
+            this.idle.add(this.start());
+
+            return ForkedWorkerPool.failure(student, started, timedOut
+                ? "Grading did not finish within %d seconds".formatted(this.timeout.toSeconds())
+                : "Worker exited with code %d".formatted(worker.process.waitFor())
+            );
+        }
+
+        if (worker.runs >= this.recycleAfter) {
+            ForkedWorkerPool.stop(worker);
+            this.stopped.add(worker.process);
+
+            this.idle.add(this.start());
+        }
+        else {
+            this.idle.add(CompletableFuture.completedFuture(worker));
+        }
+
+        return response;
+    }
+
+
+    /// Stop every worker, including those still starting, and wait for them to exit; workers still running after
+    /// `STOP_GRACE_PERIOD` are killed
+    @Override
+    public void close() {
+        CompletableFuture<Worker> worker;
+
+        while ((worker = this.idle.poll()) != null) {
+            try {
+                var started = worker.join();
+
+                ForkedWorkerPool.stop(started);
+                this.stopped.add(started.process);
+            } catch (CompletionException | CancellationException _) {
+                // Failed to start, its process is already destroyed
+            }
+        }
+
+        var deadline = System.nanoTime() + STOP_GRACE_PERIOD.toNanos();
+        Process process;
+
+        while ((process = this.stopped.poll()) != null) {
+            try {
+                var remaining = Math.max(0, deadline - System.nanoTime());
+
+                if (!process.waitFor(remaining, TimeUnit.NANOSECONDS)) {
+                    process.destroyForcibly().waitFor();
+                }
+            } catch (InterruptedException _) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /// Start a worker in the background, completes once the worker has warmed up and reported ready
+    private CompletableFuture<Worker> start() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                var worker = new Worker(
+                    new ProcessBuilder(this.command).redirectError(ProcessBuilder.Redirect.INHERIT).start()
+                );
+
+                var ready = worker.responses.readLine();
+
+                if (!ForkedWorker.READY.equals(ready)) {
+                    worker.process.destroyForcibly();
+
+                    throw new IllegalStateException("Worker did not start: " + ready);
+                }
+
+                return worker;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    static private void stop(Worker worker) {
+        try {
+            // End of input ends the request loop of the worker
+            worker.requests.close();
+        } catch (IOException _) {
+            worker.process.destroyForcibly();
+        }
+    }
+
+    static private String readLine(Worker worker) {
+        try {
+            return worker.responses.readLine();
+        } catch (IOException _) {
+            return null;
+        }
+    }
+
+    static private String failure(String student, long started, String message) {
+        return new BatchGrader.Result(
+            student, 0, 0, 0, 0, 0, Duration.ofNanos(System.nanoTime() - started), List.of(message)
+        ).toJson();
+    }
+
+
+    static private List<String> command(List<String> suites, String packageName, Path archive) throws IOException {
+        var command = new ArrayList<String>();
+
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+
+        // The archive is recorded together with the class path it is valid for
+        var archiveClassPath = archive.resolveSibling(ForkedWorkerPool.classPathFileName(archive));
+        var classPath = System.getProperty("java.class.path");
+
+        if (Files.isRegularFile(archive) && Files.isRegularFile(archiveClassPath)) {
+            classPath = Files.readString(archiveClassPath).strip();
+
+            command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+            command.add("-Xshare:auto");
+        }
+
+        command.add("-cp");
+        command.add(classPath);
+        command.add(ForkedWorker.class.getName());
+
+        for (var suite : suites) {
+            command.add("--suite");
+            command.add(suite);
+        }
+
+        command.add("--package");
+        command.add(packageName);
+
+        return command;
+    }
+
+    /// `framework.jsa` is recorded with `framework.classpath`
+    static String classPathFileName(Path archive) {
+        var fileName = archive.getFileName().toString();
+        var extension = fileName.lastIndexOf('.');
+
+        return (extension < 0 ? fileName : fileName.substring(0, extension)) + ".classpath";
+    }
+}
@@ -0,0 +1,139 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.ScopedValue.where;
+
+
+/// Instruction budgets ("fuel") of student code, counted in steps: method entries and loop iterations
+///
+/// Classes loaded by a `CountingClassLoader` call `burn` at the start of every method and at every backward branch;
+/// within a budget each call into student code gets a `Tank` of its own, filled with what the budget allows and
+/// only used by the thread running the call, so burning is a decrement of a plain field. When a tank runs dry `burn`
+/// throws `FuelExhaustedError`, and keeps throwing, so catching it does not let the student code carry on. Unlike a
+/// time budget, whether a call runs out depends only on the work it does, not on the machine or its load.
+///
+/// Budgets are only checked when one is in scope (or `-Dassignment.fuel=<steps>` sets a default per call); outside of
+/// one, or in classes not found within one, `burn` only checks the scope.
+///
+/// Public only so instrumented classes in other packages can call it, not part of the API of the framework.
+public final class Fuel
+{
+    static private final long UNLIMITED = Long.MAX_VALUE;
+
+    static final ScopedValue<Budget> BUDGET = ScopedValue.newInstance();
+
+    /// Tank of the call running on this thread
+    static private final ScopedValue<Tank> TANK = ScopedValue.newInstance();
+
+    static private final Budget DEFAULT_BUDGET = Long.getLong("assignment.fuel") == null
+        ? null
+        : new Budget(null, Long.getLong("assignment.fuel"), UNLIMITED);
+
+
+    /// Limit for each call within a scope, and/or a total shared by all calls within the scope
+    static final class Budget
+    {
+        private final Budget parent;
+        private final long call;
+        private final AtomicLong scopeRemaining;
+
+        private Budget(Budget parent, long call, long scope) {
+            this.parent = parent;
+            this.call = call;
+            this.scopeRemaining = new AtomicLong(scope);
+        }
+
+        static Budget perCall(long fuel) {
+            return new Budget(Fuel.current(), fuel, UNLIMITED);
+        }
+
+        static Budget perScope(long fuel) {
+            return new Budget(Fuel.current(), UNLIMITED, fuel);
+        }
+
+        private long limit() {
+            var limit = Math.min(this.call, Math.max(0, this.scopeRemaining.get()));
+
+            return this.parent == null ? limit : Math.min(limit, this.parent.limit());
+        }
+
+        private void charge(long used) {
+            if (this.scopeRemaining.get() != UNLIMITED) {
+                this.scopeRemaining.addAndGet(-used);
+            }
+
+            if (this.parent != null) {
+                this.parent.charge(used);
+            }
+        }
+    }
+
+    /// Fuel of one call, used by one thread at a time
+    static private final class Tank
+    {
+        private final long limit;
+        private long remaining;
+
+        Tank(long limit) {
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        long used() {
+            return this.remaining < 0 ? this.limit : this.limit - this.remaining;
+        }
+    }
+
+
+    static boolean isActive() {
+        return BUDGET.isBound() || DEFAULT_BUDGET != null;
+    }
+
+    static private Budget current() {
+        return BUDGET.isBound() ? BUDGET.get() : DEFAULT_BUDGET;
+    }
+
+
+    /// `task` running with a tank filled from the budget in scope, charged with what it used afterwards; throws
+    /// `FuelExhaustedError` when the tank ran dry, even if the student code caught the error
+    static <T> Callable<T> metered(Callable<T> task) {
+        var budget = Fuel.current();
+
+        return () -> {
+            var tank = new Tank(budget.limit());
+
+            try {
+                var result = where(TANK, tank).call(task::call);
+
+                if (tank.remaining < 0) {
+                    throw new FuelExhaustedError(tank.limit);
+                }
+
+                return result;
+            } finally {
+                budget.charge(tank.used());
+            }
+        };
+    }
+
+
+    /// Called on entry of every instrumented method and before every backward branch
+    static public void burn() {
+        if (TANK.isBound()) {
+            var tank = TANK.get();
+
+            if (--tank.remaining < 0) {
+                tank.remaining = -1;
+
+                throw new FuelExhaustedError(tank.limit);
+            }
+        }
+    }
+
+
+    private Fuel() {}
+}
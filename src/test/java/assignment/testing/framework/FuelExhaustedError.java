@@ -0,0 +1,19 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+
+/// Thrown into student code that ran out of fuel; an `Error`, so `catch (Exception e)` in the student code does not
+/// stop it, and `Utilities` turns it into an `AssertionFailedError` once it leaves the student code
+final class FuelExhaustedError extends Error
+{
+    /// Steps the call was allowed
+    final long fuel;
+
+
+    FuelExhaustedError(long fuel) {
+        super("Ran out of fuel after %,d steps".formatted(fuel));
+
+        this.fuel = fuel;
+    }
+}
@@ -0,0 +1,378 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+
+/// Arguments for `forAll`, drawn from a `Source`
+///
+/// A generator makes every decision through the draws of its `Source`, each a number from `0`, and is written so
+/// that smaller draws make simpler values: `0` draws give `0`, `false`, `'a'`, `""` and empty collections. That is all
+/// shrinking needs, a failing case is made smaller by deleting, zeroing and lowering its draws and generating it
+/// again, so generators made with `map` or written by hand shrink as well as the ones here.
+///
+/// ```
+/// Generator<Person> people = Generator.strings().map(name -> new Person(name));
+/// Generator<int[]> grades = source -> new int[] { source.nextInt(1, 6), source.nextInt(1, 6) };
+/// ```
+@FunctionalInterface
+public interface Generator<T>
+{
+    T generate(Source source);
+
+
+    default <R> Generator<R> map(Function<? super T, ? extends R> fn) {
+        return source -> fn.apply(this.generate(source));
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Primitives
+    ///
+    ///
+    /// Without bounds, integers are within `±size` of the case (growing from `0` to `100` over the first half of the
+    /// cases) six times out of eight, from the whole range of the type once, and one of `0`, `1`, `-1` and the minimum
+    /// and maximum of the type once, e.g. to catch overflow
+    ///-----------------------------------------------------------------------------------------------------------------
+    static Generator<Integer> integers() {
+        return source -> (int) Generator.nextInteger(source, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    static Generator<Integer> integers(int min, int max) {
+        return source -> source.nextInt(min, max);
+    }
+
+    static Generator<Long> longs() {
+        return source -> Generator.nextInteger(source, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    static Generator<Long> longs(long min, long max) {
+        return source -> source.nextLong(min, max);
+    }
+
+    static Generator<Short> shorts() {
+        return source -> (short) Generator.nextInteger(source, Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    static Generator<Byte> bytes() {
+        return source -> (byte) Generator.nextInteger(source, Byte.MIN_VALUE, Byte.MAX_VALUE);
+    }
+
+    /// Within `±size` of the case with a fraction, one time out of sixteen one of `NaN`, the infinities, `-0.0`,
+    /// `Double.MIN_VALUE` and `Double.MAX_VALUE`
+    static Generator<Double> doubles() {
+        return source -> source.nextLong(16) < 15
+            ? source.nextDouble(-source.size(), source.size())
+            : Source.SPECIAL_DOUBLES[(int) source.nextLong(Source.SPECIAL_DOUBLES.length)];
+    }
+
+    static Generator<Double> doubles(double min, double max) {
+        return source -> source.nextDouble(min, max);
+    }
+
+    static Generator<Float> floats() {
+        return Generator.doubles().map(Double::floatValue);
+    }
+
+    static Generator<Boolean> booleans() {
+        return Source::nextBoolean;
+    }
+
+    /// Printable ASCII characters, `'a'` first
+    static Generator<Character> characters() {
+        return source -> (char) (' ' + (source.nextLong(95) + ('a' - ' ')) % 95);
+    }
+
+    static Generator<Character> characters(char min, char max) {
+        return source -> (char) source.nextInt(min, max);
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Composites
+    ///
+    ///
+    /// Without a length, strings, arrays and collections have at most `size` elements of the case
+    ///-----------------------------------------------------------------------------------------------------------------
+    static Generator<String> strings() {
+        return Generator.strings(Generator.characters());
+    }
+
+    static Generator<String> strings(Generator<Character> characters) {
+        return source -> {
+            var text = new StringBuilder();
+
+            while (source.nextElement(text.length(), source.size())) {
+                text.append(characters.generate(source).charValue());
+            }
+
+            return text.toString();
+        };
+    }
+
+    static <T> Generator<List<T>> lists(Generator<T> elements) {
+        return source -> {
+            var list = new ArrayList<T>();
+
+            while (source.nextElement(list.size(), source.size())) {
+                list.add(elements.generate(source));
+            }
+
+            return list;
+        };
+    }
+
+    static <T> Generator<List<T>> lists(Generator<T> elements, int minLength, int maxLength) {
+        return source -> {
+            var list = new ArrayList<T>();
+
+            while (list.size() < minLength || source.nextElement(list.size(), maxLength)) {
+                list.add(elements.generate(source));
+            }
+
+            return list;
+        };
+    }
+
+    static <T> Generator<Set<T>> sets(Generator<T> elements) {
+        return Generator.lists(elements).map(LinkedHashSet::new);
+    }
+
+    static <K, V> Generator<Map<K, V>> maps(Generator<K> keys, Generator<V> values) {
+        return source -> {
+            var map = new LinkedHashMap<K, V>();
+            var entries = 0;
+
+            while (source.nextElement(entries++, source.size())) {
+                map.put(keys.generate(source), values.generate(source));
+            }
+
+            return map;
+        };
+    }
+
+    /// Arrays of `componentType`, primitive ones included, e.g. `arrays(int.class, integers())` for an `int[]`
+    static Generator<Object> arrays(Class<?> componentType, Generator<?> elements) {
+        return Generator.lists(elements).map(list -> {
+            var array = Array.newInstance(componentType, list.size());
+
+            for (var i = 0; i < list.size(); i++) {
+                Array.set(array, i, list.get(i));
+            }
+
+            return array;
+        });
+    }
+
+    static Generator<int[]> intArrays() {
+        return source -> {
+            var array = new int[8];
+            var length = 0;
+
+            while (source.nextElement(length, source.size())) {
+                if (length == array.length) {
+                    array = Arrays.copyOf(array, length * 2);
+                }
+
+                array[length++] = (int) Generator.nextInteger(source, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            }
+
+            return Arrays.copyOf(array, length);
+        };
+    }
+
+    /// One of `values`, the first ones are simpler
+    @SafeVarargs
+    static <T> Generator<T> elements(T... values) {
+        return Generator.elements(List.of(values));
+    }
+
+    static <T> Generator<T> elements(List<T> values) {
+        return source -> values.get((int) source.nextLong(values.size()));
+    }
+
+    static <T> Generator<T> constant(T value) {
+        return _ -> value;
+    }
+
+    /// A value of one of `generators`, the first ones are simpler
+    @SafeVarargs
+    static <T> Generator<T> oneOf(Generator<? extends T>... generators) {
+        return source -> generators[(int) source.nextLong(generators.length)].generate(source);
+    }
+
+
+    static private long nextInteger(Source source, long min, long max) {
+        return switch ((int) source.nextLong(8)) {
+            case 6 -> source.nextLong(min, max);
+            case 7 -> switch ((int) source.nextLong(5)) {
+                case 0 -> 0;
+                case 1 -> 1;
+                case 2 -> -1;
+                case 3 -> min;
+                default -> max;
+            };
+            default -> source.nextLong(Math.max(min, -source.size()), Math.min(max, source.size()));
+        };
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Source
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Draws of one case, from a seeded SplitMix64 stream while generating and from the draws of an earlier case while
+    /// shrinking; every draw is recorded in a `long[]`, so drawing allocates nothing
+    final class Source
+    {
+        static private final Double[] SPECIAL_DOUBLES = {
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -0.0, Double.MIN_VALUE, Double.MAX_VALUE,
+        };
+
+        /// Upper bound of the draws of one case, a generator drawing forever fails to generate
+        static private final int MAX_DRAWS = 1 << 16;
+
+
+        private long state;
+        private int size;
+        private long[] replay;
+        private long[] draws = new long[64];
+        private int length;
+
+
+        Source() {}
+
+
+        /// Start a case generated from `seed`
+        void reset(long seed, int size) {
+            this.state = seed;
+            this.size = size;
+            this.replay = null;
+            this.length = 0;
+        }
+
+        /// Start a case replaying `draws`, drawing `0` past their end
+        void replay(long[] draws, int size) {
+            this.size = size;
+            this.replay = draws;
+            this.length = 0;
+        }
+
+        /// Draws of the case so far
+        long[] draws() {
+            return Arrays.copyOf(this.draws, this.length);
+        }
+
+
+        /// Size of the case, generators without bounds keep their values and lengths within it
+        public int size() {
+            return this.size;
+        }
+
+        /// Draw in `[0, bound)` for a positive `bound`, or any `long` for a `bound` of `0`, compared unsigned
+        public long nextLong(long bound) {
+            if (this.length == MAX_DRAWS) {
+                throw new IllegalStateException("Generator drew more than %,d times for one case".formatted(MAX_DRAWS));
+            }
+
+            long draw;
+
+            if (this.replay == null) {
+                draw = this.next();
+            }
+            else {
+                draw = this.length < this.replay.length ? this.replay[this.length] : 0;
+            }
+
+            if (bound != 0) {
+                draw = Long.remainderUnsigned(draw, bound);
+            }
+
+            if (this.length == this.draws.length) {
+                this.draws = Arrays.copyOf(this.draws, this.length * 2);
+            }
+
+            this.draws[this.length++] = draw;
+
+            return draw;
+        }
+
+        /// Number in `[min, max]`, smaller draws give numbers closer to `0`: `0, 1, -1, 2, -2, ...`
+        public long nextLong(long min, long max) {
+            if (min > max) {
+                throw new IllegalArgumentException("Empty range [%d, %d]".formatted(min, max));
+            }
+
+            // Width of the range, 0 for the whole range of long
+            var draw = this.nextLong(max - min + 1);
+
+            if (min >= 0) return min + draw;
+            if (max <= 0) return max - draw;
+
+            // Both signs: alternate around 0 while both sides last, then continue on the longer side
+            var negative = -min;
+            var common = Long.compareUnsigned(negative, max) < 0 ? negative : max;
+
+            if (Long.compareUnsigned(draw, 2 * common) <= 0) {
+                return (draw & 1) == 1 ? (draw >>> 1) + 1 : -(draw >>> 1);
+            }
+
+            var beyond = common + (draw - 2 * common);
+
+            return Long.compareUnsigned(max, negative) > 0 ? beyond : -beyond;
+        }
+
+        public int nextInt(int min, int max) {
+            return (int) this.nextLong(min, max);
+        }
+
+        /// Number in `[min, max)` (`min` when empty), integral part first and fraction second, so both shrink
+        public double nextDouble(double min, double max) {
+            if (!(min < max)) {
+                return min;
+            }
+
+            if (Math.ceil(min) > Math.floor(max)) {
+                return min + (max - min) * (this.nextLong(1L << 53) / (double) (1L << 53));
+            }
+
+            var integral = this.nextLong((long) Math.ceil(min), (long) Math.floor(max));
+            var fraction = this.nextLong(1L << 53) / (double) (1L << 53);
+            var value = integral + (integral < 0 ? -fraction : fraction);
+
+            return value < min || value >= max ? Math.max(min, Math.min(integral, Math.nextDown(max))) : value;
+        }
+
+        public boolean nextBoolean() {
+            return this.nextLong(2) == 1;
+        }
+
+        /// Whether a collection of `length` elements gets another one, up to `maxLength`; stopping is the simpler
+        /// draw, so shrinking makes collections shorter
+        public boolean nextElement(int length, int maxLength) {
+            return length < maxLength && this.nextLong(maxLength + 1) != 0;
+        }
+
+
+        /// SplitMix64
+        private long next() {
+            var z = (this.state += 0x9E3779B97F4A7C15L);
+
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.opentest4j.AssertionFailedError;
+import org.opentest4j.TestAbortedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+
+/// Replays the outcome of a test from the previous run when none of its inputs changed
+///
+/// While a test of a `BaseAssignment` runs, every class it resolves through `findClass` or `testClass` is recorded
+/// as a dependency, found or not, and so is every other input it reads: snapshot files, fixture directories of
+/// `withFileSandbox`, database scripts and files provided as standard input. The outcome is stored under a key
+/// hashing the class file of the test class, the class files of those classes and of every class of the submission
+/// they refer to, directly or not (their constant pools, as indexed by `SubmissionIndex`, so helper classes count
+/// too), and the contents of those inputs; a missing class or file hashes as missing. On the next run, a test whose
+/// key is unchanged is not executed: a pass is replayed as a pass, and a failure as a failure with the same message.
+/// A test that reaches a changed, added or removed class or input runs normally, the other tests are still replayed;
+/// a class only reached through reflection from student code is not seen. Aborted tests are never stored, and
+/// entries are kept per submission under `BatchGrader`.
+///
+/// Enabled with `-Dassignment.cache=true`, entries are stored in `target/grading-cache`
+/// (`-Dassignment.cache.directory=<path>`).
+final class GradingCache implements InvocationInterceptor
+{
+    static private final boolean ENABLED = Boolean.getBoolean("assignment.cache");
+    static private final Path DIRECTORY = Path.of(
+        System.getProperty("assignment.cache.directory", "target/grading-cache")
+    );
+
+    static private final String PASSED = "passed";
+    static private final String FAILED = "failed";
+    static private final String MISSING = "missing";
+
+    /// Prefixes of recorded inputs that are not classes
+    static private final String FILE = "file:";
+    static private final String RESOURCE = "resource:";
+
+    /// Dependencies of the test running on this thread (and threads it starts), `null` outside cached tests
+    static private final InheritableThreadLocal<Set<String>> dependencies = new InheritableThreadLocal<>();
+
+    /// Hashes of class files by class name, by the class loader of the submission; class files do not change
+    /// during a run
+    static private final Map<ClassLoader, Map<String, String>> classFileHashes = Collections.synchronizedMap(
+        new WeakHashMap<>()
+    );
+
+
+    /// Record `fullyQualifiedClassName` as a dependency of the running test
+    static void record(String fullyQualifiedClassName) {
+        var recorded = GradingCache.dependencies.get();
+
+        if (recorded != null) {
+            recorded.add(fullyQualifiedClassName);
+        }
+    }
+
+    /// Record `path`, a file or a directory, as an input of the running test
+    static void recordFile(Path path) {
+        GradingCache.record(FILE + path.toAbsolutePath().normalize());
+    }
+
+    /// Record class path resource `name` as an input of the running test
+    static void recordResource(String name) {
+        GradingCache.record(RESOURCE + name);
+    }
+
+
+    @Override
+    public void interceptTestMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext,
+            ExtensionContext extensionContext
+    ) throws Throwable {
+        if (!ENABLED) {
+            invocation.proceed();
+            return;
+        }
+
+        var testClass = extensionContext.getRequiredTestClass();
+        var submission = Utilities.SUBMISSION.isBound() ? Utilities.SUBMISSION.get().getName() : "";
+        var entry = DIRECTORY.resolve(
+            GradingCache.hash(submission + "\n" + extensionContext.getUniqueId()) + ".properties"
+        );
+        var cached = GradingCache.load(entry);
+
+        var unchanged = cached != null
+            && cached.getProperty("key").equals(GradingCache.key(testClass, cached.getProperty("dependencies")));
+
+        if (unchanged) {
+            invocation.skip();
+
+            if (cached.getProperty("outcome").equals(FAILED)) {
+                throw new AssertionFailedError("(Unchanged since the last run) " + cached.getProperty("message"));
+            }
+
+            return;
+        }
+
+        var recorded = new ConcurrentSkipListSet<String>();
+
+        GradingCache.dependencies.set(recorded);
+
+        try {
+            invocation.proceed();
+
+            GradingCache.store(entry, testClass, recorded, PASSED, "");
+        } catch (TestAbortedException e) {
+            throw e;
+        } catch (Throwable e) {
+            var message = e.getMessage() == null ? e.toString() : e.getMessage();
+
+            GradingCache.store(entry, testClass, recorded, FAILED, message);
+
+            throw e;
+        } finally {
+            GradingCache.dependencies.remove();
+        }
+    }
+
+
+    static private Properties load(Path entry) {
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+
+        var properties = new Properties();
+
+        try (var reader = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException _) {
+            // A corrupt entry is a miss
+            return null;
+        }
+
+        var complete = properties.getProperty("key") != null
+            && properties.getProperty("dependencies") != null
+            && properties.getProperty("outcome") != null;
+
+        return complete ? properties : null;
+    }
+
+    static private void store(Path entry, Class<?> testClass, Set<String> recorded, String outcome, String message) {
+        var dependencies = String.join("\n", recorded);
+        var properties = new Properties();
+
+        properties.setProperty("key", GradingCache.key(testClass, dependencies));
+        properties.setProperty("dependencies", dependencies);
+        properties.setProperty("outcome", outcome);
+        properties.setProperty("message", message);
+
+        try {
+            Files.createDirectories(DIRECTORY);
+
+            // Written next to the entry and moved in place, so a concurrent run never reads half an entry
+            var temporary = Files.createTempFile(DIRECTORY, "entry", ".tmp");
+
+            try (var writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /// Hash of the class files of the test class, of the classes among `dependencies` (newline separated) and the
+    /// classes of the submission they reach, and of the other inputs among them
+    static private String key(Class<?> testClass, String dependencies) {
+        var digest = GradingCache.digest();
+        var classLoader = Utilities.SUBMISSION.isBound()
+            ? Utilities.SUBMISSION.get()
+            : Utilities.class.getClassLoader()
+        ;
+        var classes = new TreeSet<String>();
+        var inputs = new TreeSet<String>();
+
+        for (var dependency : dependencies.isEmpty() ? new String[0] : dependencies.split("\n")) {
+            (dependency.startsWith(FILE) || dependency.startsWith(RESOURCE) ? inputs : classes).add(dependency);
+        }
+
+        classes.addAll(SubmissionIndex.current().reachableFrom(classes));
+
+        var testClassHash = GradingCache.classFileHash(testClass.getName(), testClass.getClassLoader());
+
+        digest.update(testClassHash.getBytes(StandardCharsets.UTF_8));
+
+        for (var name : classes) {
+            var classHash = GradingCache.classFileHash(name, classLoader);
+
+            digest.update((name + "=" + classHash).getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (var input : inputs) {
+            var inputHash = input.startsWith(FILE)
+                ? GradingCache.fileHash(Path.of(input.substring(FILE.length())))
+                : GradingCache.resourceHash(input.substring(RESOURCE.length()));
+
+            digest.update((input + "=" + inputHash).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static private String classFileHash(String fullyQualifiedClassName, ClassLoader classLoader) {
+        var hashes = GradingCache.classFileHashes.computeIfAbsent(classLoader, _ -> new ConcurrentHashMap<>());
+
+        return hashes.computeIfAbsent(fullyQualifiedClassName, _ -> {
+            var resource = fullyQualifiedClassName.replace('.', '/') + ".class";
+
+            try (InputStream stream = classLoader.getResourceAsStream(resource)) {
+                return stream == null ? MISSING : GradingCache.contentHash(stream.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /// Hash of the contents of a file, or of the names and contents of every file below a directory
+    static private String fileHash(Path path) {
+        if (!Files.exists(path)) {
+            return MISSING;
+        }
+
+        var digest = GradingCache.digest();
+
+        try (var files = Files.walk(path)) {
+            for (var file : files.filter(Files::isRegularFile).sorted().toList()) {
+                digest.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static private String resourceHash(String name) {
+        try (var stream = GradingCache.class.getClassLoader().getResourceAsStream(name)) {
+            return stream == null ? MISSING : GradingCache.contentHash(stream.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static private String contentHash(byte[] bytes) {
+        return HexFormat.of().formatHex(GradingCache.digest().digest(bytes));
+    }
+
+    static private String hash(String value) {
+        var digest = GradingCache.digest().digest(value.getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(Arrays.copyOf(digest, 16));
+    }
+
+    static private MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
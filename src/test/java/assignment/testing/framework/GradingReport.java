@@ -0,0 +1,270 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.opentest4j.AssertionFailedError;
+import org.opentest4j.TestAbortedException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.ScopedValue.where;
+
+
+/// Streams a newline-delimited JSON record for every test, and every `provideHintIfAssertionFails` block, as it
+/// completes
+///
+/// Enabled with `-Dassignment.report=<file>`. Each record is appended to the file with a single write as soon as it
+/// is complete, so the report is never held in memory, and forked workers of a batch can append to the same file.
+/// The file is appended to, not replaced, delete it (or `mvn clean`) before a run.
+///
+/// ```
+/// {"type":"assertion","student":null,"class":"TestAssignment","task":"Task 1","status":"failed","hint":"...",
+///     "message":"...","expected":"...","actual":"...","durationNanos":1250}
+/// {"type":"test","student":null,"class":"TestAssignment","task":"Task 1","status":"failed","hint":"...",
+///     "message":"...","expected":"...","actual":"...","durationNanos":81250,"lookupNanos":40100,
+///     "studentNanos":21900,"comparisonNanos":3050}
+/// ```
+///
+/// The time of a test is split into the phases of `Phase`, each measured exclusively: student code run within an
+/// output comparison (`assertStandardOutputEquals(expected, () -> { ... })`) counts as student code only. Whatever
+/// is left of `durationNanos` was spent in the test itself and in JUnit.
+final class GradingReport implements InvocationInterceptor
+{
+    static private final String FILE = System.getProperty("assignment.report");
+
+    /// Test running on this thread, bound around each test method of a `BaseAssignment` while reporting
+    static final ScopedValue<Test> CURRENT = ScopedValue.newInstance();
+
+    /// Innermost phase being timed, bound around the timed code and carried to the threads it starts by
+    /// `Utilities.inheritContext`
+    static final ScopedValue<Span> ACTIVE = ScopedValue.newInstance();
+
+
+    enum Phase
+    {
+        /// Finding classes, methods and constructors of the submission
+        LOOKUP,
+        /// Running student code
+        STUDENT,
+        /// Comparing captured output against the expected output
+        COMPARISON,
+    }
+
+
+    /// Running test and the time spent in each phase so far, on any thread
+    static final class Test
+    {
+        private final ExtensionContext context;
+        private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+
+        /// Hint of the `provideHintIfAssertionFails` block that failed last
+        private volatile String hint;
+
+
+        private Test(ExtensionContext context) {
+            this.context = context;
+
+            for (var i = 0; i < this.nanos.length; i++) {
+                this.nanos[i] = new LongAdder();
+            }
+        }
+    }
+
+
+    /// Time spent in a phase on the thread that started it; the enclosing span of the same thread is paused until
+    /// this one ends, a span inherited from another thread keeps running there
+    static final class Span
+    {
+        private final Test test;
+        private final Phase phase;
+        private final Span enclosing;
+        private final Thread thread = Thread.currentThread();
+        private long start;
+
+
+        private Span(Test test, Phase phase, Span enclosing) {
+            this.test = test;
+            this.phase = phase;
+            this.enclosing = enclosing != null && enclosing.thread == this.thread ? enclosing : null;
+            this.start = System.nanoTime();
+
+            if (this.enclosing != null) {
+                this.enclosing.add(this.start);
+            }
+        }
+
+
+        private void add(long now) {
+            this.test.nanos[this.phase.ordinal()].add(now - this.start);
+        }
+
+        private void end() {
+            var now = System.nanoTime();
+
+            this.add(now);
+
+            if (this.enclosing != null) {
+                this.enclosing.start = now;
+            }
+        }
+    }
+
+
+    /// Run `fn`, timed as `phase` of the running test; only runs it while not reporting
+    static <T, X extends Throwable> T time(Phase phase, ScopedValue.CallableOp<T, X> fn) throws X {
+        if (!CURRENT.isBound()) {
+            return fn.call();
+        }
+
+        var span = new Span(CURRENT.get(), phase, ACTIVE.isBound() ? ACTIVE.get() : null);
+
+        try {
+            return where(ACTIVE, span).call(fn);
+        } finally {
+            span.end();
+        }
+    }
+
+    static void time(Phase phase, Runnable fn) {
+        GradingReport.time(phase, () -> {
+            fn.run();
+            return null;
+        });
+    }
+
+
+    @Override
+    public void interceptTestMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext,
+            ExtensionContext extensionContext
+    ) throws Throwable {
+        if (FILE == null) {
+            invocation.proceed();
+            return;
+        }
+
+        var test = new Test(extensionContext);
+        var start = System.nanoTime();
+        Throwable failure = null;
+
+        try {
+            where(CURRENT, test).call(() -> {
+                invocation.proceed();
+                return null;
+            });
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            var record = GradingReport.record("test", test.context, test.hint, failure, System.nanoTime() - start);
+
+            for (var phase : Phase.values()) {
+                record.append(",\"").append(phase.name().toLowerCase()).append("Nanos\":")
+                    .append(test.nanos[phase.ordinal()].sum());
+            }
+
+            GradingReport.write(record.append('}'));
+        }
+    }
+
+
+    /// Record the outcome of a `provideHintIfAssertionFails` block of the running test
+    static void assertion(String hint, AssertionFailedError failure, long nanos) {
+        if (!CURRENT.isBound()) {
+            return;
+        }
+
+        var test = CURRENT.get();
+
+        if (failure != null) {
+            test.hint = hint.stripIndent();
+        }
+
+        var record = GradingReport.record("assertion", test.context, hint.stripIndent(), failure, nanos);
+
+        GradingReport.write(record.append('}'));
+    }
+
+
+    static private StringBuilder record(
+            String type,
+            ExtensionContext context,
+            String hint, Throwable failure,
+            long nanos
+    ) {
+        var status = failure == null ? "passed" : failure instanceof TestAbortedException ? "aborted" : "failed";
+        var message = failure == null ? null : String.valueOf(failure.getMessage());
+        var expected = failure instanceof AssertionFailedError e && e.isExpectedDefined()
+            ? e.getExpected().getStringRepresentation()
+            : null;
+        var actual = failure instanceof AssertionFailedError e && e.isActualDefined()
+            ? e.getActual().getStringRepresentation()
+            : null;
+        var student = Utilities.SUBMISSION.isBound() ? Utilities.SUBMISSION.get().getName() : null;
+        var testClass = context.getParent().map(ExtensionContext::getDisplayName).orElse(null);
+
+        return new StringBuilder(256)
+            .append("{\"type\":").append(BatchGrader.quote(type))
+            .append(",\"student\":").append(BatchGrader.quote(student))
+            .append(",\"class\":").append(BatchGrader.quote(testClass))
+            .append(",\"task\":").append(BatchGrader.quote(context.getDisplayName()))
+            .append(",\"status\":").append(BatchGrader.quote(status))
+            .append(",\"hint\":").append(BatchGrader.quote(hint))
+            .append(",\"message\":").append(BatchGrader.quote(message))
+            .append(",\"expected\":").append(BatchGrader.quote(expected))
+            .append(",\"actual\":").append(BatchGrader.quote(actual))
+            .append(",\"durationNanos\":").append(nanos);
+    }
+
+    static private void write(CharSequence record) {
+        var bytes = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+        var channel = Sink.CHANNEL;
+
+        try {
+            // One write per record, appended as a whole even with several processes writing to the file
+            synchronized (channel) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /// Report file, opened on the first record
+    static private final class Sink
+    {
+        static final FileChannel CHANNEL = Sink.open();
+
+        static private FileChannel open() {
+            var file = Path.of(FILE);
+
+            try {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+
+                return FileChannel.open(
+                    file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
+                );
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/// Standard input of one test, read lazily from its source and handed out at most one line per read
+///
+/// Reads never cross a line end and `available` is `0` at every line end, so a `Scanner` or `BufferedReader` on
+/// `System.in` takes no more input than the program asked for. That makes "all input consumed" meaningful, and
+/// lets each line be placed in the transcript at the position in the captured output where the program first
+/// read it, the same place a terminal would have echoed it.
+///
+/// Files and generated lines are pulled from their source as the program reads them, only a buffer of
+/// `BUFFER_SIZE` bytes and the first `TRANSCRIPT_LINES` lines (for the transcript) are held in memory.
+final class InputFeed extends InputStream
+{
+    static private final int BUFFER_SIZE = 8192;
+    static private final int TRANSCRIPT_LINES = 10_000;
+
+    /// Input line and the size of the captured output when the program started reading it
+    record Entry(int position, String line) {}
+
+
+    private final InputStream source;
+    private final CaptureBuffer capture;
+    private final Charset charset = Charset.defaultCharset();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean ended;
+    private volatile boolean closed;
+
+    private final List<Entry> transcript = new ArrayList<>();
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private int linePosition = -1;
+    private long lines;
+
+
+    private InputFeed(InputStream source, CaptureBuffer capture) {
+        this.source = source;
+        this.capture = capture;
+    }
+
+
+    static InputFeed of(String input, CaptureBuffer capture) {
+        return new InputFeed(new ByteArrayInputStream(input.getBytes(Charset.defaultCharset())), capture);
+    }
+
+    static InputFeed of(Stream<String> lines, CaptureBuffer capture) {
+        return new InputFeed(InputFeed.linesOf(lines.iterator(), lines), capture);
+    }
+
+    static InputFeed of(Path file, CaptureBuffer capture) {
+        try {
+            return new InputFeed(Files.newInputStream(file), capture);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (!this.fill()) {
+            return -1;
+        }
+
+        var b = this.buffer[this.position++];
+
+        this.consumed(this.position - 1, 1);
+
+        return b & 0xFF;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!this.fill()) {
+            return -1;
+        }
+
+        var end = this.position;
+
+        while (end < this.limit && end - this.position < len && this.buffer[end++] != '\n') {
+            // Up to and including the line end, at most `len` bytes
+        }
+
+        var length = end - this.position;
+
+        System.arraycopy(this.buffer, this.position, b, off, length);
+        this.position = end;
+        this.consumed(end - length, length);
+
+        return length;
+    }
+
+    /// Bytes left of the current line in the buffer, `0` at a line end so readers do not read ahead
+    @Override
+    public synchronized int available() {
+        if (this.linePosition < 0) {
+            return 0;
+        }
+
+        var end = this.position;
+
+        while (end < this.limit && this.buffer[end++] != '\n') {
+            // Up to and including the line end
+        }
+
+        return end - this.position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        this.source.close();
+    }
+
+    /// The test providing this input is over, threads that inherited it no longer read from it
+    boolean isClosed() {
+        return this.closed;
+    }
+
+
+    /// Every byte of the input was read by the program
+    synchronized boolean exhausted() {
+        try {
+            return !this.fill();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /// Number of lines the program started reading
+    synchronized long linesRead() {
+        return this.lines;
+    }
+
+    /// Captured output with every input line read so far inserted where the program read it
+    synchronized String transcript() {
+        if (this.capture == null) {
+            return this.entries().stream().map(Entry::line).collect(Collectors.joining());
+        }
+
+        var text = new StringBuilder();
+        var from = 0;
+
+        for (var entry : this.entries()) {
+            text.append(this.capture.toString(from, entry.position())).append(entry.line());
+            from = Math.max(from, entry.position());
+        }
+
+        return text.append(this.capture.toString(from, this.capture.size())).toString();
+    }
+
+    private List<Entry> entries() {
+        var entries = new ArrayList<>(this.transcript);
+
+        if (this.linePosition >= 0) {
+            entries.add(new Entry(this.linePosition, this.line.toString(this.charset)));
+        }
+
+        return entries;
+    }
+
+
+    private boolean fill() throws IOException {
+        if (this.position < this.limit) {
+            return true;
+        }
+
+        while (!this.ended) {
+            var n = this.source.read(this.buffer, 0, this.buffer.length);
+
+            if (n < 0) {
+                this.ended = true;
+            }
+            else if (n > 0) {
+                this.position = 0;
+                this.limit = n;
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /// Record `length` bytes at `from` in the buffer as read by the program
+    private void consumed(int from, int length) {
+        if (this.linePosition < 0) {
+            this.lines++;
+            this.linePosition = this.capture == null ? 0 : this.capture.size();
+        }
+
+        if (this.lines <= TRANSCRIPT_LINES) {
+            this.line.write(this.buffer, from, length);
+        }
+
+        if (this.buffer[from + length - 1] == '\n') {
+            if (this.lines <= TRANSCRIPT_LINES) {
+                this.transcript.add(new Entry(this.linePosition, this.line.toString(this.charset)));
+            }
+
+            this.line.reset();
+            this.linePosition = -1;
+        }
+    }
+
+
+    /// Lines from `lines`, each ended with `\n`, encoded only once the previous one has been read
+    static private InputStream linesOf(Iterator<String> lines, AutoCloseable resource) {
+        var charset = Charset.defaultCharset();
+
+        return new InputStream() {
+            private byte[] current = new byte[0];
+            private int position;
+
+            @Override
+            public int read() {
+                return this.advance() ? this.current[this.position++] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+
+                if (!this.advance()) {
+                    return -1;
+                }
+
+                var length = Math.min(len, this.current.length - this.position);
+
+                System.arraycopy(this.current, this.position, b, off, length);
+                this.position += length;
+
+                return length;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    resource.close();
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+
+            private boolean advance() {
+                while (this.position == this.current.length) {
+                    if (!lines.hasNext()) {
+                        return false;
+                    }
+
+                    this.current = (lines.next() + "\n").getBytes(charset);
+                    this.position = 0;
+                }
+
+                return true;
+            }
+        };
+    }
+}
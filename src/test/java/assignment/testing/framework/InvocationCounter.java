@@ -0,0 +1,121 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/// Entry counters of the methods of classes loaded by a `CountingClassLoader`
+///
+/// Every instrumented method starts with a call to `enter` with its id, registered when its class was rewritten.
+/// Calls are counted in the `Counts` of the `withInvocationCounting` scope running them, in a striped `LongAdder` per
+/// method so recursive code on several threads does not contend; outside of a scope `enter` only checks the scope.
+/// Classes loaded by other loaders are not rewritten, and pay nothing.
+///
+/// Public only so rewritten classes in other packages can call it, not part of the API of the framework.
+public final class InvocationCounter
+{
+    /// Counts of the `withInvocationCounting` scope running on this thread
+    static final ScopedValue<Counts> CURRENT = ScopedValue.newInstance();
+
+    /// Method ids by `owner.name(descriptor)`, owner as a binary name
+    static private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    /// Method ids by `owner.name`, every overload
+    static private final Map<String, List<Integer>> overloads = new ConcurrentHashMap<>();
+    static private final AtomicInteger nextId = new AtomicInteger();
+
+
+    /// Counts of one scope, by method id
+    static final class Counts
+    {
+        private volatile LongAdder[] adders = new LongAdder[64];
+
+
+        void increment(int id) {
+            var adders = this.adders;
+            var adder = id < adders.length ? adders[id] : null;
+
+            (adder == null ? this.adder(id) : adder).increment();
+        }
+
+        long get(int id) {
+            var adders = this.adders;
+
+            return id < adders.length && adders[id] != null ? adders[id].sum() : 0;
+        }
+
+        synchronized void reset() {
+            this.adders = new LongAdder[this.adders.length];
+        }
+
+        /// Adder of `id`, created by replacing the array so readers never see one half constructed
+        synchronized private LongAdder adder(int id) {
+            var adders = this.adders;
+
+            if (id < adders.length && adders[id] != null) {
+                return adders[id];
+            }
+
+            var copy = Arrays.copyOf(adders, Math.max(adders.length, Integer.highestOneBit(id) * 2));
+
+            copy[id] = new LongAdder();
+            this.adders = copy;
+
+            return copy[id];
+        }
+    }
+
+
+    /// Id of a method, the same for the same method of every class loaded under that name
+    static int register(String owner, String name, String descriptor) {
+        return InvocationCounter.ids.computeIfAbsent(owner + "." + name + descriptor, _ -> {
+            var id = InvocationCounter.nextId.getAndIncrement();
+
+            InvocationCounter.overloads.merge(owner + "." + name, List.of(id), (existing, added) -> {
+                var merged = new ArrayList<>(existing);
+
+                merged.addAll(added);
+
+                return List.copyOf(merged);
+            });
+
+            return id;
+        });
+    }
+
+
+    /// Called on entry of every instrumented method
+    static public void enter(int id) {
+        if (CURRENT.isBound()) {
+            CURRENT.get().increment(id);
+        }
+    }
+
+
+    /// Calls of `name(descriptor)` of `owner` in `counts`
+    static long count(Counts counts, String owner, String name, String descriptor) {
+        var id = InvocationCounter.ids.get(owner + "." + name + descriptor);
+
+        return id == null ? 0 : counts.get(id);
+    }
+
+    /// Calls of every overload of `name` of `owner` in `counts`
+    static long count(Counts counts, String owner, String name) {
+        var total = 0L;
+
+        for (var id : InvocationCounter.overloads.getOrDefault(owner + "." + name, List.of())) {
+            total += counts.get(id);
+        }
+
+        return total;
+    }
+
+
+    private InvocationCounter() {}
+}
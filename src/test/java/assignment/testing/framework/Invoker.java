@@ -0,0 +1,298 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/// Resolves the constructor or method that best applies to a list of argument values, and caches it as a
+/// `MethodHandle` of type `(Object, Object[])Object` per class, name and argument classes
+///
+/// A candidate applies when every argument converts to its parameter by subtyping, unboxing, primitive widening
+/// (JLS 5.1.2) or by being collected into a variable arity parameter. Arguments arrive boxed, so a boxed value is an
+/// exact match for its primitive type. The candidate with the cheapest conversions wins, ties are broken by the most
+/// specific parameter types, a box being more specific than its primitive (`m(Integer)` over `m(int)`).
+final class Invoker
+{
+    static private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    static private final ClassValue<Map<MemberIndex.Signature, MethodHandle>> handles = new ClassValue<>() {
+        @Override
+        protected Map<MemberIndex.Signature, MethodHandle> computeValue(Class<?> classObject) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /// Handles of methods invoked as themselves, by their declaring class so unloading a submission drops them
+    static private final ClassValue<Map<Method, MethodHandle>> methodHandles = new ClassValue<>() {
+        @Override
+        protected Map<Method, MethodHandle> computeValue(Class<?> classObject) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    static private final int EXACT = 0;
+    static private final int SUBTYPE = 1;
+    static private final int WIDENING = 2;
+    static private final int VARIABLE_ARITY = 8;
+    static private final int NOT_APPLICABLE = -1;
+
+
+    /// Handle creating an instance of `classObject`, the receiver argument is ignored; `null` when no public
+    /// constructor applies to the arguments
+    static MethodHandle constructor(Class<?> classObject, Object[] arguments) {
+        return Invoker.handle(classObject, MemberIndex.Signature.constructor(Invoker.argumentTypes(arguments)));
+    }
+
+    /// Handle invoking `methodName` on the receiver argument (ignored for static methods); `null` when no public
+    /// method applies to the arguments
+    static MethodHandle method(Class<?> classObject, String methodName, Object[] arguments) {
+        return Invoker.handle(classObject, new MemberIndex.Signature(methodName, Invoker.argumentTypes(arguments)));
+    }
+
+    /// Whether the method `method(classObject, methodName, arguments)` invokes is static
+    static boolean isStatic(Class<?> classObject, String methodName, Object[] arguments) {
+        var method = Invoker.select(MemberIndex.of(classObject).methods(methodName), Invoker.argumentTypes(arguments));
+
+        return method != null && Modifier.isStatic(method.getModifiers());
+    }
+
+    /// Handle invoking `method` itself, with arguments of its exact parameter types (boxed for primitives)
+    static MethodHandle method(Method method) {
+        return Invoker.methodHandles.get(method.getDeclaringClass()).computeIfAbsent(
+            method, _ -> Invoker.adapt(method, method.getParameterTypes())
+        );
+    }
+
+    static private MethodHandle handle(Class<?> classObject, MemberIndex.Signature signature) {
+        return GradingReport.time(GradingReport.Phase.LOOKUP, () -> Invoker.lookup(classObject, signature));
+    }
+
+    static private MethodHandle lookup(Class<?> classObject, MemberIndex.Signature signature) {
+        var start = Metrics.start();
+        var cache = Invoker.handles.get(classObject);
+        var handle = cache.get(signature);
+
+        if (handle == null) {
+            var index = MemberIndex.of(classObject);
+            var executable = signature.name().equals("<init>")
+                ? Invoker.select(index.constructors(), signature.parameterTypes())
+                : Invoker.select(index.methods(signature.name()), signature.parameterTypes())
+            ;
+
+            if (executable == null) {
+                return null;
+            }
+
+            handle = Invoker.adapt(executable, signature.parameterTypes());
+
+            cache.putIfAbsent(signature, handle);
+            Metrics.record(Metrics.Operation.MEMBER_LOOKUP_MISS, start);
+        }
+        else {
+            Metrics.record(Metrics.Operation.MEMBER_LOOKUP_HIT, start);
+        }
+
+        return handle;
+    }
+
+
+    static private Class<?>[] argumentTypes(Object[] arguments) {
+        var argumentTypes = new Class<?>[arguments.length];
+
+        for (var i = 0; i < arguments.length; i++) {
+            // null is applicable to any reference type
+            argumentTypes[i] = arguments[i] == null ? null : arguments[i].getClass();
+        }
+
+        return argumentTypes;
+    }
+
+
+    static private <E extends Executable> E select(Collection<E> candidates, Class<?>[] argumentTypes) {
+        E best = null;
+        var bestCost = Integer.MAX_VALUE;
+
+        for (var candidate : candidates) {
+            var cost = Invoker.cost(candidate, argumentTypes);
+
+            if (cost == NOT_APPLICABLE) {
+                continue;
+            }
+
+            if (cost < bestCost || (cost == bestCost && Invoker.isMoreSpecific(candidate, best))) {
+                best = candidate;
+                bestCost = cost;
+            }
+        }
+
+        return best;
+    }
+
+    static private int cost(Executable executable, Class<?>[] argumentTypes) {
+        var parameterTypes = executable.getParameterTypes();
+
+        if (parameterTypes.length == argumentTypes.length) {
+            var cost = Invoker.cost(parameterTypes, argumentTypes, parameterTypes.length);
+
+            if (cost != NOT_APPLICABLE) {
+                return cost;
+            }
+        }
+
+        if (!executable.isVarArgs() || argumentTypes.length < parameterTypes.length - 1) {
+            return NOT_APPLICABLE;
+        }
+
+        var fixed = parameterTypes.length - 1;
+        var cost = Invoker.cost(parameterTypes, argumentTypes, fixed);
+
+        if (cost == NOT_APPLICABLE) {
+            return NOT_APPLICABLE;
+        }
+
+        var componentType = parameterTypes[fixed].getComponentType();
+
+        for (var i = fixed; i < argumentTypes.length; i++) {
+            var conversion = Invoker.conversion(argumentTypes[i], componentType);
+
+            if (conversion == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+
+            cost += conversion;
+        }
+
+        return cost + VARIABLE_ARITY;
+    }
+
+    static private int cost(Class<?>[] parameterTypes, Class<?>[] argumentTypes, int count) {
+        var cost = 0;
+
+        for (var i = 0; i < count; i++) {
+            var conversion = Invoker.conversion(argumentTypes[i], parameterTypes[i]);
+
+            if (conversion == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+
+            cost += conversion;
+        }
+
+        return cost;
+    }
+
+    static private int conversion(Class<?> argumentType, Class<?> parameterType) {
+        if (argumentType == null) {
+            return parameterType.isPrimitive() ? NOT_APPLICABLE : SUBTYPE;
+        }
+
+        if (argumentType == parameterType) {
+            return EXACT;
+        }
+
+        if (parameterType.isPrimitive()) {
+            var primitiveType = MethodType.methodType(argumentType).unwrap().returnType();
+
+            if (primitiveType == parameterType) {
+                return EXACT;
+            }
+
+            return primitiveType.isPrimitive() && Invoker.isWidening(primitiveType, parameterType)
+                ? WIDENING
+                : NOT_APPLICABLE
+            ;
+        }
+
+        return parameterType.isAssignableFrom(argumentType) ? SUBTYPE : NOT_APPLICABLE;
+    }
+
+    /// Primitive widening conversions, JLS 5.1.2
+    static private boolean isWidening(Class<?> from, Class<?> to) {
+        if (from == byte.class) {
+            return to == short.class || to == int.class || to == long.class || to == float.class || to == double.class;
+        }
+        if (from == short.class || from == char.class) {
+            return to == int.class || to == long.class || to == float.class || to == double.class;
+        }
+        if (from == int.class) {
+            return to == long.class || to == float.class || to == double.class;
+        }
+        if (from == long.class) {
+            return to == float.class || to == double.class;
+        }
+        if (from == float.class) {
+            return to == double.class;
+        }
+
+        return false;
+    }
+
+    /// Whether every parameter of `candidate` is at least as specific as that of `other`; a box counts as more specific
+    /// than its primitive, as the arguments arrive boxed and javac's first phase picks `m(Integer)` over `m(int)` for
+    /// an `Integer` without unboxing it
+    static private boolean isMoreSpecific(Executable candidate, Executable other) {
+        var candidateTypes = candidate.getParameterTypes();
+        var otherTypes = other.getParameterTypes();
+
+        if (candidateTypes.length != otherTypes.length) {
+            return candidateTypes.length > otherTypes.length;
+        }
+
+        for (var i = 0; i < candidateTypes.length; i++) {
+            var candidateType = candidateTypes[i];
+            var otherType = otherTypes[i];
+            var isBox = otherType.isPrimitive()
+                && MethodType.methodType(candidateType).unwrap().returnType() == otherType;
+
+            if (!otherType.isAssignableFrom(candidateType) && !Invoker.isWidening(candidateType, otherType) && !isBox) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /// Adapt to `(Object receiver, Object[] arguments)Object`, with unboxing, widening and casts applied by `asType`
+    static private MethodHandle adapt(Executable executable, Class<?>[] argumentTypes) {
+        executable.trySetAccessible();
+
+        try {
+            var handle = executable instanceof Method method
+                ? Invoker.lookup.unreflect(method).asFixedArity()
+                : Invoker.lookup.unreflectConstructor((Constructor<?>) executable).asFixedArity()
+            ;
+
+            var parameterTypes = executable.getParameterTypes();
+            var isFixedArity = parameterTypes.length == argumentTypes.length
+                && Invoker.cost(parameterTypes, argumentTypes, parameterTypes.length) != NOT_APPLICABLE;
+
+            if (!isFixedArity) {
+                var variableArityType = parameterTypes[parameterTypes.length - 1];
+
+                handle = handle.asCollector(variableArityType, argumentTypes.length - parameterTypes.length + 1);
+            }
+
+            if (!(executable instanceof Method method) || Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+
+            return handle
+                .asType(MethodType.genericMethodType(argumentTypes.length + 1))
+                .asSpreader(Object[].class, argumentTypes.length)
+            ;
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
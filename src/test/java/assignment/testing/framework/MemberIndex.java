@@ -0,0 +1,169 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/// Members of a single class, indexed once by name and parameter types
+///
+/// Mirrors the lookup rules of `Class#getMethod`, `Class#getDeclaredMethod`, `Class#getField`,
+/// `Class#getDeclaredField`, `Class#getConstructor` and `Class#getDeclaredConstructor`, but answers a miss with
+/// `null` instead of throwing, so looking up a member that does not exist (yet) costs the same as finding one.
+final class MemberIndex
+{
+    static private final ClassValue<MemberIndex> indexes = new ClassValue<>() {
+        @Override
+        protected MemberIndex computeValue(Class<?> classObject) {
+            return new MemberIndex(classObject);
+        }
+    };
+
+    static MemberIndex of(Class<?> classObject) {
+        return MemberIndex.indexes.get(classObject);
+    }
+
+
+    /// Name and parameter types of a method or constructor (constructors are named `<init>`)
+    record Signature(String name, Class<?>[] parameterTypes)
+    {
+        static private final String CONSTRUCTOR = "<init>";
+
+        static Signature constructor(Class<?>[] parameterTypes) {
+            return new Signature(Signature.CONSTRUCTOR, parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Signature signature
+                && this.name.equals(signature.name)
+                && Arrays.equals(this.parameterTypes, signature.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.name.hashCode() + Arrays.hashCode(this.parameterTypes);
+        }
+    }
+
+
+    private final Map<Signature, Method> methods = new HashMap<>();
+    private final Map<Signature, Method> declaredMethods = new HashMap<>();
+    private final Map<String, Field> fields = new HashMap<>();
+    private final Map<String, Field> declaredFields = new HashMap<>();
+    private final Map<Signature, Constructor<?>> constructors = new HashMap<>();
+    private final Map<Signature, Constructor<?>> declaredConstructors = new HashMap<>();
+    private final Map<String, List<Method>> overloads = new HashMap<>();
+
+
+    private MemberIndex(Class<?> classObject) {
+        for (var method : classObject.getMethods()) {
+            MemberIndex.putMostSpecific(this.methods, method);
+        }
+
+        for (var method : this.methods.values()) {
+            this.overloads.computeIfAbsent(method.getName(), _ -> new ArrayList<>()).add(method);
+        }
+
+        for (var method : classObject.getDeclaredMethods()) {
+            MemberIndex.putMostSpecific(this.declaredMethods, method);
+        }
+
+        MemberIndex.collectPublicFields(classObject, this.fields);
+
+        for (var field : classObject.getDeclaredFields()) {
+            this.declaredFields.put(field.getName(), field);
+        }
+
+        for (var constructor : classObject.getDeclaredConstructors()) {
+            var signature = Signature.constructor(constructor.getParameterTypes());
+
+            this.declaredConstructors.put(signature, constructor);
+
+            if (Modifier.isPublic(constructor.getModifiers())) {
+                this.constructors.put(signature, constructor);
+            }
+        }
+    }
+
+
+    /// Public method, declared or inherited, `null` when there is none
+    Method method(String name, Class<?>... parameterTypes) {
+        return this.methods.get(new Signature(name, parameterTypes));
+    }
+
+    /// Method declared by the class itself, `null` when there is none
+    Method declaredMethod(String name, Class<?>... parameterTypes) {
+        return this.declaredMethods.get(new Signature(name, parameterTypes));
+    }
+
+    /// Public field, declared or inherited, `null` when there is none
+    Field field(String name) {
+        return this.fields.get(name);
+    }
+
+    /// Field declared by the class itself, `null` when there is none
+    Field declaredField(String name) {
+        return this.declaredFields.get(name);
+    }
+
+    /// Public constructor, `null` when there is none
+    Constructor<?> constructor(Class<?>... parameterTypes) {
+        return this.constructors.get(Signature.constructor(parameterTypes));
+    }
+
+    /// Constructor declared by the class, `null` when there is none
+    Constructor<?> declaredConstructor(Class<?>... parameterTypes) {
+        return this.declaredConstructors.get(Signature.constructor(parameterTypes));
+    }
+
+
+    /// Public methods, declared or inherited, with the given name
+    List<Method> methods(String name) {
+        return this.overloads.getOrDefault(name, List.of());
+    }
+
+    /// Public constructors
+    Collection<Constructor<?>> constructors() {
+        return this.constructors.values();
+    }
+
+
+    /// Like `Class#getMethod`, prefer the method with the most specific return type (skips e.g. bridge methods)
+    static private void putMostSpecific(Map<Signature, Method> methods, Method method) {
+        methods.merge(
+            new Signature(method.getName(), method.getParameterTypes()),
+            method,
+            (existing, candidate) -> existing.getReturnType().isAssignableFrom(candidate.getReturnType())
+                && existing.getReturnType() != candidate.getReturnType()
+                    ? candidate
+                    : existing
+        );
+    }
+
+    /// Same search order as `Class#getField`: own fields, then superinterfaces, then the superclass
+    static private void collectPublicFields(Class<?> classObject, Map<String, Field> fields) {
+        for (var field : classObject.getDeclaredFields()) {
+            if (Modifier.isPublic(field.getModifiers())) {
+                fields.putIfAbsent(field.getName(), field);
+            }
+        }
+
+        for (var superInterface : classObject.getInterfaces()) {
+            MemberIndex.collectPublicFields(superInterface, fields);
+        }
+
+        if (classObject.getSuperclass() != null) {
+            MemberIndex.collectPublicFields(classObject.getSuperclass(), fields);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/// Bytes allocated by calls into student code, and the estimated retained size of object graphs
+///
+/// While `ALLOCATED` is bound, every call through `classCreateInstance` and `classInstanceInvokeMethod` adds the bytes
+/// allocated by the thread running it (`com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes`) to it. Only
+/// the call itself is measured, so neither the test code around it, nor the framework resolving the call, count.
+///
+/// Retained sizes assume the usual 64-bit HotSpot layout: 12 byte object headers, 4 byte (compressed) references and
+/// 8 byte alignment. Fields are read with `VarHandle`s, resolved once per class; the fields of JDK classes are not
+/// accessible, so collections, maps and strings are estimated from their contents instead.
+final class MemoryMeter
+{
+    static private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static final ScopedValue<AtomicLong> ALLOCATED = ScopedValue.newInstance();
+
+    static private final int HEADER = 12;
+    static private final int ARRAY_HEADER = 16;
+    static private final int REFERENCE = 4;
+    static private final int ALIGNMENT = 8;
+    static private final int MAP_ENTRY = 32;
+
+    static private final ClassValue<Layout> layouts = new ClassValue<>() {
+        @Override
+        protected Layout computeValue(Class<?> classObject) {
+            return Layout.of(classObject);
+        }
+    };
+
+
+    static {
+        // Link the invokeExact call site up front, so linking it is not counted as allocated by the first call
+        var nothing = MethodHandles.constant(Object.class, null);
+
+        try {
+            MemoryMeter.invoke(MethodHandles.dropArguments(nothing, 0, Object.class, Object[].class), null, new Object[0]);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+
+    /// Shallow size of instances of a class, handles reading its accessible reference fields, and whether some are
+    /// not accessible (fields of JDK classes), whose contents are then estimated
+    private record Layout(long shallowSize, List<VarHandle> references, boolean isPartial)
+    {
+        static Layout of(Class<?> classObject) {
+            var size = (long) HEADER;
+            var references = new ArrayList<VarHandle>();
+            var isPartial = false;
+
+            for (var type = classObject; type != null; type = type.getSuperclass()) {
+                for (var field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+
+                    size += MemoryMeter.sizeOf(field.getType());
+
+                    if (field.getType().isPrimitive()) {
+                        continue;
+                    }
+
+                    try {
+                        references.add(
+                            MethodHandles.privateLookupIn(type, MethodHandles.lookup()).unreflectVarHandle(field)
+                        );
+                    } catch (IllegalAccessException | InaccessibleObjectException _) {
+                        isPartial = true;
+                    }
+                }
+            }
+
+            return new Layout(MemoryMeter.align(size), List.copyOf(references), isPartial);
+        }
+    }
+
+
+    static boolean isMeasuring() {
+        return ALLOCATED.isBound();
+    }
+
+    /// Invoke `handle`, adding the bytes allocated while it runs to `ALLOCATED`
+    static Object invoke(MethodHandle handle, Object instance, Object[] parameterValues) throws Exception {
+        var before = MemoryMeter.threads.getCurrentThreadAllocatedBytes();
+
+        try {
+            return (Object) handle.invokeExact(instance, parameterValues);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        } finally {
+            var allocated = MemoryMeter.threads.getCurrentThreadAllocatedBytes() - before;
+
+            if (ALLOCATED.isBound()) {
+                ALLOCATED.get().addAndGet(allocated);
+            }
+        }
+    }
+
+
+    /// Estimated bytes reachable from `root`, `root` included; class objects and enum constants are shared, and
+    /// not counted
+    static long retainedSize(Object root) {
+        var visited = new IdentityHashMap<Object, Boolean>();
+        var pending = new ArrayDeque<Object>();
+        var size = 0L;
+
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var object = pending.pop();
+
+            if (object instanceof Class<?> || object instanceof Enum<?> || visited.put(object, true) != null) {
+                continue;
+            }
+
+            var classObject = object.getClass();
+
+            if (classObject.isArray()) {
+                var length = Array.getLength(object);
+
+                size += MemoryMeter.align(
+                    ARRAY_HEADER + (long) length * MemoryMeter.sizeOf(classObject.getComponentType())
+                );
+
+                if (object instanceof Object[] array) {
+                    MemoryMeter.pushAll(pending, Arrays.asList(array));
+                }
+
+                continue;
+            }
+
+            var layout = MemoryMeter.layouts.get(classObject);
+
+            size += layout.shallowSize();
+
+            for (var reference : layout.references()) {
+                var value = reference.get(object);
+
+                if (value != null) {
+                    pending.push(value);
+                }
+            }
+
+            // E.g. a student class extending ArrayList: its own fields are followed above, the list estimated here
+            if (layout.isPartial()) {
+                size += MemoryMeter.estimateContents(object, pending);
+            }
+        }
+
+        return size;
+    }
+
+    /// Size of the internals of JDK classes, pushing their elements to be measured themselves
+    static private long estimateContents(Object object, ArrayDeque<Object> pending) {
+        return switch (object) {
+            case String string -> MemoryMeter.align(
+                ARRAY_HEADER + (long) string.length() * (string.chars().allMatch(c -> c <= 0xFF) ? 1 : 2)
+            );
+            case Collection<?> collection -> {
+                MemoryMeter.pushAll(pending, collection);
+
+                yield MemoryMeter.align(ARRAY_HEADER + (long) collection.size() * REFERENCE);
+            }
+            case Map<?, ?> map -> {
+                MemoryMeter.pushAll(pending, map.keySet());
+                MemoryMeter.pushAll(pending, map.values());
+
+                var table = Integer.highestOneBit(Math.max(1, (int) (map.size() / 0.75f)) * 2 - 1);
+
+                yield (long) map.size() * MAP_ENTRY + MemoryMeter.align(ARRAY_HEADER + (long) table * REFERENCE);
+            }
+            default -> 0;
+        };
+    }
+
+    static private void pushAll(ArrayDeque<Object> pending, Collection<?> elements) {
+        for (var element : elements) {
+            if (element != null) {
+                pending.push(element);
+            }
+        }
+    }
+
+
+    static private int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+
+        return REFERENCE;
+    }
+
+    static private long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+
+    private MemoryMeter() {}
+}
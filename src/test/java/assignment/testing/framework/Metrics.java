@@ -0,0 +1,222 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/// Counters and latency histograms of the framework's own hot paths, to tell where a slow grading run spends time
+///
+/// Enabled with `-Dassignment.metrics=true`: every operation of `Operation` is counted in striped counters and a
+/// histogram of power-of-two buckets, printed to standard error when the JVM exits, and committed as an
+/// `assignment.FrameworkOperation` JFR event for a recording started with `-XX:StartFlightRecording`. Disabled,
+/// `ENABLED` is a constant `false` the JIT folds every call into, and nothing is recorded or allocated.
+final class Metrics
+{
+    static final boolean ENABLED = Boolean.getBoolean("assignment.metrics");
+
+
+    enum Operation
+    {
+        CLASS_LOOKUP_HIT("class lookup, cached"),
+        CLASS_LOOKUP_MISS("class lookup, loaded"),
+        MEMBER_LOOKUP_HIT("member lookup, cached"),
+        MEMBER_LOOKUP_MISS("member lookup, resolved"),
+        SCOPE("entering a test* scope"),
+        INVOKE("student code invocation"),
+        CAPTURE("captured output", true),
+        NORMALIZE("output normalization"),
+        COMPARE("output comparison");
+
+        final String label;
+        /// Recorded in bytes instead of nanoseconds
+        final boolean bytes;
+
+        Operation(String label) {
+            this(label, false);
+        }
+
+        Operation(String label, boolean bytes) {
+            this.label = label;
+            this.bytes = bytes;
+        }
+    }
+
+
+    static private final Histogram[] histograms = new Histogram[Operation.values().length];
+
+    static {
+        if (ENABLED) {
+            for (var i = 0; i < Metrics.histograms.length; i++) {
+                Metrics.histograms[i] = new Histogram();
+            }
+
+            var stderr = System.err;
+
+            Runtime.getRuntime().addShutdownHook(Thread.ofPlatform().unstarted(() -> Metrics.print(stderr)));
+        }
+    }
+
+
+    /// Start of a timed operation, `0` when disabled
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /// Record `operation` as having taken from `start` until now
+    static void record(Operation operation, long start) {
+        if (ENABLED) {
+            Metrics.add(operation, System.nanoTime() - start);
+        }
+    }
+
+    /// Record `operation` as having handled `bytes`
+    static void count(Operation operation, long bytes) {
+        if (ENABLED) {
+            Metrics.add(operation, bytes);
+        }
+    }
+
+    /// `fn`, recording the time from now until it starts running as the cost of entering a scope; `fn` itself when
+    /// disabled
+    static Runnable entering(Runnable fn) {
+        if (!ENABLED) {
+            return fn;
+        }
+
+        var start = System.nanoTime();
+
+        return () -> {
+            Metrics.record(Operation.SCOPE, start);
+            fn.run();
+        };
+    }
+
+
+    static private void add(Operation operation, long value) {
+        Metrics.histograms[operation.ordinal()].add(value);
+
+        var event = new OperationEvent();
+
+        if (event.shouldCommit()) {
+            event.operation = operation.label;
+            event.nanos = operation.bytes ? 0 : value;
+            event.bytes = operation.bytes ? value : 0;
+            event.commit();
+        }
+    }
+
+    static void print(PrintStream out) {
+        out.printf("%n%-26s %12s %14s %10s %10s %10s %10s%n", "", "count", "total", "mean", "p50", "p99", "max");
+
+        for (var operation : Operation.values()) {
+            var histogram = Metrics.histograms[operation.ordinal()];
+            var count = histogram.count.sum();
+
+            if (count == 0) {
+                continue;
+            }
+
+            var total = histogram.total.sum();
+
+            out.printf(
+                "%-26s %,12d %14s %10s %10s %10s %10s%n",
+                operation.label, count,
+                Metrics.format(operation, total),
+                Metrics.format(operation, total / count),
+                Metrics.format(operation, histogram.percentile(0.5)),
+                Metrics.format(operation, histogram.percentile(0.99)),
+                Metrics.format(operation, histogram.max.get())
+            );
+        }
+    }
+
+    static private String format(Operation operation, long value) {
+        if (operation.bytes) {
+            if (value < 1024) return value + " B";
+            if (value < 1024 * 1024) return "%.1f KiB".formatted(value / 1024.0);
+
+            return "%.1f MiB".formatted(value / (1024.0 * 1024));
+        }
+
+        if (value < 1_000) return value + " ns";
+        if (value < 1_000_000) return "%.1f us".formatted(value / 1e3);
+        if (value < 1_000_000_000) return "%.1f ms".formatted(value / 1e6);
+
+        return "%.2f s".formatted(value / 1e9);
+    }
+
+
+    /// Values in 64 buckets by their highest set bit, all counters striped so threads recording at once do not
+    /// contend
+    static private final class Histogram
+    {
+        final LongAdder count = new LongAdder();
+        final LongAdder total = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        final LongAdder[] buckets = new LongAdder[64];
+
+        Histogram() {
+            for (var i = 0; i < this.buckets.length; i++) {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        void add(long value) {
+            var clamped = Math.max(0, value);
+
+            this.count.increment();
+            this.total.add(clamped);
+            this.max.accumulate(clamped);
+            this.buckets[63 - Long.numberOfLeadingZeros(clamped | 1)].increment();
+        }
+
+        /// Upper bound of the bucket holding the `quantile` of all values, at most the largest value
+        long percentile(double quantile) {
+            var rank = (long) Math.ceil(this.count.sum() * quantile);
+            var seen = 0L;
+
+            for (var i = 0; i < this.buckets.length; i++) {
+                seen += this.buckets[i].sum();
+
+                if (seen >= rank) {
+                    return Math.min(this.max.get(), i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1);
+                }
+            }
+
+            return this.max.get();
+        }
+    }
+
+
+    @Name("assignment.FrameworkOperation")
+    @Label("Framework Operation")
+    @Category("Assignment Testing")
+    @StackTrace(false)
+    static final class OperationEvent extends Event
+    {
+        @Label("Operation")
+        String operation;
+
+        @Label("Duration")
+        @Timespan
+        long nanos;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+
+    private Metrics() {}
+}
@@ -0,0 +1,45 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+
+/// `InputStream` installed once as `System.in`, forwarding every call to the input of the calling thread
+///
+/// Closing it (e.g. through a `Scanner` wrapping `System.in`) does nothing, as the next test reads from it again.
+final class MultiplexingInputStream extends InputStream
+{
+    private final Supplier<InputStream> source;
+
+
+    MultiplexingInputStream(Supplier<InputStream> source) {
+        this.source = source;
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        return this.source.get().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return this.source.get().read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return this.source.get().available();
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return this.source.get().skip(n);
+    }
+
+    @Override
+    public void close() {}
+}
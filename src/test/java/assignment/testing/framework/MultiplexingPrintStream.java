@@ -0,0 +1,99 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+
+/// `PrintStream` installed once as `System.out`, forwarding every call to the stream of the calling thread
+///
+/// Forwarding whole calls, instead of the bytes they produce, keeps the encoder state of one capture from ever
+/// leaking into another one when a capture aborts a write halfway (see `CaptureBuffer`).
+final class MultiplexingPrintStream extends PrintStream
+{
+    private final Supplier<PrintStream> target;
+
+
+    MultiplexingPrintStream(Supplier<PrintStream> target) {
+        super(OutputStream.nullOutputStream());
+
+        this.target = target;
+    }
+
+
+    @Override public void write(int b) { this.target.get().write(b); }
+    @Override public void write(byte[] buf, int off, int len) { this.target.get().write(buf, off, len); }
+    @Override public void write(byte[] buf) { this.target.get().write(buf, 0, buf.length); }
+    @Override public void writeBytes(byte[] buf) { this.target.get().write(buf, 0, buf.length); }
+    @Override public void flush() { this.target.get().flush(); }
+    @Override public void close() { this.target.get().flush(); }
+    @Override public boolean checkError() { return this.target.get().checkError(); }
+    @Override public Charset charset() { return this.target.get().charset(); }
+
+    @Override public void print(boolean b) { this.target.get().print(b); }
+    @Override public void print(char c) { this.target.get().print(c); }
+    @Override public void print(int i) { this.target.get().print(i); }
+    @Override public void print(long l) { this.target.get().print(l); }
+    @Override public void print(float f) { this.target.get().print(f); }
+    @Override public void print(double d) { this.target.get().print(d); }
+    @Override public void print(char[] s) { this.target.get().print(s); }
+    @Override public void print(String s) { this.target.get().print(s); }
+    @Override public void print(Object obj) { this.target.get().print(obj); }
+
+    @Override public void println() { this.target.get().println(); }
+    @Override public void println(boolean x) { this.target.get().println(x); }
+    @Override public void println(char x) { this.target.get().println(x); }
+    @Override public void println(int x) { this.target.get().println(x); }
+    @Override public void println(long x) { this.target.get().println(x); }
+    @Override public void println(float x) { this.target.get().println(x); }
+    @Override public void println(double x) { this.target.get().println(x); }
+    @Override public void println(char[] x) { this.target.get().println(x); }
+    @Override public void println(String x) { this.target.get().println(x); }
+    @Override public void println(Object x) { this.target.get().println(x); }
+
+    @Override
+    public PrintStream printf(String format, Object... args) {
+        this.target.get().printf(format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream printf(Locale l, String format, Object... args) {
+        this.target.get().printf(l, format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream format(String format, Object... args) {
+        this.target.get().format(format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream format(Locale l, String format, Object... args) {
+        this.target.get().format(l, format, args);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq) {
+        this.target.get().append(csq);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq, int start, int end) {
+        this.target.get().append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public PrintStream append(char c) {
+        this.target.get().append(c);
+        return this;
+    }
+}
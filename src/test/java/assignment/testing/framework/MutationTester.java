@@ -0,0 +1,428 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.ClassTransform;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeTransform;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.Opcode;
+import java.lang.classfile.TypeKind;
+import java.lang.classfile.instruction.BranchInstruction;
+import java.lang.classfile.instruction.ConstantInstruction;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.instruction.LineNumber;
+import java.lang.classfile.instruction.ReturnInstruction;
+import java.lang.constant.ConstantDesc;
+import java.lang.reflect.AccessFlag;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.ScopedValue.where;
+
+
+/// Mutation testing of the suites against the reference solution: "Quid revera probationes probabunt?"
+///
+/// The classes of the assignment package in the compiled reference solution are read once, and mutants are made
+/// from their bytecode with the ClassFile API, one change each (see `Operator`). Every mutant is the solution with
+/// that one class defined from the mutated bytes in memory, by a throwaway `SubmissionClassLoader` of its own,
+/// without compiling or writing anything. The suites run against each mutant across a pool of workers, the same way
+/// `BatchGrader` grades submissions. A mutant is killed when any test fails, and survives when all of them pass:
+/// each survivor is a change to the solution the suites do not notice.
+///
+/// The suites must pass against the unmutated solution first. Every mutant then runs within a time budget of ten
+/// times that run (at least a second), so mutants looping forever are reported as timed out; code running past its
+/// budget can only be abandoned, not stopped (see `Supervisor`), and keeps a core busy until the run ends.
+///
+/// ```
+/// mvn test-compile exec:java -Dexec.classpathScope=test \
+///     -Dexec.mainClass=assignment.testing.framework.MutationTester \
+///     -Dexec.args="target/classes --workers 8 --suite assignment.TestAssignment"
+/// ```
+public final class MutationTester
+{
+    static private final String DEFAULT_PACKAGE = "assignment";
+    static private final String DEFAULT_SUITE = "assignment.TestAssignment";
+    static private final Path DEFAULT_CLASSES = Path.of("target", "classes");
+
+
+    /// Kind of change made to a single instruction
+    enum Operator
+    {
+        /// `if (a < b)` as `if (a >= b)`, and so on
+        NEGATED_CONDITION,
+        /// An `int` or `long` constant one larger
+        OFF_BY_ONE,
+        /// A call to a `void` method left out, its arguments dropped
+        REMOVED_CALL,
+        /// `return x` as `return x ^ 1` (`true` as `false`), `return x + 1` for floating point, `return null`
+        SWAPPED_RETURN,
+    }
+
+    static private final Map<Opcode, Opcode> NEGATIONS = MutationTester.negations(
+        Opcode.IFEQ, Opcode.IFNE,
+        Opcode.IFLT, Opcode.IFGE,
+        Opcode.IFGT, Opcode.IFLE,
+        Opcode.IF_ICMPEQ, Opcode.IF_ICMPNE,
+        Opcode.IF_ICMPLT, Opcode.IF_ICMPGE,
+        Opcode.IF_ICMPGT, Opcode.IF_ICMPLE,
+        Opcode.IF_ACMPEQ, Opcode.IF_ACMPNE,
+        Opcode.IFNULL, Opcode.IFNONNULL
+    );
+
+
+    /// One change: the element at `index` in the code of a method, `line` in the source (`-1` if unknown)
+    public record Mutant(
+            String className, String methodName, String methodType,
+            int index, int line,
+            Operator operator, String description
+    ) {
+        @Override
+        public String toString() {
+            return "%s#%s%s%s: %s".formatted(
+                this.className, this.methodName, this.methodType,
+                this.line < 0 ? "" : " (line %d)".formatted(this.line),
+                this.description
+            );
+        }
+    }
+
+    public enum Outcome
+    {
+        KILLED,
+        TIMED_OUT,
+        SURVIVED,
+    }
+
+    public record Result(Mutant mutant, Outcome outcome, String killedBy) {}
+
+
+    static public void main(String[] args) throws IOException, InterruptedException {
+        var classesDirectory = DEFAULT_CLASSES;
+        var workers = Runtime.getRuntime().availableProcessors();
+        var suites = new ArrayList<String>();
+        var packageName = DEFAULT_PACKAGE;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--suite" -> suites.add(args[++i]);
+                case "--package" -> packageName = args[++i];
+                default -> {
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+
+                    classesDirectory = Path.of(args[i]);
+                }
+            }
+        }
+
+        if (suites.isEmpty()) {
+            suites.add(DEFAULT_SUITE);
+        }
+
+        var results = MutationTester.run(classesDirectory, suites, packageName, workers);
+
+        MutationTester.print(System.out, results);
+
+        if (results.stream().anyMatch(result -> result.outcome() == Outcome.SURVIVED)) {
+            System.exit(1);
+        }
+    }
+
+
+    /// Run `suites` against every mutant of the classes of `packageName` in `classesDirectory`
+    static public List<Result> run(
+            Path classesDirectory,
+            List<String> suites, String packageName,
+            int workers
+    ) throws IOException, InterruptedException {
+        var classes = MutationTester.readClasses(classesDirectory, packageName, suites);
+        var classFile = MutationTester.classFile(classes);
+
+        var baseline = BatchGrader.grade("reference", classesDirectory, suites, packageName);
+
+        if (baseline.failed() > 0 || baseline.aborted() > 0) {
+            throw new IllegalStateException(
+                "The suites must pass against the reference solution first: " + String.join("; ", baseline.failures())
+            );
+        }
+
+        var budget = Duration.ofMillis(Math.max(1000, baseline.duration().toMillis() * 10));
+        var mutants = new ArrayList<Mutant>();
+
+        for (var entry : classes.entrySet()) {
+            mutants.addAll(MutationTester.mutants(entry.getKey(), classFile.parse(entry.getValue())));
+        }
+
+        try (var executor = Executors.newFixedThreadPool(workers)) {
+            var futures = new ArrayList<Future<Result>>();
+
+            for (var mutant : mutants) {
+                futures.add(executor.submit(() -> {
+                    var bytes = MutationTester.mutate(classFile, classes.get(mutant.className()), mutant);
+
+                    return MutationTester.test(mutant, bytes, classesDirectory, suites, packageName, budget);
+                }));
+            }
+
+            var results = new ArrayList<Result>();
+
+            for (var future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+
+            return results;
+        }
+    }
+
+    static void print(PrintStream out, List<Result> results) {
+        var counts = new EnumMap<Outcome, Integer>(Outcome.class);
+
+        for (var result : results) {
+            counts.merge(result.outcome(), 1, Integer::sum);
+
+            if (result.outcome() == Outcome.SURVIVED) {
+                out.println("SURVIVED  " + result.mutant());
+            }
+        }
+
+        var killed = counts.getOrDefault(Outcome.KILLED, 0) + counts.getOrDefault(Outcome.TIMED_OUT, 0);
+
+        out.printf(
+            "%n%d mutants: %d killed (%d timed out), %d survived, mutation score %.0f%%%n",
+            results.size(), killed, counts.getOrDefault(Outcome.TIMED_OUT, 0),
+            counts.getOrDefault(Outcome.SURVIVED, 0),
+            results.isEmpty() ? 100.0 : 100.0 * killed / results.size()
+        );
+    }
+
+
+    static private Result test(
+            Mutant mutant, byte[] bytes,
+            Path classesDirectory, List<String> suites, String packageName,
+            Duration budget
+    ) throws Exception {
+        var name = "mutant " + mutant;
+
+        try (var classLoader = new SubmissionClassLoader(
+            name, classesDirectory, packageName, suites, BatchGrader.class.getClassLoader(),
+            Map.of(mutant.className(), bytes)
+        )) {
+            var result = where(Supervisor.BUDGET, Supervisor.Budget.perScope(budget, null))
+                .call(() -> BatchGrader.grade(name, classLoader, suites));
+
+            if (result.failed() == 0 && result.aborted() == 0) {
+                return new Result(mutant, Outcome.SURVIVED, null);
+            }
+
+            var failure = result.failures().isEmpty() ? null : result.failures().getFirst();
+            var timedOut = failure != null && failure.contains("exceeded its time budget");
+
+            return new Result(mutant, timedOut ? Outcome.TIMED_OUT : Outcome.KILLED, failure);
+        }
+    }
+
+
+    /// Class files of `packageName` by binary name, the suites and the framework excluded
+    static private Map<String, byte[]> readClasses(
+            Path classesDirectory,
+            String packageName, List<String> suites
+    ) throws IOException {
+        var classes = new TreeMap<String, byte[]>();
+        var packageDirectory = classesDirectory.resolve(packageName.replace('.', '/'));
+        var frameworkPackage = Utilities.class.getPackageName() + ".";
+
+        try (var files = Files.walk(packageDirectory)) {
+            for (var file : files.filter(path -> path.toString().endsWith(".class")).toList()) {
+                var relative = classesDirectory.relativize(file).toString();
+                var name = relative.substring(0, relative.length() - ".class".length())
+                    .replace(file.getFileSystem().getSeparator(), ".");
+                var isSuite = suites.stream().anyMatch(suite -> name.equals(suite) || name.startsWith(suite + "$"));
+
+                if (!isSuite && !name.startsWith(frameworkPackage)) {
+                    classes.put(name, Files.readAllBytes(file));
+                }
+            }
+        }
+
+        return classes;
+    }
+
+    /// Resolves the class hierarchy (for the stack maps of mutated code) from `classes`, then from the class path
+    static private ClassFile classFile(Map<String, byte[]> classes) {
+        var resolver = ClassHierarchyResolver.ofResourceParsing(descriptor -> {
+            var bytes = classes.get(descriptor.packageName().isEmpty()
+                ? descriptor.displayName()
+                : descriptor.packageName() + "." + descriptor.displayName()
+            );
+
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
+        }).orElse(ClassHierarchyResolver.ofResourceParsing(MutationTester.class.getClassLoader()));
+
+        return ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver));
+    }
+
+
+    /// Every mutant of `model`, in the order of its methods and their code
+    static private List<Mutant> mutants(String className, ClassModel model) {
+        var mutants = new ArrayList<Mutant>();
+
+        for (var method : model.methods()) {
+            if (method.flags().has(AccessFlag.BRIDGE) || method.code().isEmpty()) {
+                continue;
+            }
+
+            var elements = method.code().get().elementList();
+            var line = -1;
+
+            for (var index = 0; index < elements.size(); index++) {
+                var element = elements.get(index);
+
+                if (element instanceof LineNumber lineNumber) {
+                    line = lineNumber.line();
+                }
+
+                for (var operator : Operator.values()) {
+                    var description = MutationTester.describe(operator, element);
+
+                    if (description != null) {
+                        mutants.add(new Mutant(
+                            className, method.methodName().stringValue(), method.methodType().stringValue(),
+                            index, line, operator, description
+                        ));
+                    }
+                }
+            }
+        }
+
+        return mutants;
+    }
+
+    /// What `operator` changes about `element`, `null` when it does not apply to it
+    static private String describe(Operator operator, CodeElement element) {
+        return switch (operator) {
+            case NEGATED_CONDITION -> element instanceof BranchInstruction branch
+                    && NEGATIONS.containsKey(branch.opcode())
+                ? "negated condition (%s as %s)".formatted(branch.opcode(), NEGATIONS.get(branch.opcode()))
+                : null;
+            case OFF_BY_ONE -> element instanceof ConstantInstruction constant
+                    && (constant.constantValue() instanceof Integer || constant.constantValue() instanceof Long)
+                ? "constant %s as %s".formatted(
+                    constant.constantValue(), ((Number) constant.constantValue()).longValue() + 1
+                )
+                : null;
+            case REMOVED_CALL -> element instanceof InvokeInstruction invoke
+                    && !invoke.name().equalsString("<init>")
+                    && invoke.typeSymbol().returnType().descriptorString().equals("V")
+                ? "removed call to %s.%s".formatted(invoke.owner().asSymbol().displayName(), invoke.name())
+                : null;
+            case SWAPPED_RETURN -> element instanceof ReturnInstruction ret && ret.typeKind() != TypeKind.VOID
+                ? ret.typeKind() == TypeKind.REFERENCE ? "returns null" : "returns a different value"
+                : null;
+        };
+    }
+
+    /// The class `bytes` with `mutant` applied to it
+    static private byte[] mutate(ClassFile classFile, byte[] bytes, Mutant mutant) {
+        return classFile.transformClass(classFile.parse(bytes), ClassTransform.transformingMethodBodies(
+            method -> MutationTester.isMutated(method, mutant),
+            CodeTransform.ofStateful(() -> new CodeTransform() {
+                private int index;
+
+                @Override
+                public void accept(CodeBuilder builder, CodeElement element) {
+                    if (this.index++ == mutant.index()) {
+                        MutationTester.apply(builder, element, mutant.operator());
+                    }
+                    else {
+                        builder.with(element);
+                    }
+                }
+            })
+        ));
+    }
+
+    static private boolean isMutated(MethodModel method, Mutant mutant) {
+        return method.methodName().equalsString(mutant.methodName())
+            && method.methodType().equalsString(mutant.methodType());
+    }
+
+    static private void apply(CodeBuilder builder, CodeElement element, Operator operator) {
+        switch (operator) {
+            case NEGATED_CONDITION -> {
+                var branch = (BranchInstruction) element;
+
+                builder.branch(NEGATIONS.get(branch.opcode()), branch.target());
+            }
+            case OFF_BY_ONE -> {
+                var value = ((ConstantInstruction) element).constantValue();
+
+                if (value instanceof Long l) builder.loadConstant((ConstantDesc) (l + 1));
+                else builder.loadConstant((ConstantDesc) ((Integer) value + 1));
+            }
+            case REMOVED_CALL -> {
+                var invoke = (InvokeInstruction) element;
+                var parameters = invoke.typeSymbol().parameterList();
+
+                for (var i = parameters.size() - 1; i >= 0; i--) {
+                    if (TypeKind.from(parameters.get(i)).slotSize() == 2) builder.pop2();
+                    else builder.pop();
+                }
+
+                if (invoke.opcode() != Opcode.INVOKESTATIC) {
+                    builder.pop();
+                }
+            }
+            case SWAPPED_RETURN -> {
+                var ret = (ReturnInstruction) element;
+
+                switch (ret.typeKind()) {
+                    case REFERENCE -> builder.pop().aconst_null();
+                    case LONG -> builder.lconst_1().lxor();
+                    case FLOAT -> builder.fconst_1().fadd();
+                    case DOUBLE -> builder.dconst_1().dadd();
+                    default -> builder.iconst_1().ixor();
+                }
+
+                builder.with(ret);
+            }
+        }
+    }
+
+
+    static private Map<Opcode, Opcode> negations(Opcode... pairs) {
+        var negations = new EnumMap<Opcode, Opcode>(Opcode.class);
+
+        for (var i = 0; i < pairs.length; i += 2) {
+            negations.put(pairs[i], pairs[i + 1]);
+            negations.put(pairs[i + 1], pairs[i]);
+        }
+
+        return negations;
+    }
+
+
+    private MutationTester() {}
+}
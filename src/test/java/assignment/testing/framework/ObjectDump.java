@@ -0,0 +1,183 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedCollection;
+import java.util.SequencedMap;
+
+
+/// Deterministic text form of an object graph, e.g. `Person{name="Alice", age=20, friends=[]}`
+///
+/// Objects of classes with accessible fields (those of the submission) are written field by field, superclass
+/// fields first, whatever their `toString`. Strings are quoted, arrays, collections and maps are written element by
+/// element, and unordered sets and maps are sorted by the text of their elements, so the same state always gives the
+/// same text. Objects of JDK classes that are none of those are written with `toString`.
+final class ObjectDump
+{
+    static private final ClassValue<List<Field>> fields = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> classObject) {
+            return ObjectDump.fields(classObject);
+        }
+    };
+
+
+    static String of(Object object) {
+        var text = new StringBuilder();
+
+        ObjectDump.write(text, object, new IdentityHashMap<>());
+
+        return text.toString();
+    }
+
+
+    static private void write(StringBuilder text, Object object, IdentityHashMap<Object, Boolean> path) {
+        switch (object) {
+            case null -> text.append("null");
+            case String string -> ObjectDump.quote(text, string, '"');
+            case Character character -> ObjectDump.quote(text, character.toString(), '\'');
+            case Number _, Boolean _ -> text.append(object);
+            case Enum<?> constant -> text.append(ObjectDump.name(constant.getDeclaringClass())).append('.').append(constant.name());
+            case Class<?> classObject -> text.append(classObject.getName());
+            default -> {
+                if (path.put(object, true) != null) {
+                    text.append("<cycle ").append(ObjectDump.name(object.getClass())).append('>');
+                    return;
+                }
+
+                ObjectDump.writeComposite(text, object, path);
+
+                path.remove(object);
+            }
+        }
+    }
+
+    static private void writeComposite(StringBuilder text, Object object, IdentityHashMap<Object, Boolean> path) {
+        var classObject = object.getClass();
+
+        if (classObject.isArray()) {
+            var elements = new ArrayList<String>();
+
+            for (var i = 0; i < Array.getLength(object); i++) {
+                elements.add(ObjectDump.of(Array.get(object, i), path));
+            }
+
+            text.append('[').append(String.join(", ", elements)).append(']');
+        }
+        else if (ObjectDump.fields.get(classObject) != null) {
+            var values = new ArrayList<String>();
+
+            for (var field : ObjectDump.fields.get(classObject)) {
+                try {
+                    values.add(field.getName() + "=" + ObjectDump.of(field.get(object), path));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            text.append(ObjectDump.name(classObject)).append('{').append(String.join(", ", values)).append('}');
+        }
+        else if (object instanceof Collection<?> collection) {
+            var elements = new ArrayList<String>();
+
+            for (var element : collection) {
+                elements.add(ObjectDump.of(element, path));
+            }
+
+            if (!(collection instanceof SequencedCollection<?>)) {
+                elements.sort(null);
+            }
+
+            text.append('[').append(String.join(", ", elements)).append(']');
+        }
+        else if (object instanceof Map<?, ?> map) {
+            var entries = new ArrayList<String>();
+
+            for (var entry : map.entrySet()) {
+                entries.add(ObjectDump.of(entry.getKey(), path) + "=" + ObjectDump.of(entry.getValue(), path));
+            }
+
+            if (!(map instanceof SequencedMap<?, ?>)) {
+                entries.sort(null);
+            }
+
+            text.append('{').append(String.join(", ", entries)).append('}');
+        }
+        else {
+            text.append(object);
+        }
+    }
+
+    static private String of(Object object, IdentityHashMap<Object, Boolean> path) {
+        var text = new StringBuilder();
+
+        ObjectDump.write(text, object, path);
+
+        return text.toString();
+    }
+
+
+    /// Instance fields of `classObject` and its superclasses, superclass fields first; `null` when any of them is
+    /// not accessible, as for JDK classes
+    static private List<Field> fields(Class<?> classObject) {
+        var hierarchy = new ArrayList<Class<?>>();
+
+        for (var type = classObject; type != null && type != Object.class; type = type.getSuperclass()) {
+            hierarchy.addFirst(type);
+        }
+
+        var fields = new ArrayList<Field>();
+
+        for (var type : hierarchy) {
+            for (var field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+
+                if (!field.trySetAccessible()) {
+                    return null;
+                }
+
+                fields.add(field);
+            }
+        }
+
+        return List.copyOf(fields);
+    }
+
+    static private String name(Class<?> classObject) {
+        return Utilities.stripPackageFromClassName(classObject.getName());
+    }
+
+    static private void quote(StringBuilder text, String value, char quote) {
+        text.append(quote);
+
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+
+            switch (c) {
+                case '\n' -> text.append("\\n");
+                case '\r' -> text.append("\\r");
+                case '\t' -> text.append("\\t");
+                case '\\' -> text.append("\\\\");
+                default -> {
+                    if (c == quote) text.append('\\');
+                    text.append(c);
+                }
+            }
+        }
+
+        text.append(quote);
+    }
+
+
+    private ObjectDump() {}
+}
@@ -0,0 +1,366 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+
+/// Runs a property on generated arguments until it fails, then shrinks the failing case to a minimal one
+///
+/// Case `i` is generated from `seed + i` (mixed) at a size growing from `0` to `MAX_SIZE` over the first half of the
+/// cases, so the same seed always gives the same cases. A failing case is shrunk on the draws it was generated from,
+/// not on its values: chunks of draws are deleted, then set to `0`, then each draw is lowered by bisection, keeping
+/// every change after which the property still fails the same way, until no change helps. The arguments of a case are
+/// generated anew for every run of the property, so student code changing an argument does not change the case.
+final class PropertyTester
+{
+    static private final int MAX_SIZE = 100;
+
+    /// Runs of the property spent on shrinking at most, a failure found is reported shrunk as far as it got
+    static private final int MAX_SHRINK_RUNS = 10_000;
+
+
+    /// Failing case: its arguments before and after shrinking and how the property failed
+    record Failure(int index, long seed, String arguments, String original, String outcome, int shrinks) {}
+
+
+    private final List<Generator<?>> generators;
+    private final Predicate<Object[]> property;
+    private final Generator.Source source = new Generator.Source();
+
+    /// Kind of the failure being shrunk, the exception class or `null` for a property returning false
+    private Class<?> failure;
+    private int runs;
+
+
+    PropertyTester(List<Generator<?>> generators, Predicate<Object[]> property) {
+        this.generators = generators;
+        this.property = property;
+    }
+
+
+    /// Default generator of arguments of `type`, `null` when there is none
+    static Generator<?> generatorFor(Type type) {
+        if (type instanceof WildcardType wildcardType) {
+            return PropertyTester.generatorFor(wildcardType.getUpperBounds()[0]);
+        }
+
+        if (type instanceof GenericArrayType arrayType) {
+            var elements = PropertyTester.generatorFor(arrayType.getGenericComponentType());
+            var componentType = PropertyTester.rawType(arrayType.getGenericComponentType());
+
+            return elements == null || componentType == null ? null : Generator.arrays(componentType, elements);
+        }
+
+        if (type instanceof ParameterizedType parameterizedType) {
+            var rawType = (Class<?>) parameterizedType.getRawType();
+            var typeArguments = Arrays.stream(parameterizedType.getActualTypeArguments())
+                .map(PropertyTester::generatorFor)
+                .toList();
+
+            if (typeArguments.contains(null)) {
+                return null;
+            }
+
+            var first = typeArguments.getFirst();
+
+            if (rawType.isAssignableFrom(List.class)) return Generator.lists(first);
+            if (rawType.isAssignableFrom(Set.class)) return Generator.sets(first);
+            if (rawType == HashSet.class) return Generator.sets(first).map(HashSet::new);
+            if (rawType == TreeSet.class) return Generator.sets(first).map(TreeSet::new);
+
+            if (typeArguments.size() == 2) {
+                var maps = Generator.maps(first, typeArguments.get(1));
+
+                if (rawType.isAssignableFrom(Map.class)) return maps;
+                if (rawType == HashMap.class) return maps.map(HashMap::new);
+                if (rawType == TreeMap.class) return maps.map(TreeMap::new);
+            }
+
+            if (Collection.class.isAssignableFrom(rawType)) {
+                // Other collections with a copy constructor, e.g. ArrayList, LinkedList, ArrayDeque
+                try {
+                    var constructor = rawType.getConstructor(Collection.class);
+
+                    return Generator.lists(first).map(list -> {
+                        try {
+                            return constructor.newInstance(list);
+                        } catch (ReflectiveOperationException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+                } catch (NoSuchMethodException e) {
+                    return null;
+                }
+            }
+
+            return null;
+        }
+
+        if (!(type instanceof Class<?> classObject)) {
+            return null;
+        }
+
+        if (classObject == int.class || classObject == Integer.class) return Generator.integers();
+        if (classObject == long.class || classObject == Long.class) return Generator.longs();
+        if (classObject == short.class || classObject == Short.class) return Generator.shorts();
+        if (classObject == byte.class || classObject == Byte.class) return Generator.bytes();
+        if (classObject == double.class || classObject == Double.class) return Generator.doubles();
+        if (classObject == float.class || classObject == Float.class) return Generator.floats();
+        if (classObject == boolean.class || classObject == Boolean.class) return Generator.booleans();
+        if (classObject == char.class || classObject == Character.class) return Generator.characters();
+        if (classObject == String.class || classObject == CharSequence.class) return Generator.strings();
+        if (classObject == int[].class) return Generator.intArrays();
+
+        if (classObject.isEnum()) {
+            return Generator.elements(classObject.getEnumConstants());
+        }
+
+        if (classObject.isArray()) {
+            var elements = PropertyTester.generatorFor(classObject.getComponentType());
+
+            return elements == null ? null : Generator.arrays(classObject.getComponentType(), elements);
+        }
+
+        return null;
+    }
+
+    static private Class<?> rawType(Type type) {
+        return switch (type) {
+            case Class<?> classObject -> classObject;
+            case ParameterizedType parameterizedType -> (Class<?>) parameterizedType.getRawType();
+            default -> null;
+        };
+    }
+
+
+    /// First of `cases` cases generated from `seed` for which the property fails, shrunk; `null` when it holds
+    Failure run(int cases, long seed) {
+        for (var i = 0; i < cases; i++) {
+            var size = (int) Math.min(MAX_SIZE, (long) i * MAX_SIZE / Math.max(1, cases / 2));
+
+            this.source.reset(PropertyTester.mix(seed + i), size);
+
+            var outcome = this.check(this.generate());
+
+            if (outcome == null) {
+                continue;
+            }
+
+            this.failure = outcome instanceof Throwable e ? e.getClass() : null;
+
+            var failing = this.source.draws();
+            var original = PropertyTester.describe(this.generate(failing, size));
+            var draws = this.shrink(failing, size);
+            var shrunk = PropertyTester.describe(this.generate(draws, size));
+            var shrunkOutcome = this.check(this.generate(draws, size));
+
+            return new Failure(
+                i, seed,
+                shrunk, original,
+                PropertyTester.describe(shrunkOutcome == null ? outcome : shrunkOutcome),
+                this.runs
+            );
+        }
+
+        return null;
+    }
+
+
+    private Object[] generate() {
+        var arguments = new Object[this.generators.size()];
+
+        for (var i = 0; i < arguments.length; i++) {
+            arguments[i] = this.generators.get(i).generate(this.source);
+        }
+
+        return arguments;
+    }
+
+    private Object[] generate(long[] draws, int size) {
+        this.source.replay(draws, size);
+
+        return this.generate();
+    }
+
+    /// How the property failed for `arguments`: `Boolean.FALSE` or what it threw; `null` when it holds. A call over
+    /// its time budget or out of fuel is not a failure of the property, it fails the test at once, without shrinking
+    private Object check(Object[] arguments) {
+        try {
+            return this.property.test(arguments) ? null : Boolean.FALSE;
+        } catch (BudgetExceededError e) {
+            throw e;
+        } catch (RuntimeException | AssertionError | StackOverflowError e) {
+            return e;
+        }
+    }
+
+
+    /// Smallest draws found that still fail the same way as `draws`
+    private long[] shrink(long[] draws, int size) {
+        this.runs = 0;
+
+        var current = draws;
+        var improved = true;
+
+        while (improved && this.runs < MAX_SHRINK_RUNS) {
+            improved = false;
+
+            for (var chunk = 8; chunk > 0; chunk /= 2) {
+                for (var i = 0; i + chunk <= current.length; ) {
+                    var candidate = new long[current.length - chunk];
+
+                    System.arraycopy(current, 0, candidate, 0, i);
+                    System.arraycopy(current, i + chunk, candidate, i, current.length - i - chunk);
+
+                    var shrunk = this.fails(candidate, size, current);
+
+                    if (shrunk != null) {
+                        current = shrunk;
+                        improved = true;
+                    }
+                    else {
+                        i++;
+                    }
+                }
+            }
+
+            for (var chunk = 8; chunk > 0; chunk /= 2) {
+                for (var i = 0; i + chunk <= current.length; i++) {
+                    if (Arrays.stream(current, i, i + chunk).allMatch(draw -> draw == 0)) {
+                        continue;
+                    }
+
+                    var candidate = current.clone();
+
+                    Arrays.fill(candidate, i, i + chunk, 0);
+
+                    var shrunk = this.fails(candidate, size, current);
+
+                    if (shrunk != null) {
+                        current = shrunk;
+                        improved = true;
+                    }
+                }
+            }
+
+            for (var i = 0; i < current.length; i++) {
+                var shrunk = this.lower(current, i, size);
+
+                if (shrunk != current) {
+                    current = shrunk;
+                    improved = true;
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /// `current` with draw `i` lowered as far as it still fails, bisecting between a draw known to pass and one known
+    /// to fail (compared unsigned)
+    private long[] lower(long[] current, int i, int size) {
+        if (current[i] == 0) {
+            return current;
+        }
+
+        var zeroed = current.clone();
+
+        zeroed[i] = 0;
+
+        var shrunk = this.fails(zeroed, size, current);
+
+        if (shrunk != null) {
+            return shrunk;
+        }
+
+        var passes = 0L;
+
+        while (i < current.length && Long.compareUnsigned(current[i] - passes, 1) > 0 && this.runs < MAX_SHRINK_RUNS) {
+            var middle = passes + ((current[i] - passes) >>> 1);
+            var candidate = current.clone();
+
+            candidate[i] = middle;
+            shrunk = this.fails(candidate, size, current);
+
+            if (shrunk != null) {
+                current = shrunk;
+            }
+            else {
+                passes = middle;
+            }
+        }
+
+        return current;
+    }
+
+    /// Draws actually used by the case generated from `candidate` when it fails the same way and is simpler than
+    /// `current` (fewer draws, or smaller ones at the first difference), otherwise `null`
+    private long[] fails(long[] candidate, int size, long[] current) {
+        if (this.runs >= MAX_SHRINK_RUNS) {
+            return null;
+        }
+
+        this.runs++;
+
+        Object outcome;
+
+        try {
+            outcome = this.check(this.generate(candidate, size));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // The generator cannot make a case of these draws
+            return null;
+        }
+
+        if (outcome == null || (outcome instanceof Throwable e ? e.getClass() : null) != this.failure) {
+            return null;
+        }
+
+        var used = this.source.draws();
+
+        return PropertyTester.simpler(used, current) ? used : null;
+    }
+
+    static private boolean simpler(long[] draws, long[] than) {
+        if (draws.length != than.length) {
+            return draws.length < than.length;
+        }
+
+        var mismatch = Arrays.mismatch(draws, than);
+
+        return mismatch >= 0 && Long.compareUnsigned(draws[mismatch], than[mismatch]) < 0;
+    }
+
+
+    static private String describe(Object[] arguments) {
+        return Arrays.stream(arguments).map(ObjectDump::of).collect(Collectors.joining(", "));
+    }
+
+    static private String describe(Object outcome) {
+        return outcome instanceof Throwable e
+            ? "threw " + e.getClass().getName() + (e.getMessage() == null ? "" : ": " + e.getMessage())
+            : "returned false";
+    }
+
+    /// SplitMix64 finalizer, so neighbouring case numbers give unrelated seeds
+    static private long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+}
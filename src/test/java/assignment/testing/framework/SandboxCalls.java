@@ -0,0 +1,726 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+
+
+/// Replacements for the file APIs of student code loaded by a `SandboxClassLoader`
+///
+/// Each call site rewritten by `SandboxClassLoader` calls the method here of the same signature, with the receiver
+/// of an instance method as the first parameter, and the class of a constructor as return type. Within a
+/// `withFileSandbox` scope they operate on its `SandboxFileSystem`, outside of one they do what the original would.
+///
+/// Public only so rewritten classes in other packages can call it, not part of the API of the framework.
+public final class SandboxCalls
+{
+    /// Working directory of the JVM, stripped from absolute `File`s so `getAbsoluteFile()` stays in the sandbox
+    static private final String WORKING_DIRECTORY = new File("").getAbsolutePath() + File.separator;
+
+
+    static private boolean isSandboxed() {
+        return SandboxFileSystem.CURRENT.isBound();
+    }
+
+    static private Path path(String first, String... more) {
+        return SandboxFileSystem.CURRENT.get().getPath(first, more);
+    }
+
+    static private Path path(File file) {
+        var name = file.getPath();
+
+        if (file.isAbsolute() && name.startsWith(WORKING_DIRECTORY)) {
+            name = name.substring(WORKING_DIRECTORY.length());
+        }
+
+        return SandboxCalls.path(name.replace(File.separatorChar, '/'));
+    }
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: java.nio.file
+    ///-----------------------------------------------------------------------------------------------------------------
+    static public Path pathOf(String first, String... more) {
+        return SandboxCalls.isSandboxed() ? SandboxCalls.path(first, more) : Path.of(first, more);
+    }
+
+    static public Path pathsGet(String first, String... more) {
+        return SandboxCalls.isSandboxed() ? SandboxCalls.path(first, more) : Paths.get(first, more);
+    }
+
+    static public FileSystem fileSystemsGetDefault() {
+        return SandboxCalls.isSandboxed() ? SandboxFileSystem.CURRENT.get() : FileSystems.getDefault();
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: java.io.File
+    ///-----------------------------------------------------------------------------------------------------------------
+    static public Path fileToPath(File file) {
+        return SandboxCalls.isSandboxed() ? SandboxCalls.path(file) : file.toPath();
+    }
+
+    static public boolean fileExists(File file) {
+        return SandboxCalls.isSandboxed() ? Files.exists(SandboxCalls.path(file)) : file.exists();
+    }
+
+    static public boolean fileIsFile(File file) {
+        return SandboxCalls.isSandboxed() ? Files.isRegularFile(SandboxCalls.path(file)) : file.isFile();
+    }
+
+    static public boolean fileIsDirectory(File file) {
+        return SandboxCalls.isSandboxed() ? Files.isDirectory(SandboxCalls.path(file)) : file.isDirectory();
+    }
+
+    static public boolean fileCanRead(File file) {
+        return SandboxCalls.isSandboxed() ? Files.exists(SandboxCalls.path(file)) : file.canRead();
+    }
+
+    static public boolean fileCanWrite(File file) {
+        return SandboxCalls.isSandboxed() ? Files.exists(SandboxCalls.path(file)) : file.canWrite();
+    }
+
+    static public long fileLength(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.length();
+        }
+
+        try {
+            return Files.isRegularFile(SandboxCalls.path(file)) ? Files.size(SandboxCalls.path(file)) : 0;
+        } catch (IOException _) {
+            return 0;
+        }
+    }
+
+    static public long fileLastModified(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.lastModified();
+        }
+
+        try {
+            return Files.getLastModifiedTime(SandboxCalls.path(file)).toMillis();
+        } catch (IOException _) {
+            return 0;
+        }
+    }
+
+    static public boolean fileDelete(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.delete();
+        }
+
+        try {
+            Files.delete(SandboxCalls.path(file));
+
+            return true;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    static public boolean fileMkdir(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.mkdir();
+        }
+
+        try {
+            Files.createDirectory(SandboxCalls.path(file));
+
+            return true;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    static public boolean fileMkdirs(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.mkdirs();
+        }
+
+        if (Files.exists(SandboxCalls.path(file))) {
+            return false;
+        }
+
+        try {
+            Files.createDirectories(SandboxCalls.path(file));
+
+            return true;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    static public boolean fileCreateNewFile(File file) throws IOException {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.createNewFile();
+        }
+
+        try {
+            Files.createFile(SandboxCalls.path(file));
+
+            return true;
+        } catch (FileAlreadyExistsException _) {
+            return false;
+        }
+    }
+
+    static public boolean fileRenameTo(File file, File destination) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.renameTo(destination);
+        }
+
+        try {
+            Files.move(SandboxCalls.path(file), SandboxCalls.path(destination));
+
+            return true;
+        } catch (IOException _) {
+            return false;
+        }
+    }
+
+    static public String[] fileList(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.list();
+        }
+
+        try (var entries = Files.list(SandboxCalls.path(file))) {
+            return entries.map(entry -> entry.getFileName().toString()).toArray(String[]::new);
+        } catch (IOException _) {
+            return null;
+        }
+    }
+
+    static public File[] fileListFiles(File file) {
+        if (!SandboxCalls.isSandboxed()) {
+            return file.listFiles();
+        }
+
+        var names = SandboxCalls.fileList(file);
+
+        if (names == null) {
+            return null;
+        }
+
+        var files = new File[names.length];
+
+        for (var i = 0; i < names.length; i++) {
+            files[i] = new File(file, names[i]);
+        }
+
+        return files;
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: java.io streams
+    ///-----------------------------------------------------------------------------------------------------------------
+    static public FileInputStream newFileInputStream(String name) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileInputStream(SandboxCalls.input(SandboxCalls.path(name)))
+            : new FileInputStream(name)
+        ;
+    }
+
+    static public FileInputStream newFileInputStream(File file) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileInputStream(SandboxCalls.input(SandboxCalls.path(file)))
+            : new FileInputStream(file)
+        ;
+    }
+
+
+    static public FileOutputStream newFileOutputStream(String name) throws FileNotFoundException {
+        return SandboxCalls.newFileOutputStream(name, false);
+    }
+
+    static public FileOutputStream newFileOutputStream(String name, boolean append) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileOutputStream(SandboxCalls.output(SandboxCalls.path(name), append))
+            : new FileOutputStream(name, append)
+        ;
+    }
+
+    static public FileOutputStream newFileOutputStream(File file) throws FileNotFoundException {
+        return SandboxCalls.newFileOutputStream(file, false);
+    }
+
+    static public FileOutputStream newFileOutputStream(File file, boolean append) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileOutputStream(SandboxCalls.output(SandboxCalls.path(file), append))
+            : new FileOutputStream(file, append)
+        ;
+    }
+
+
+    static public FileReader newFileReader(String name) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileReader(SandboxCalls.input(SandboxCalls.path(name)), Charset.defaultCharset())
+            : new FileReader(name)
+        ;
+    }
+
+    static public FileReader newFileReader(File file) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileReader(SandboxCalls.input(SandboxCalls.path(file)), Charset.defaultCharset())
+            : new FileReader(file)
+        ;
+    }
+
+    static public FileReader newFileReader(String name, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileReader(SandboxCalls.input(SandboxCalls.path(name)), charset)
+            : new FileReader(name, charset)
+        ;
+    }
+
+    static public FileReader newFileReader(File file, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileReader(SandboxCalls.input(SandboxCalls.path(file)), charset)
+            : new FileReader(file, charset)
+        ;
+    }
+
+
+    static public FileWriter newFileWriter(String name) throws IOException {
+        return SandboxCalls.newFileWriter(name, Charset.defaultCharset(), false);
+    }
+
+    static public FileWriter newFileWriter(String name, boolean append) throws IOException {
+        return SandboxCalls.newFileWriter(name, Charset.defaultCharset(), append);
+    }
+
+    static public FileWriter newFileWriter(String name, Charset charset) throws IOException {
+        return SandboxCalls.newFileWriter(name, charset, false);
+    }
+
+    static public FileWriter newFileWriter(String name, Charset charset, boolean append) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileWriter(SandboxCalls.output(SandboxCalls.path(name), append), charset)
+            : new FileWriter(name, charset, append)
+        ;
+    }
+
+    static public FileWriter newFileWriter(File file) throws IOException {
+        return SandboxCalls.newFileWriter(file, Charset.defaultCharset(), false);
+    }
+
+    static public FileWriter newFileWriter(File file, boolean append) throws IOException {
+        return SandboxCalls.newFileWriter(file, Charset.defaultCharset(), append);
+    }
+
+    static public FileWriter newFileWriter(File file, Charset charset) throws IOException {
+        return SandboxCalls.newFileWriter(file, charset, false);
+    }
+
+    static public FileWriter newFileWriter(File file, Charset charset, boolean append) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new SandboxFileWriter(SandboxCalls.output(SandboxCalls.path(file), append), charset)
+            : new FileWriter(file, charset, append)
+        ;
+    }
+
+
+    static public PrintWriter newPrintWriter(String name) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? SandboxCalls.printWriter(SandboxCalls.path(name), Charset.defaultCharset())
+            : new PrintWriter(name)
+        ;
+    }
+
+    static public PrintWriter newPrintWriter(String name, String charsetName)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        return SandboxCalls.isSandboxed()
+            ? SandboxCalls.printWriter(SandboxCalls.path(name), SandboxCalls.charset(charsetName))
+            : new PrintWriter(name, charsetName)
+        ;
+    }
+
+    static public PrintWriter newPrintWriter(String name, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? SandboxCalls.printWriter(SandboxCalls.path(name), charset)
+            : new PrintWriter(name, charset)
+        ;
+    }
+
+    static public PrintWriter newPrintWriter(File file) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? SandboxCalls.printWriter(SandboxCalls.path(file), Charset.defaultCharset())
+            : new PrintWriter(file)
+        ;
+    }
+
+    static public PrintWriter newPrintWriter(File file, String charsetName)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        return SandboxCalls.isSandboxed()
+            ? SandboxCalls.printWriter(SandboxCalls.path(file), SandboxCalls.charset(charsetName))
+            : new PrintWriter(file, charsetName)
+        ;
+    }
+
+    static public PrintWriter newPrintWriter(File file, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? SandboxCalls.printWriter(SandboxCalls.path(file), charset)
+            : new PrintWriter(file, charset)
+        ;
+    }
+
+
+    static public PrintStream newPrintStream(String name) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new PrintStream(SandboxCalls.output(SandboxCalls.path(name), false), false, Charset.defaultCharset())
+            : new PrintStream(name)
+        ;
+    }
+
+    static public PrintStream newPrintStream(String name, String charsetName)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        return SandboxCalls.isSandboxed()
+            ? new PrintStream(SandboxCalls.output(SandboxCalls.path(name), false), false, charsetName)
+            : new PrintStream(name, charsetName)
+        ;
+    }
+
+    static public PrintStream newPrintStream(String name, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new PrintStream(SandboxCalls.output(SandboxCalls.path(name), false), false, charset)
+            : new PrintStream(name, charset)
+        ;
+    }
+
+    static public PrintStream newPrintStream(File file) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new PrintStream(SandboxCalls.output(SandboxCalls.path(file), false), false, Charset.defaultCharset())
+            : new PrintStream(file)
+        ;
+    }
+
+    static public PrintStream newPrintStream(File file, String charsetName)
+            throws FileNotFoundException, UnsupportedEncodingException {
+        return SandboxCalls.isSandboxed()
+            ? new PrintStream(SandboxCalls.output(SandboxCalls.path(file), false), false, charsetName)
+            : new PrintStream(file, charsetName)
+        ;
+    }
+
+    static public PrintStream newPrintStream(File file, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new PrintStream(SandboxCalls.output(SandboxCalls.path(file), false), false, charset)
+            : new PrintStream(file, charset)
+        ;
+    }
+
+
+    static public Scanner newScanner(File file) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new Scanner(SandboxCalls.input(SandboxCalls.path(file)), Charset.defaultCharset())
+            : new Scanner(file)
+        ;
+    }
+
+    static public Scanner newScanner(File file, String charsetName) throws FileNotFoundException {
+        return SandboxCalls.isSandboxed()
+            ? new Scanner(SandboxCalls.input(SandboxCalls.path(file)), charsetName)
+            : new Scanner(file, charsetName)
+        ;
+    }
+
+    static public Scanner newScanner(File file, Charset charset) throws IOException {
+        return SandboxCalls.isSandboxed()
+            ? new Scanner(SandboxCalls.input(SandboxCalls.path(file)), charset)
+            : new Scanner(file, charset)
+        ;
+    }
+
+
+    /// Open `path` for reading, failing the way `FileInputStream` does
+    static private InputStream input(Path path) throws FileNotFoundException {
+        try {
+            return Files.newInputStream(path);
+        } catch (NoSuchFileException _) {
+            throw new FileNotFoundException(path + " (No such file or directory)");
+        } catch (IOException e) {
+            throw new FileNotFoundException(path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /// Open `path` for writing, failing the way `FileOutputStream` does
+    static private OutputStream output(Path path, boolean append) throws FileNotFoundException {
+        try {
+            return Files.newOutputStream(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING
+            );
+        } catch (NoSuchFileException _) {
+            throw new FileNotFoundException(path + " (No such file or directory)");
+        } catch (IOException e) {
+            throw new FileNotFoundException(path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    static private PrintWriter printWriter(Path path, Charset charset) throws FileNotFoundException {
+        return new PrintWriter(new BufferedWriter(new OutputStreamWriter(SandboxCalls.output(path, false), charset)));
+    }
+
+    static private Charset charset(String charsetName) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(charsetName);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException _) {
+            throw new UnsupportedEncodingException(charsetName);
+        }
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Sandboxed streams
+    ///
+    ///
+    /// Student code declares these as `FileInputStream`, `FileReader`, ..., so the sandboxed streams have to be
+    /// instances of those classes; they are created on an invalid `FileDescriptor`, never used, and forward every
+    /// public method to a stream on the sandbox instead
+    ///-----------------------------------------------------------------------------------------------------------------
+    static private final class SandboxFileInputStream extends FileInputStream
+    {
+        private final InputStream in;
+
+        SandboxFileInputStream(InputStream in) {
+            super(new FileDescriptor());
+
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return this.in.read();
+        }
+
+        @Override
+        public int read(byte[] bytes) throws IOException {
+            return this.in.read(bytes);
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            return this.in.read(bytes, offset, length);
+        }
+
+        @Override
+        public byte[] readAllBytes() throws IOException {
+            return this.in.readAllBytes();
+        }
+
+        @Override
+        public byte[] readNBytes(int length) throws IOException {
+            return this.in.readNBytes(length);
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            return this.in.transferTo(out);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return this.in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return this.in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+
+        @Override
+        public FileChannel getChannel() {
+            throw new UnsupportedOperationException("Not available in the file sandbox, use Files.newByteChannel");
+        }
+    }
+
+    static private final class SandboxFileOutputStream extends FileOutputStream
+    {
+        private final OutputStream out;
+
+        SandboxFileOutputStream(OutputStream out) {
+            super(new FileDescriptor());
+
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes) throws IOException {
+            this.out.write(bytes);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            this.out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+
+        @Override
+        public FileChannel getChannel() {
+            throw new UnsupportedOperationException("Not available in the file sandbox, use Files.newByteChannel");
+        }
+    }
+
+    static private final class SandboxFileReader extends FileReader
+    {
+        private final InputStreamReader in;
+
+        SandboxFileReader(InputStream in, Charset charset) {
+            super(new FileDescriptor());
+
+            this.in = new InputStreamReader(in, charset);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return this.in.read();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return this.in.read(buffer, offset, length);
+        }
+
+        @Override
+        public int read(CharBuffer target) throws IOException {
+            return this.in.read(target);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return this.in.skip(n);
+        }
+
+        @Override
+        public long transferTo(Writer out) throws IOException {
+            return this.in.transferTo(out);
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return this.in.ready();
+        }
+
+        @Override
+        public String getEncoding() {
+            return this.in.getEncoding();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    static private final class SandboxFileWriter extends FileWriter
+    {
+        private final OutputStreamWriter out;
+
+        SandboxFileWriter(OutputStream out, Charset charset) {
+            super(new FileDescriptor());
+
+            this.out = new OutputStreamWriter(out, charset);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            this.out.write(c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            this.out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            this.out.write(string, offset, length);
+        }
+
+        @Override
+        public Writer append(CharSequence sequence) throws IOException {
+            this.out.append(sequence);
+
+            return this;
+        }
+
+        @Override
+        public Writer append(CharSequence sequence, int start, int end) throws IOException {
+            this.out.append(sequence, start, end);
+
+            return this;
+        }
+
+        @Override
+        public String getEncoding() {
+            return this.out.getEncoding();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+
+
+    private SandboxCalls() {}
+}
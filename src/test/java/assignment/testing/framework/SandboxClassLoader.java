@@ -0,0 +1,347 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.ClassTransform;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.CodeElement;
+import java.lang.classfile.CodeTransform;
+import java.lang.classfile.Instruction;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.Opcode;
+import java.lang.classfile.instruction.InvokeInstruction;
+import java.lang.classfile.instruction.NewObjectInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/// Loads application classes again, with their file I/O redirected into the sandbox by rewriting their bytecode
+///
+/// Classes from a directory on the class path of the parent (the compiled submission, not the JDK, the framework or
+/// any jar) are defined by this loader, so the classes they use are loaded, and rewritten, by it too. Every call to
+/// `Path.of`, `Paths.get`, `FileSystems.getDefault`, `File` methods touching the file system, and every `new` of a
+/// file stream, reader, writer or `Scanner` on a file is replaced by a call to the method of the same signature in
+/// `SandboxCalls`. The rest of `java.nio.file` follows from the paths: they belong to the `SandboxFileSystem`.
+///
+/// One loader is kept per parent, so each class is only rewritten once however many sandboxes are created.
+/// `RandomAccessFile` and subclasses of the file streams written by the student are not redirected.
+final class SandboxClassLoader extends ClassLoader
+{
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    static private final String FRAMEWORK_PACKAGE = Utilities.class.getPackageName() + ".";
+    static private final List<String> PLATFORM_PACKAGES = List.of("java.", "javax.", "jdk.", "sun.", "com.sun.");
+
+    static private final ClassDesc SANDBOX_CALLS = ClassDesc.of(SandboxCalls.class.getName());
+
+    /// Call sites to redirect, by owner, name and descriptor, to the method of `SandboxCalls` replacing them
+    static private final Map<String, Redirect> REDIRECTS = SandboxClassLoader.redirects(
+        Redirect.constructor(FileInputStream.class, String.class),
+        Redirect.constructor(FileInputStream.class, File.class),
+        Redirect.constructor(FileOutputStream.class, String.class),
+        Redirect.constructor(FileOutputStream.class, String.class, boolean.class),
+        Redirect.constructor(FileOutputStream.class, File.class),
+        Redirect.constructor(FileOutputStream.class, File.class, boolean.class),
+        Redirect.constructor(FileReader.class, String.class),
+        Redirect.constructor(FileReader.class, File.class),
+        Redirect.constructor(FileReader.class, String.class, Charset.class),
+        Redirect.constructor(FileReader.class, File.class, Charset.class),
+        Redirect.constructor(FileWriter.class, String.class),
+        Redirect.constructor(FileWriter.class, String.class, boolean.class),
+        Redirect.constructor(FileWriter.class, String.class, Charset.class),
+        Redirect.constructor(FileWriter.class, String.class, Charset.class, boolean.class),
+        Redirect.constructor(FileWriter.class, File.class),
+        Redirect.constructor(FileWriter.class, File.class, boolean.class),
+        Redirect.constructor(FileWriter.class, File.class, Charset.class),
+        Redirect.constructor(FileWriter.class, File.class, Charset.class, boolean.class),
+        Redirect.constructor(PrintWriter.class, String.class),
+        Redirect.constructor(PrintWriter.class, String.class, String.class),
+        Redirect.constructor(PrintWriter.class, String.class, Charset.class),
+        Redirect.constructor(PrintWriter.class, File.class),
+        Redirect.constructor(PrintWriter.class, File.class, String.class),
+        Redirect.constructor(PrintWriter.class, File.class, Charset.class),
+        Redirect.constructor(PrintStream.class, String.class),
+        Redirect.constructor(PrintStream.class, String.class, String.class),
+        Redirect.constructor(PrintStream.class, String.class, Charset.class),
+        Redirect.constructor(PrintStream.class, File.class),
+        Redirect.constructor(PrintStream.class, File.class, String.class),
+        Redirect.constructor(PrintStream.class, File.class, Charset.class),
+        Redirect.constructor(Scanner.class, File.class),
+        Redirect.constructor(Scanner.class, File.class, String.class),
+        Redirect.constructor(Scanner.class, File.class, Charset.class),
+        Redirect.method(Path.class, "of", String.class, String[].class),
+        Redirect.method(Paths.class, "get", String.class, String[].class),
+        Redirect.method(FileSystems.class, "getDefault"),
+        Redirect.method(File.class, "toPath"),
+        Redirect.method(File.class, "exists"),
+        Redirect.method(File.class, "isFile"),
+        Redirect.method(File.class, "isDirectory"),
+        Redirect.method(File.class, "canRead"),
+        Redirect.method(File.class, "canWrite"),
+        Redirect.method(File.class, "length"),
+        Redirect.method(File.class, "lastModified"),
+        Redirect.method(File.class, "delete"),
+        Redirect.method(File.class, "mkdir"),
+        Redirect.method(File.class, "mkdirs"),
+        Redirect.method(File.class, "createNewFile"),
+        Redirect.method(File.class, "renameTo", File.class),
+        Redirect.method(File.class, "list"),
+        Redirect.method(File.class, "listFiles")
+    );
+
+
+    /// Classes found (or not found) by `Utilities#findClass` within sandboxes
+    final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+    private final ClassFile classFile;
+
+
+    /// Loader rewriting the classes of `submission`, or of the class path when it is `null`
+    static SandboxClassLoader of(SubmissionClassLoader submission) {
+        return submission == null ? ClassPath.LOADER : submission.sandboxClassLoader();
+    }
+
+    static private final class ClassPath
+    {
+        static final SandboxClassLoader LOADER = new SandboxClassLoader(Utilities.class.getClassLoader());
+    }
+
+
+    SandboxClassLoader(ClassLoader parent) {
+        super("sandbox", parent);
+
+        this.classFile = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(
+            ClassHierarchyResolver.ofResourceParsing(parent)
+        ));
+    }
+
+
+    /// `SandboxCalls` method replacing a call site, `key` as `owner.name(descriptor)` with internal names
+    private record Redirect(String key, String target, MethodTypeDesc type)
+    {
+        static Redirect constructor(Class<?> owner, Class<?>... parameterTypes) {
+            var descriptor = MethodTypeDesc.of(
+                ClassDesc.ofDescriptor(owner.descriptorString()),
+                Arrays.stream(parameterTypes).map(type -> ClassDesc.ofDescriptor(type.descriptorString()))
+                    .toArray(ClassDesc[]::new)
+            );
+
+            return new Redirect(
+                Redirect.key(owner, "<init>", descriptor.changeReturnType(ClassDesc.ofDescriptor("V"))),
+                "new" + owner.getSimpleName(),
+                descriptor
+            );
+        }
+
+        static Redirect method(Class<?> owner, String name, Class<?>... parameterTypes) {
+            try {
+                var method = owner.getMethod(name, parameterTypes);
+                var descriptor = MethodTypeDesc.ofDescriptor(
+                    MethodType.methodType(method.getReturnType(), parameterTypes).toMethodDescriptorString()
+                );
+                var target = Character.toLowerCase(owner.getSimpleName().charAt(0)) + owner.getSimpleName().substring(1)
+                    + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+                return new Redirect(
+                    Redirect.key(owner, name, descriptor),
+                    target,
+                    Modifier.isStatic(method.getModifiers())
+                        ? descriptor
+                        : descriptor.insertParameterTypes(0, ClassDesc.ofDescriptor(owner.descriptorString()))
+                );
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static private String key(Class<?> owner, String name, MethodTypeDesc descriptor) {
+            return owner.getName().replace('.', '/') + "." + name + descriptor.descriptorString();
+        }
+    }
+
+    static private Map<String, Redirect> redirects(Redirect... redirects) {
+        var byKey = new HashMap<String, Redirect>();
+
+        for (var redirect : redirects) {
+            byKey.put(redirect.key(), redirect);
+        }
+
+        return Map.copyOf(byKey);
+    }
+
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!this.isApplicationClass(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (this.getClassLoadingLock(name)) {
+            var classObject = this.findLoadedClass(name);
+
+            if (classObject == null) {
+                classObject = this.findClass(name);
+            }
+
+            if (resolve) {
+                this.resolveClass(classObject);
+            }
+
+            return classObject;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes;
+
+        try (var stream = this.getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (stream == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            bytes = stream.readAllBytes();
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+
+        var redirected = this.redirect(bytes);
+
+        return this.defineClass(name, redirected, 0, redirected.length);
+    }
+
+    private boolean isApplicationClass(String name) {
+        if (name.startsWith(FRAMEWORK_PACKAGE) || PLATFORM_PACKAGES.stream().anyMatch(name::startsWith)) {
+            return false;
+        }
+
+        var resource = this.getParent().getResource(name.replace('.', '/') + ".class");
+
+        return resource != null && resource.getProtocol().equals("file");
+    }
+
+
+    /// `bytes` with the file I/O call sites redirected, as they are when there are none
+    byte[] redirect(byte[] bytes) {
+        var model = this.classFile.parse(bytes);
+
+        if (model.methods().stream().noneMatch(SandboxClassLoader::hasRedirects)) {
+            return bytes;
+        }
+
+        return this.classFile.transformClass(model, ClassTransform.transformingMethodBodies(
+            SandboxClassLoader::hasRedirects, CodeTransform.ofStateful(Redirector::new)
+        ));
+    }
+
+    static private boolean hasRedirects(MethodModel method) {
+        return method.code().stream().flatMap(code -> code.elementList().stream()).anyMatch(element ->
+            element instanceof InvokeInstruction invoke && REDIRECTS.containsKey(SandboxClassLoader.key(invoke))
+        );
+    }
+
+    static private String key(InvokeInstruction invoke) {
+        return invoke.owner().asInternalName() + "." + invoke.name().stringValue() + invoke.type().stringValue();
+    }
+
+
+    /// Rewrites the call sites of one method; the code is buffered, as whether a `new` (and the `dup` after it) is
+    /// dropped is only known at the constructor call it is paired with
+    static private final class Redirector implements CodeTransform
+    {
+        private final List<CodeElement> elements = new ArrayList<>();
+
+        @Override
+        public void accept(CodeBuilder builder, CodeElement element) {
+            this.elements.add(element);
+        }
+
+        @Override
+        public void atEnd(CodeBuilder builder) {
+            var dropped = new boolean[this.elements.size()];
+            var replaced = new Redirect[this.elements.size()];
+
+            // `new` instructions waiting for their constructor call, innermost on top; javac nests them properly
+            var pending = new ArrayDeque<Integer>();
+
+            for (var i = 0; i < this.elements.size(); i++) {
+                switch (this.elements.get(i)) {
+                    case NewObjectInstruction _ -> pending.push(i);
+                    case InvokeInstruction invoke when invoke.opcode() == Opcode.INVOKESPECIAL
+                            && invoke.name().stringValue().equals("<init>") -> {
+                        var owner = invoke.owner().asInternalName();
+
+                        // Otherwise a super(...) or this(...) call, not paired with a `new`
+                        if (pending.isEmpty() || !this.newType(pending.peek()).equals(owner)) {
+                            continue;
+                        }
+
+                        var created = pending.pop();
+                        var redirect = REDIRECTS.get(SandboxClassLoader.key(invoke));
+                        var dup = this.nextInstruction(created);
+
+                        var isPaired = dup != -1 && ((Instruction) this.elements.get(dup)).opcode() == Opcode.DUP;
+
+                        if (redirect != null && isPaired) {
+                            dropped[created] = true;
+                            dropped[dup] = true;
+                            replaced[i] = redirect;
+                        }
+                    }
+                    case InvokeInstruction invoke -> replaced[i] = REDIRECTS.get(SandboxClassLoader.key(invoke));
+                    default -> {}
+                }
+            }
+
+            for (var i = 0; i < this.elements.size(); i++) {
+                if (replaced[i] != null) {
+                    builder.invokestatic(SANDBOX_CALLS, replaced[i].target(), replaced[i].type());
+                }
+                else if (!dropped[i]) {
+                    builder.with(this.elements.get(i));
+                }
+            }
+        }
+
+        private String newType(int index) {
+            return ((NewObjectInstruction) this.elements.get(index)).className().asInternalName();
+        }
+
+        private int nextInstruction(int index) {
+            for (var i = index + 1; i < this.elements.size(); i++) {
+                if (this.elements.get(i) instanceof Instruction) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,852 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/// In-memory file system of one `withFileSandbox` scope, the working directory of the student code within it
+///
+/// The root `/` doubles as the working directory, so `Path.of("data.txt")` and `new File("data.txt")` both name
+/// `/data.txt`. File contents are byte arrays shared copy-on-write: a sandbox is created from its fixtures without
+/// copying any contents, and a file is only copied when it is first written to (truncating writes, the usual case,
+/// never copy). `Files.copy` within a sandbox shares the contents the same way.
+///
+/// All operations lock the file system, student code starting threads of its own sees a consistent tree.
+final class SandboxFileSystem extends FileSystem
+{
+    /// File system of the `withFileSandbox` scope the current thread runs in
+    static final ScopedValue<SandboxFileSystem> CURRENT = ScopedValue.newInstance();
+
+    static private final Provider PROVIDER = new Provider();
+
+    /// Fixture directories read from disk, shared by every sandbox created from them
+    static private final Map<Path, Map<String, byte[]>> fixtures = new ConcurrentHashMap<>();
+
+
+    private final Directory root = new Directory();
+    private final SandboxPath rootPath = new SandboxPath(this, true, List.of());
+
+
+    /// Sandbox holding `files`, relative paths to contents; a `null` content is an (empty) directory
+    SandboxFileSystem(Map<String, byte[]> files) {
+        for (var file : files.entrySet()) {
+            var path = this.getPath(file.getKey()).toAbsolutePath().normalize();
+            var directory = this.root;
+
+            for (var i = 0; i < path.getNameCount() - 1; i++) {
+                var entry = directory.entries.computeIfAbsent(path.name(i), _ -> new Directory());
+
+                if (!(entry instanceof Directory parent)) {
+                    var conflicting = this.rootPath.resolve(path.subpath(0, i + 1));
+
+                    throw new IllegalArgumentException(
+                        "Sandbox path %s is below %s, a file".formatted(path, conflicting)
+                    );
+                }
+
+                directory = parent;
+            }
+
+            if (path.getNameCount() > 0) {
+                var name = path.name(path.getNameCount() - 1);
+                var existing = directory.entries.get(name);
+
+                if (existing != null && (existing instanceof Directory) != (file.getValue() == null)) {
+                    throw new IllegalArgumentException(
+                        "Sandbox path %s is both a file and a directory".formatted(path)
+                    );
+                }
+
+                if (existing == null) {
+                    directory.entries.put(
+                        name, file.getValue() == null ? new Directory() : new RegularFile(file.getValue())
+                    );
+                }
+            }
+        }
+    }
+
+    /// Files and directories below `directory`, read once per JVM
+    static Map<String, byte[]> fixtures(Path directory) {
+        return SandboxFileSystem.fixtures.computeIfAbsent(directory.toAbsolutePath().normalize(), root -> {
+            var files = new HashMap<String, byte[]>();
+
+            try (var paths = Files.walk(root)) {
+                for (var path : (Iterable<Path>) paths::iterator) {
+                    if (path.equals(root)) {
+                        continue;
+                    }
+
+                    var name = root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+
+                    files.put(name, Files.isDirectory(path) ? null : Files.readAllBytes(path));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            return Collections.unmodifiableMap(files);
+        });
+    }
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Tree
+    ///-----------------------------------------------------------------------------------------------------------------
+    static private sealed abstract class Node permits Directory, RegularFile
+    {
+        FileTime modified = FileTime.fromMillis(System.currentTimeMillis());
+    }
+
+    static private final class Directory extends Node
+    {
+        final TreeMap<String, Node> entries = new TreeMap<>();
+    }
+
+    static private final class RegularFile extends Node
+    {
+        static private final byte[] EMPTY = new byte[0];
+
+        private byte[] bytes;
+        private int size;
+        private boolean shared;
+
+        RegularFile(byte[] bytes) {
+            this.bytes = bytes;
+            this.size = bytes.length;
+            this.shared = true;
+        }
+
+        RegularFile copy() {
+            this.shared = true;
+
+            var copy = new RegularFile(this.bytes);
+
+            copy.size = this.size;
+
+            return copy;
+        }
+
+        void truncate(long size) {
+            if (size == 0) {
+                this.bytes = EMPTY;
+                this.shared = false;
+            }
+
+            this.size = (int) Math.min(this.size, size);
+            this.modified = FileTime.fromMillis(System.currentTimeMillis());
+        }
+
+        int read(long position, ByteBuffer destination) {
+            if (position >= this.size) {
+                return -1;
+            }
+
+            var length = (int) Math.min(destination.remaining(), this.size - position);
+
+            destination.put(this.bytes, (int) position, length);
+
+            return length;
+        }
+
+        int write(long position, ByteBuffer source) {
+            var length = source.remaining();
+            var end = Math.toIntExact(position + length);
+
+            if (this.shared || end > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(end, this.shared ? this.size : this.bytes.length * 2));
+                this.shared = false;
+            }
+
+            if (position > this.size) {
+                Arrays.fill(this.bytes, this.size, (int) position, (byte) 0);
+            }
+
+            source.get(this.bytes, (int) position, length);
+
+            this.size = Math.max(this.size, end);
+            this.modified = FileTime.fromMillis(System.currentTimeMillis());
+
+            return length;
+        }
+    }
+
+
+    /// Node at `path`, `null` when there is none
+    private Node find(Path path) {
+        var absolute = SandboxFileSystem.check(path).toAbsolutePath().normalize();
+        Node node = this.root;
+
+        for (var i = 0; i < absolute.getNameCount(); i++) {
+            if (!(node instanceof Directory directory)) {
+                return null;
+            }
+
+            node = directory.entries.get(absolute.name(i));
+        }
+
+        return node;
+    }
+
+    private Node get(Path path) throws NoSuchFileException {
+        var node = this.find(path);
+
+        if (node == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+
+        return node;
+    }
+
+    /// Directory that holds (or is to hold) `path`
+    private Directory parent(Path path) throws IOException {
+        var parent = SandboxFileSystem.check(path).toAbsolutePath().normalize().getParent();
+
+        if (parent == null) {
+            throw new FileSystemException(path.toString(), null, "Not a file");
+        }
+
+        if (!(this.get(parent) instanceof Directory directory)) {
+            throw new NotDirectoryException(parent.toString());
+        }
+
+        return directory;
+    }
+
+    static private String fileName(Path path) {
+        var absolute = SandboxFileSystem.check(path).toAbsolutePath().normalize();
+
+        return absolute.name(absolute.getNameCount() - 1);
+    }
+
+    static private SandboxPath check(Path path) {
+        if (!(path instanceof SandboxPath sandboxPath)) {
+            throw new ProviderMismatchException(path.getClass().getName());
+        }
+
+        return sandboxPath;
+    }
+
+
+    /// Paths of all regular files, relative to the root and sorted
+    synchronized List<String> files() {
+        var files = new ArrayList<String>();
+
+        SandboxFileSystem.collect(this.root, "", files);
+
+        return files;
+    }
+
+    static private void collect(Directory directory, String prefix, List<String> files) {
+        for (var entry : directory.entries.entrySet()) {
+            if (entry.getValue() instanceof Directory child) {
+                SandboxFileSystem.collect(child, prefix + entry.getKey() + "/", files);
+            }
+            else {
+                files.add(prefix + entry.getKey());
+            }
+        }
+    }
+
+    /// Contents of the regular file at `path`, `null` when there is none; not copied, only to be read
+    synchronized ByteBuffer contents(Path path) {
+        if (!(this.find(path) instanceof RegularFile file)) {
+            return null;
+        }
+
+        return ByteBuffer.wrap(file.bytes, 0, file.size).asReadOnlyBuffer();
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: FileSystem
+    ///-----------------------------------------------------------------------------------------------------------------
+    @Override
+    public FileSystemProvider provider() {
+        return PROVIDER;
+    }
+
+    @Override
+    public void close() {
+        // Discarded with its scope
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public String getSeparator() {
+        return "/";
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return List.of(this.rootPath);
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        return List.of();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return Set.of("basic");
+    }
+
+    @Override
+    public SandboxPath getPath(String first, String... more) {
+        var names = new ArrayList<String>();
+
+        for (var part : SandboxFileSystem.concat(first, more)) {
+            for (var name : part.split("/")) {
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+
+        return new SandboxPath(this, first.startsWith("/"), List.copyOf(names));
+    }
+
+    static private List<String> concat(String first, String... more) {
+        var parts = new ArrayList<String>();
+
+        parts.add(first);
+        parts.addAll(Arrays.asList(more));
+
+        return parts;
+    }
+
+    /// Matches the same patterns as the default file system, on the path as a string
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        var matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+
+        return path -> matcher.matches(Path.of(path.toString()));
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException("Not available in the file sandbox");
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException("Not available in the file sandbox");
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Provider
+    ///-----------------------------------------------------------------------------------------------------------------
+    record Attributes(FileTime lastModifiedTime, boolean isRegularFile, boolean isDirectory, long size)
+        implements BasicFileAttributes
+    {
+        @Override
+        public FileTime lastAccessTime() {
+            return this.lastModifiedTime;
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return this.lastModifiedTime;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public Object fileKey() {
+            return null;
+        }
+    }
+
+    static private final class Provider extends FileSystemProvider
+    {
+        @Override
+        public String getScheme() {
+            return "sandbox";
+        }
+
+        @Override
+        public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+            throw new UnsupportedOperationException("Sandboxes are created by withFileSandbox");
+        }
+
+        @Override
+        public FileSystem getFileSystem(URI uri) {
+            if (!CURRENT.isBound()) {
+                throw new FileSystemNotFoundException("Not within withFileSandbox");
+            }
+
+            return CURRENT.get();
+        }
+
+        @Override
+        public Path getPath(URI uri) {
+            return this.getFileSystem(uri).getPath(uri.getSchemeSpecificPart());
+        }
+
+        @Override
+        public SeekableByteChannel newByteChannel(
+                Path path, Set<? extends OpenOption> options, FileAttribute<?>... attributes
+        ) throws IOException {
+            var fileSystem = SandboxFileSystem.check(path).getFileSystem();
+
+            synchronized (fileSystem) {
+                var writing = options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND);
+                var node = fileSystem.find(path);
+
+                if (node instanceof Directory) {
+                    throw new FileSystemException(path.toString(), null, "Is a directory");
+                }
+
+                if (node == null) {
+                    var creating = writing && (
+                        options.contains(StandardOpenOption.CREATE) || options.contains(StandardOpenOption.CREATE_NEW)
+                    );
+
+                    if (!creating) {
+                        throw new NoSuchFileException(path.toString());
+                    }
+
+                    node = new RegularFile(RegularFile.EMPTY);
+                    fileSystem.parent(path).entries.put(SandboxFileSystem.fileName(path), node);
+                }
+                else if (writing && options.contains(StandardOpenOption.CREATE_NEW)) {
+                    throw new FileAlreadyExistsException(path.toString());
+                }
+
+                var file = (RegularFile) node;
+
+                if (writing && options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+                    file.truncate(0);
+                }
+
+                return new Channel(
+                    fileSystem, file, !writing || options.contains(StandardOpenOption.READ), writing,
+                    options.contains(StandardOpenOption.APPEND)
+                );
+            }
+        }
+
+        @Override
+        public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+                throws IOException {
+            var fileSystem = SandboxFileSystem.check(dir).getFileSystem();
+            var entries = new ArrayList<Path>();
+
+            synchronized (fileSystem) {
+                if (!(fileSystem.get(dir) instanceof Directory directory)) {
+                    throw new NotDirectoryException(dir.toString());
+                }
+
+                for (var name : directory.entries.keySet()) {
+                    var entry = dir.resolve(name);
+
+                    if (filter.accept(entry)) {
+                        entries.add(entry);
+                    }
+                }
+            }
+
+            return new DirectoryStream<>() {
+                @Override
+                public Iterator<Path> iterator() {
+                    return entries.iterator();
+                }
+
+                @Override
+                public void close() {}
+            };
+        }
+
+        @Override
+        public void createDirectory(Path dir, FileAttribute<?>... attributes) throws IOException {
+            var fileSystem = SandboxFileSystem.check(dir).getFileSystem();
+
+            synchronized (fileSystem) {
+                if (fileSystem.find(dir) != null) {
+                    throw new FileAlreadyExistsException(dir.toString());
+                }
+
+                fileSystem.parent(dir).entries.put(SandboxFileSystem.fileName(dir), new Directory());
+            }
+        }
+
+        @Override
+        public void delete(Path path) throws IOException {
+            var fileSystem = SandboxFileSystem.check(path).getFileSystem();
+
+            synchronized (fileSystem) {
+                if (fileSystem.get(path) instanceof Directory directory && !directory.entries.isEmpty()) {
+                    throw new DirectoryNotEmptyException(path.toString());
+                }
+
+                fileSystem.parent(path).entries.remove(SandboxFileSystem.fileName(path));
+            }
+        }
+
+        @Override
+        public void copy(Path source, Path target, CopyOption... options) throws IOException {
+            this.transfer(source, target, false, options);
+        }
+
+        @Override
+        public void move(Path source, Path target, CopyOption... options) throws IOException {
+            this.transfer(source, target, true, options);
+        }
+
+        private void transfer(Path source, Path target, boolean moving, CopyOption... options) throws IOException {
+            var fileSystem = SandboxFileSystem.check(source).getFileSystem();
+
+            if (SandboxFileSystem.check(target).getFileSystem() != fileSystem) {
+                throw new ProviderMismatchException("Not in the same sandbox");
+            }
+
+            synchronized (fileSystem) {
+                var node = fileSystem.get(source);
+                var existing = fileSystem.find(target);
+
+                if (existing == node) {
+                    return;
+                }
+
+                if (existing != null) {
+                    if (!Arrays.asList(options).contains(StandardCopyOption.REPLACE_EXISTING)) {
+                        throw new FileAlreadyExistsException(target.toString());
+                    }
+
+                    this.delete(target);
+                }
+
+                var copy = moving ? node : node instanceof RegularFile file ? file.copy() : new Directory();
+
+                fileSystem.parent(target).entries.put(SandboxFileSystem.fileName(target), copy);
+
+                if (moving) {
+                    fileSystem.parent(source).entries.remove(SandboxFileSystem.fileName(source));
+                }
+            }
+        }
+
+        @Override
+        public boolean isSameFile(Path path, Path path2) throws IOException {
+            var fileSystem = SandboxFileSystem.check(path).getFileSystem();
+
+            synchronized (fileSystem) {
+                return path.equals(path2) || fileSystem.get(path) == fileSystem.find(path2);
+            }
+        }
+
+        @Override
+        public boolean isHidden(Path path) {
+            var fileName = path.getFileName();
+
+            return fileName != null && fileName.toString().startsWith(".");
+        }
+
+        @Override
+        public FileStore getFileStore(Path path) {
+            throw new UnsupportedOperationException("Not available in the file sandbox");
+        }
+
+        @Override
+        public void checkAccess(Path path, AccessMode... modes) throws IOException {
+            var fileSystem = SandboxFileSystem.check(path).getFileSystem();
+
+            synchronized (fileSystem) {
+                fileSystem.get(path);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+            if (type != BasicFileAttributeView.class) {
+                return null;
+            }
+
+            return (V) new BasicFileAttributeView() {
+                @Override
+                public String name() {
+                    return "basic";
+                }
+
+                @Override
+                public BasicFileAttributes readAttributes() throws IOException {
+                    return Provider.this.readAttributes(path, BasicFileAttributes.class);
+                }
+
+                @Override
+                public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime)
+                        throws IOException {
+                    if (lastModifiedTime != null) {
+                        Provider.this.setAttribute(path, "lastModifiedTime", lastModifiedTime);
+                    }
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+                throws IOException {
+            if (!type.isAssignableFrom(Attributes.class)) {
+                throw new UnsupportedOperationException("Only basic file attributes are available in the file sandbox");
+            }
+
+            var fileSystem = SandboxFileSystem.check(path).getFileSystem();
+
+            synchronized (fileSystem) {
+                var node = fileSystem.get(path);
+
+                return (A) new Attributes(
+                    node.modified,
+                    node instanceof RegularFile,
+                    node instanceof Directory,
+                    node instanceof RegularFile file ? file.size : 0
+                );
+            }
+        }
+
+        @Override
+        public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options)
+                throws IOException {
+            var read = this.readAttributes(path, BasicFileAttributes.class);
+            var all = new HashMap<String, Object>();
+
+            all.put("lastModifiedTime", read.lastModifiedTime());
+            all.put("lastAccessTime", read.lastAccessTime());
+            all.put("creationTime", read.creationTime());
+            all.put("size", read.size());
+            all.put("isRegularFile", read.isRegularFile());
+            all.put("isDirectory", read.isDirectory());
+            all.put("isSymbolicLink", read.isSymbolicLink());
+            all.put("isOther", read.isOther());
+            all.put("fileKey", read.fileKey());
+
+            var names = attributes.startsWith("basic:") ? attributes.substring("basic:".length()) : attributes;
+
+            if (names.equals("*")) {
+                return all;
+            }
+
+            var selected = new HashMap<String, Object>();
+
+            for (var name : names.split(",")) {
+                if (!all.containsKey(name)) {
+                    throw new IllegalArgumentException("Unknown attribute: " + name);
+                }
+
+                selected.put(name, all.get(name));
+            }
+
+            return selected;
+        }
+
+        @Override
+        public void setAttribute(Path path, String attribute, Object value, LinkOption... options)
+                throws IOException {
+            var name = attribute.startsWith("basic:") ? attribute.substring("basic:".length()) : attribute;
+
+            if (!name.equals("lastModifiedTime")) {
+                throw new UnsupportedOperationException("Only lastModifiedTime can be set in the file sandbox");
+            }
+
+            var fileSystem = SandboxFileSystem.check(path).getFileSystem();
+
+            synchronized (fileSystem) {
+                fileSystem.get(path).modified = (FileTime) value;
+            }
+        }
+    }
+
+
+    static private final class Channel implements SeekableByteChannel
+    {
+        private final SandboxFileSystem fileSystem;
+        private final RegularFile file;
+        private final boolean readable;
+        private final boolean writable;
+        private final boolean append;
+        private long position;
+        private boolean open = true;
+
+        Channel(SandboxFileSystem fileSystem, RegularFile file, boolean readable, boolean writable, boolean append) {
+            this.fileSystem = fileSystem;
+            this.file = file;
+            this.readable = readable;
+            this.writable = writable;
+            this.append = append;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            synchronized (this.fileSystem) {
+                this.ensureOpen();
+
+                if (!this.readable) {
+                    throw new NonReadableChannelException();
+                }
+
+                var read = this.file.read(this.position, destination);
+
+                if (read > 0) {
+                    this.position += read;
+                }
+
+                return read;
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            synchronized (this.fileSystem) {
+                this.ensureOpen();
+
+                if (!this.writable) {
+                    throw new NonWritableChannelException();
+                }
+
+                if (this.append) {
+                    this.position = this.file.size;
+                }
+
+                var written = this.file.write(this.position, source);
+
+                this.position += written;
+
+                return written;
+            }
+        }
+
+        @Override
+        public long position() throws IOException {
+            synchronized (this.fileSystem) {
+                this.ensureOpen();
+
+                return this.position;
+            }
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            synchronized (this.fileSystem) {
+                this.ensureOpen();
+
+                this.position = newPosition;
+
+                return this;
+            }
+        }
+
+        @Override
+        public long size() throws IOException {
+            synchronized (this.fileSystem) {
+                this.ensureOpen();
+
+                return this.file.size;
+            }
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            synchronized (this.fileSystem) {
+                this.ensureOpen();
+
+                if (!this.writable) {
+                    throw new NonWritableChannelException();
+                }
+
+                this.file.truncate(size);
+                this.position = Math.min(this.position, size);
+
+                return this;
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            synchronized (this.fileSystem) {
+                return this.open;
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this.fileSystem) {
+                this.open = false;
+            }
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!this.open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
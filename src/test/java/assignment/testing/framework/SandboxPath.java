@@ -0,0 +1,225 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/// Path in a `SandboxFileSystem`, `/`-separated; relative paths resolve against the root
+final class SandboxPath implements Path
+{
+    private final SandboxFileSystem fileSystem;
+    private final boolean absolute;
+    private final List<String> names;
+
+
+    SandboxPath(SandboxFileSystem fileSystem, boolean absolute, List<String> names) {
+        this.fileSystem = fileSystem;
+        this.absolute = absolute;
+        this.names = names;
+    }
+
+
+    String name(int index) {
+        return this.names.get(index);
+    }
+
+
+    @Override
+    public SandboxFileSystem getFileSystem() {
+        return this.fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return this.absolute;
+    }
+
+    @Override
+    public Path getRoot() {
+        return this.absolute ? new SandboxPath(this.fileSystem, true, List.of()) : null;
+    }
+
+    @Override
+    public Path getFileName() {
+        if (this.names.isEmpty()) {
+            return this.absolute ? null : this;
+        }
+
+        return new SandboxPath(this.fileSystem, false, List.of(this.names.getLast()));
+    }
+
+    @Override
+    public Path getParent() {
+        if (this.names.isEmpty() || (this.names.size() == 1 && !this.absolute)) {
+            return null;
+        }
+
+        return new SandboxPath(this.fileSystem, this.absolute, this.names.subList(0, this.names.size() - 1));
+    }
+
+    @Override
+    public int getNameCount() {
+        return this.names.size();
+    }
+
+    @Override
+    public Path getName(int index) {
+        return new SandboxPath(this.fileSystem, false, List.of(this.names.get(index)));
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+        return new SandboxPath(this.fileSystem, false, this.names.subList(beginIndex, endIndex));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        return other instanceof SandboxPath path
+            && path.fileSystem == this.fileSystem
+            && path.absolute == this.absolute
+            && path.names.size() <= this.names.size()
+            && this.names.subList(0, path.names.size()).equals(path.names);
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof SandboxPath path) || path.fileSystem != this.fileSystem) {
+            return false;
+        }
+
+        if (path.absolute) {
+            return this.equals(path);
+        }
+
+        return path.names.size() <= this.names.size()
+            && this.names.subList(this.names.size() - path.names.size(), this.names.size()).equals(path.names);
+    }
+
+    @Override
+    public SandboxPath normalize() {
+        var normalized = new ArrayList<String>();
+
+        for (var name : this.names) {
+            if (name.equals(".")) {
+                continue;
+            }
+
+            if (name.equals("..") && !normalized.isEmpty() && !normalized.getLast().equals("..")) {
+                normalized.removeLast();
+            }
+            else if (!name.equals("..") || !this.absolute) {
+                normalized.add(name);
+            }
+        }
+
+        return new SandboxPath(this.fileSystem, this.absolute, List.copyOf(normalized));
+    }
+
+    @Override
+    public Path resolve(Path other) {
+        var path = (SandboxPath) other;
+
+        if (path.absolute) {
+            return path;
+        }
+
+        var names = new ArrayList<>(this.names);
+
+        names.addAll(path.names);
+
+        return new SandboxPath(this.fileSystem, this.absolute, List.copyOf(names));
+    }
+
+    @Override
+    public Path relativize(Path other) {
+        var path = (SandboxPath) other;
+
+        if (path.absolute != this.absolute) {
+            throw new IllegalArgumentException("Only paths that are both absolute or both relative can be relativized");
+        }
+
+        var common = 0;
+
+        while (common < this.names.size() && common < path.names.size()
+                && this.names.get(common).equals(path.names.get(common))) {
+            common++;
+        }
+
+        var names = new ArrayList<String>();
+
+        for (var i = common; i < this.names.size(); i++) {
+            names.add("..");
+        }
+
+        names.addAll(path.names.subList(common, path.names.size()));
+
+        return new SandboxPath(this.fileSystem, false, List.copyOf(names));
+    }
+
+    @Override
+    public URI toUri() {
+        try {
+            return new URI("sandbox", this.toAbsolutePath().toString(), null);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public SandboxPath toAbsolutePath() {
+        return this.absolute ? this : new SandboxPath(this.fileSystem, true, this.names);
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws IOException {
+        this.fileSystem.provider().checkAccess(this);
+
+        return this.toAbsolutePath().normalize();
+    }
+
+    /// File of the same name, which the file APIs of student code within the sandbox resolve in the sandbox again
+    @Override
+    public File toFile() {
+        return new File(this.toString());
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("Not available in the file sandbox");
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return this.toString().compareTo(other.toString());
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SandboxPath path
+            && path.fileSystem == this.fileSystem
+            && path.absolute == this.absolute
+            && path.names.equals(this.names);
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(this.absolute) * 31 + this.names.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return (this.absolute ? "/" : "") + String.join("/", this.names);
+    }
+}
@@ -0,0 +1,213 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/// Snapshots of one test class, in a single append-only file read through a memory-mapped `FileChannel`
+///
+/// The file starts with `MAGIC`, followed by records of a key and a value, each an `int` length and that many bytes.
+/// A record for a key supersedes all earlier records for it, so updating a snapshot appends a record and leaves the
+/// rest of the file untouched. The index of the latest record per key is built by scanning the record headers once,
+/// values stay in the mapping and are only compared, never decoded, by `Snapshots`.
+///
+/// Once superseded records take up more than half of the file, it is compacted when opened for updating.
+final class SnapshotStore
+{
+    static private final byte[] MAGIC = "SNAPSHOTS1\n".getBytes(StandardCharsets.US_ASCII);
+
+
+    private final Path file;
+    private final Map<String, ByteBuffer> index = new HashMap<>();
+    private long liveBytes;
+    private long size;
+
+
+    /// Open (and index) the snapshots in `file`, which does not need to exist
+    ///
+    /// For `updating`, the file is read onto the heap instead of mapped, as a mapped file can not be truncated or
+    /// replaced on every platform; a record cut short by an interrupted write is truncated, and the file compacted
+    /// when needed.
+    SnapshotStore(Path file, boolean updating) {
+        this.file = file;
+
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.size = channel.size();
+
+            if (this.size == 0) {
+                return;
+            }
+
+            ByteBuffer contents;
+
+            if (updating) {
+                contents = ByteBuffer.allocate(Math.toIntExact(this.size));
+
+                while (contents.hasRemaining() && channel.read(contents) >= 0) {
+                    // Read all of it
+                }
+
+                contents.flip();
+            }
+            else {
+                contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+            }
+
+            var complete = this.scan(contents);
+
+            if (updating && complete < this.size) {
+                this.truncate(complete);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (updating && this.size - MAGIC.length > 2 * this.liveBytes) {
+            this.compact();
+        }
+    }
+
+
+    /// Latest snapshot stored under `key`, `null` when there is none
+    synchronized ByteBuffer get(String key) {
+        var value = this.index.get(key);
+
+        return value == null ? null : value.asReadOnlyBuffer();
+    }
+
+    /// Store `value` under `key` by appending a record
+    synchronized void put(String key, byte[] value) {
+        var record = SnapshotStore.record(key, value);
+
+        try {
+            Files.createDirectories(this.file.toAbsolutePath().getParent());
+
+            try (var channel = FileChannel.open(
+                this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
+            )) {
+                if (channel.size() == 0) {
+                    channel.write(ByteBuffer.wrap(MAGIC));
+                    this.size = MAGIC.length;
+                }
+
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var previous = this.index.put(key, ByteBuffer.wrap(value));
+
+        this.liveBytes += record.capacity() - (previous == null ? 0 : SnapshotStore.recordSize(key, previous));
+        this.size += record.capacity();
+    }
+
+
+    /// Index the records of `contents`, returns the end of the last complete record
+    private long scan(ByteBuffer contents) {
+        if (contents.remaining() < MAGIC.length || !contents.slice(0, MAGIC.length).equals(ByteBuffer.wrap(MAGIC))) {
+            throw new IllegalStateException("Not a snapshot file: " + this.file);
+        }
+
+        var position = MAGIC.length;
+
+        while (position + Integer.BYTES <= contents.limit()) {
+            var keyLength = contents.getInt(position);
+
+            if (keyLength < 0 || keyLength > contents.limit() - position - 2 * Integer.BYTES) {
+                break;
+            }
+
+            var valueStart = position + Integer.BYTES + keyLength + Integer.BYTES;
+            var valueLength = contents.getInt(valueStart - Integer.BYTES);
+
+            if (valueLength < 0 || valueLength > contents.limit() - valueStart) {
+                break;
+            }
+
+            var key = StandardCharsets.UTF_8.decode(contents.slice(position + Integer.BYTES, keyLength)).toString();
+            var previous = this.index.put(key, contents.slice(valueStart, valueLength));
+
+            this.liveBytes += valueStart + valueLength - position;
+
+            if (previous != null) {
+                this.liveBytes -= SnapshotStore.recordSize(key, previous);
+            }
+
+            position = valueStart + valueLength;
+        }
+
+        return position;
+    }
+
+    private void truncate(long complete) throws IOException {
+        try (var channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+            channel.truncate(complete);
+        }
+
+        this.size = complete;
+    }
+
+    /// Rewrite the file with only the latest record per key
+    private void compact() {
+        var temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+
+        try {
+            try (var channel = FileChannel.open(
+                temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+            )) {
+                channel.write(ByteBuffer.wrap(MAGIC));
+
+                for (var entry : this.index.entrySet()) {
+                    var value = new byte[entry.getValue().remaining()];
+
+                    entry.getValue().duplicate().get(value);
+
+                    var record = SnapshotStore.record(entry.getKey(), value);
+
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+            }
+
+            Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.size = MAGIC.length + this.liveBytes;
+    }
+
+
+    static private ByteBuffer record(String key, byte[] value) {
+        var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        return ByteBuffer.allocate(Integer.BYTES + keyBytes.length + Integer.BYTES + value.length)
+            .putInt(keyBytes.length).put(keyBytes)
+            .putInt(value.length).put(value)
+            .flip()
+        ;
+    }
+
+    static private long recordSize(String key, ByteBuffer value) {
+        return Integer.BYTES + key.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES + value.remaining();
+    }
+}
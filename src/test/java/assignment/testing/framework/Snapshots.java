@@ -0,0 +1,124 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+import org.opentest4j.AssertionFailedError;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static java.lang.ScopedValue.where;
+
+
+/// Approved snapshots of output and object state, compared against by `assertMatchesSnapshot`
+///
+/// Snapshots of a test class are stored in `src/test/snapshots/<test class>.snap` (`-Dassignment.snapshots.directory
+/// =<path>`), see `SnapshotStore`, under `<test method>/<name>`, or `<test method>[<invocation>]/<name>` for the
+/// invocations of a `@ParameterizedTest` or `@RepeatedTest`, numbered from 1. The bytes produced by a test are compared against
+/// the stored bytes as they are, and only decoded to report a mismatch.
+///
+/// A missing snapshot fails the test. With `-Dassignment.snapshots.update=true`, missing and changed snapshots are
+/// stored instead (only those, unchanged snapshots are not written again) and the assertion passes.
+final class Snapshots implements InvocationInterceptor
+{
+    static private final boolean UPDATE = Boolean.getBoolean("assignment.snapshots.update");
+    static private final Path DIRECTORY = Path.of(
+        System.getProperty("assignment.snapshots.directory", "src/test/snapshots")
+    );
+
+    /// Test running on this thread, bound around each test method of a `BaseAssignment`
+    static final ScopedValue<ExtensionContext> TEST = ScopedValue.newInstance();
+
+    static private final ClassValue<SnapshotStore> stores = new ClassValue<>() {
+        @Override
+        protected SnapshotStore computeValue(Class<?> testClass) {
+            return new SnapshotStore(Snapshots.file(testClass), UPDATE);
+        }
+    };
+
+
+    @Override
+    public void interceptTestMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext,
+            ExtensionContext extensionContext
+    ) throws Throwable {
+        where(TEST, extensionContext).call(() -> {
+            invocation.proceed();
+            return null;
+        });
+    }
+
+    @Override
+    public void interceptTestTemplateMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> invocationContext,
+            ExtensionContext extensionContext
+    ) throws Throwable {
+        this.interceptTestMethod(invocation, invocationContext, extensionContext);
+    }
+
+
+    /// Compare `actual` against snapshot `name` of the running test (or store it, when updating)
+    static void assertMatches(String name, byte[] actual) {
+        if (!TEST.isBound()) {
+            throw new IllegalStateException("Snapshots are only available within tests of a BaseAssignment");
+        }
+
+        var test = TEST.get();
+        var store = Snapshots.stores.get(test.getRequiredTestClass());
+
+        GradingCache.recordFile(Snapshots.file(test.getRequiredTestClass()));
+        var key = Snapshots.testKey(test) + "/" + name;
+        var expected = store.get(key);
+
+        if (expected != null && expected.mismatch(ByteBuffer.wrap(actual)) == -1) {
+            return;
+        }
+
+        if (UPDATE) {
+            store.put(key, actual);
+            return;
+        }
+
+        if (expected == null) {
+            throw new AssertionFailedError(
+                "No snapshot \"%s\", record it by running with -Dassignment.snapshots.update=true".formatted(key)
+            );
+        }
+
+        var offset = expected.mismatch(ByteBuffer.wrap(actual));
+
+        throw new AssertionFailedError(
+            "Snapshot \"%s\" differs from byte %,d".formatted(key, offset),
+            StandardCharsets.UTF_8.decode(expected).toString(),
+            new String(actual, StandardCharsets.UTF_8)
+        );
+    }
+
+
+    static private Path file(Class<?> testClass) {
+        return DIRECTORY.resolve(testClass.getName() + ".snap");
+    }
+
+    /// Name of the test method, with the invocation index of a test template, e.g. `sorts[3]`, from the last segment
+    /// of the unique id (`[test-template-invocation:#3]`); the index, unlike the display name, does not change with
+    /// the arguments
+    static private String testKey(ExtensionContext test) {
+        var methodName = test.getRequiredTestMethod().getName();
+        var uniqueId = test.getUniqueId();
+        var marker = "[test-template-invocation:#";
+        var start = uniqueId.lastIndexOf(marker);
+
+        if (start == -1 || !uniqueId.endsWith("]")) {
+            return methodName;
+        }
+
+        return methodName + "[" + uniqueId.substring(start + marker.length(), uniqueId.length() - 1) + "]";
+    }
+}
@@ -0,0 +1,219 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/// Class loader for the compiled classes of one submission
+///
+/// Classes in the assignment package are only ever loaded from the submission itself, never from the parent, so a
+/// class the student has not written yet is missing instead of silently resolving to the reference solution on the
+/// class path. Everything else, the framework, JUnit and the suite classes, is shared through the parent.
+///
+/// Classes can also be defined from bytes held in memory instead of their class files, which is how
+/// `MutationTester` loads a mutant of a single class next to the rest of the reference solution.
+final class SubmissionClassLoader extends URLClassLoader
+{
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    static private final String FRAMEWORK_PACKAGE = Utilities.class.getPackageName() + ".";
+
+    private final Path classesDirectory;
+    private final String packageName;
+    private final String packagePrefix;
+    private final String resourcePrefix;
+    private final List<String> sharedClassNames;
+    private final Map<String, byte[]> definitions;
+
+    /// Classes found (or not found) by `Utilities#findClass` within this submission
+    final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+    /// Loader rewriting the classes of this submission for `withFileSandbox`, created when first needed
+    private volatile SandboxClassLoader sandboxClassLoader;
+
+    /// Loaders instrumenting the classes of this submission for `withInvocationCounting` and fuel budgets, outside and
+    /// within `withFileSandbox`, created when first needed
+    private volatile CountingClassLoader countingClassLoader;
+    private volatile CountingClassLoader sandboxedCountingClassLoader;
+
+    /// Headers of the classes of this submission, read when first needed
+    private volatile SubmissionIndex submissionIndex;
+
+
+    SubmissionClassLoader(
+            String name, Path classesDirectory,
+            String packageName, List<String> sharedClassNames,
+            ClassLoader parent
+    ) {
+        this(name, classesDirectory, packageName, sharedClassNames, parent, Map.of());
+    }
+
+    /// Loader defining the classes in `definitions` (by binary name) from their bytes instead of their class files
+    SubmissionClassLoader(
+            String name, Path classesDirectory,
+            String packageName, List<String> sharedClassNames,
+            ClassLoader parent,
+            Map<String, byte[]> definitions
+    ) {
+        super(name, new URL[] { SubmissionClassLoader.toURL(classesDirectory) }, parent);
+
+        this.classesDirectory = classesDirectory;
+        this.packageName = packageName;
+        this.packagePrefix = packageName + ".";
+        this.resourcePrefix = packageName.replace('.', '/') + "/";
+        this.sharedClassNames = sharedClassNames;
+        this.definitions = definitions;
+    }
+
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!this.isSubmissionClass(name)) {
+            return super.loadClass(name, resolve);
+        }
+
+        synchronized (this.getClassLoadingLock(name)) {
+            var classObject = this.findLoadedClass(name);
+
+            if (classObject == null) {
+                classObject = this.findClass(name);
+            }
+
+            if (resolve) {
+                this.resolveClass(classObject);
+            }
+
+            return classObject;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        var bytes = this.definitions.get(name);
+
+        if (bytes != null) {
+            return this.defineClass(name, bytes, 0, bytes.length);
+        }
+
+        return super.findClass(name);
+    }
+
+    /// Class files of classes defined from memory are read from memory too, e.g. by the bytecode checks
+    @Override
+    public InputStream getResourceAsStream(String name) {
+        if (name.endsWith(".class")) {
+            var bytes = this.definitions.get(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+
+            if (bytes != null) {
+                return new ByteArrayInputStream(bytes);
+            }
+        }
+
+        return super.getResourceAsStream(name);
+    }
+
+    @Override
+    public URL getResource(String name) {
+        if (name.startsWith(this.resourcePrefix) && name.endsWith(".class")) {
+            var className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+
+            if (this.isSubmissionClass(className)) {
+                return this.findResource(name);
+            }
+        }
+
+        return super.getResource(name);
+    }
+
+
+    SandboxClassLoader sandboxClassLoader() {
+        var classLoader = this.sandboxClassLoader;
+
+        if (classLoader == null) {
+            synchronized (this) {
+                if (this.sandboxClassLoader == null) {
+                    this.sandboxClassLoader = new SandboxClassLoader(this);
+                }
+
+                classLoader = this.sandboxClassLoader;
+            }
+        }
+
+        return classLoader;
+    }
+
+
+    CountingClassLoader countingClassLoader(boolean sandboxed) {
+        var classLoader = sandboxed ? this.sandboxedCountingClassLoader : this.countingClassLoader;
+
+        if (classLoader == null) {
+            synchronized (this) {
+                if (sandboxed && this.sandboxedCountingClassLoader == null) {
+                    this.sandboxedCountingClassLoader = new CountingClassLoader(this, this.sandboxClassLoader());
+                }
+                else if (!sandboxed && this.countingClassLoader == null) {
+                    this.countingClassLoader = new CountingClassLoader(this, null);
+                }
+
+                classLoader = sandboxed ? this.sandboxedCountingClassLoader : this.countingClassLoader;
+            }
+        }
+
+        return classLoader;
+    }
+
+
+    SubmissionIndex submissionIndex() {
+        var index = this.submissionIndex;
+
+        if (index == null) {
+            synchronized (this) {
+                if (this.submissionIndex == null) {
+                    this.submissionIndex = SubmissionIndex.of(
+                        this.classesDirectory, this.packageName, this, this::isSubmissionClass
+                    );
+                }
+
+                index = this.submissionIndex;
+            }
+        }
+
+        return index;
+    }
+
+
+    private boolean isSubmissionClass(String name) {
+        if (!name.startsWith(this.packagePrefix) || name.startsWith(SubmissionClassLoader.FRAMEWORK_PACKAGE)) {
+            return false;
+        }
+
+        for (var sharedClassName : this.sharedClassNames) {
+            if (name.equals(sharedClassName) || name.startsWith(sharedClassName + "$")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    static private URL toURL(Path directory) {
+        try {
+            return directory.toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.classfile.Annotation;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassModel;
+import java.lang.classfile.attribute.RuntimeInvisibleAnnotationsAttribute;
+import java.lang.classfile.attribute.RuntimeVisibleAnnotationsAttribute;
+import java.lang.classfile.constantpool.ClassEntry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+
+/// Names, supertypes, annotations and member signatures of every class of the assignment package, read once from the
+/// headers of the class files without loading any of them
+///
+/// For a `BatchGrader` submission the index covers the classes its `SubmissionClassLoader` would load (classes defined
+/// from memory included), otherwise the class files of `assignment` in `target/classes` (or
+/// `-Dassignment.classes=<directory>`). Supertypes outside the package, e.g. `Comparable`, are followed through the
+/// class path with reflection, these classes are the framework's or the JDK's and not the student's. Annotations of
+/// any retention are indexed, they are all in the class file. The classes each class refers to are read from its
+/// constant pool, so what a class can reach is known without loading it either.
+final class SubmissionIndex
+{
+    static private final String DEFAULT_PACKAGE = "assignment";
+    static private final Path DEFAULT_CLASSES = Path.of(System.getProperty("assignment.classes", "target/classes"));
+
+
+    /// Header of one class file, names are binary names (`assignment.Outer$Inner`), annotations descriptors;
+    /// `references` are the classes named in its constant pool (instantiated, called, cast to, nested, ...)
+    record Entry(
+            String name, int flags,
+            String superName, List<String> interfaces,
+            Set<String> annotations,
+            List<Member> methods, List<Member> fields,
+            Set<String> references
+    ) {}
+
+    /// Method (with a method descriptor) or field (with a field descriptor)
+    record Member(String name, String descriptor, int flags, Set<String> annotations) {}
+
+
+    private final Map<String, Entry> entries;
+    /// Every supertype of each class, within the package or not, by class name
+    private final Map<String, Set<String>> supertypes = new HashMap<>();
+
+
+    private SubmissionIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+
+        for (var name : entries.keySet()) {
+            this.supertypes(name);
+        }
+    }
+
+
+    /// Index of the submission in scope
+    static SubmissionIndex current() {
+        return Utilities.SUBMISSION.isBound() ? Utilities.SUBMISSION.get().submissionIndex() : Local.INDEX;
+    }
+
+    /// Index of the class files of `packageName` in `classesDirectory` that `include` accepts, read through
+    /// `classLoader` when given (which serves the classes it defines from memory)
+    static SubmissionIndex of(
+            Path classesDirectory, String packageName,
+            ClassLoader classLoader, Predicate<String> include
+    ) {
+        var entries = new TreeMap<String, Entry>();
+        var packageDirectory = classesDirectory.resolve(packageName.replace('.', '/'));
+
+        if (!Files.isDirectory(packageDirectory)) {
+            return new SubmissionIndex(entries);
+        }
+
+        try (var files = Files.walk(packageDirectory)) {
+            for (var file : files.filter(path -> path.toString().endsWith(".class")).toList()) {
+                var relative = classesDirectory.relativize(file).toString();
+                var name = relative.substring(0, relative.length() - ".class".length())
+                    .replace(file.getFileSystem().getSeparator(), ".");
+
+                if (name.endsWith("package-info") || name.endsWith("module-info") || !include.test(name)) {
+                    continue;
+                }
+
+                var resource = relative.replace(file.getFileSystem().getSeparator(), "/");
+
+                try (var stream = classLoader == null ? null : classLoader.getResourceAsStream(resource)) {
+                    var bytes = stream == null ? Files.readAllBytes(file) : stream.readAllBytes();
+
+                    entries.put(name, SubmissionIndex.read(ClassFile.of().parse(bytes)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new SubmissionIndex(entries);
+    }
+
+
+    /// All classes, sorted by name
+    List<String> names() {
+        return List.copyOf(this.entries.keySet());
+    }
+
+    Entry entry(String name) {
+        return this.entries.get(name);
+    }
+
+    /// Classes extending or implementing `type` (a binary name), directly or not
+    List<String> subtypesOf(String type) {
+        return this.select(entry -> this.supertypes.get(entry.name()).contains(type));
+    }
+
+    /// Classes declaring a method named `name` whose descriptor starts with `descriptorPrefix`, e.g. `(I)` for any
+    /// method taking one `int`
+    List<String> declaringMethod(String name, String descriptorPrefix) {
+        return this.select(entry -> entry.methods().stream().anyMatch(
+            method -> method.name().equals(name) && method.descriptor().startsWith(descriptorPrefix)
+        ));
+    }
+
+    /// Classes annotated with `descriptor`, e.g. `Ljava/lang/FunctionalInterface;`
+    List<String> annotatedWith(String descriptor) {
+        return this.select(entry -> entry.annotations().contains(descriptor));
+    }
+
+    /// Classes of the index among `names`, and those they refer to, directly or not
+    Set<String> reachableFrom(Collection<String> names) {
+        var reachable = new TreeSet<String>();
+        var pending = new ArrayDeque<String>(names);
+
+        while (!pending.isEmpty()) {
+            var entry = this.entries.get(pending.pop());
+
+            if (entry != null && reachable.add(entry.name())) {
+                pending.addAll(entry.references());
+            }
+        }
+
+        return reachable;
+    }
+
+    List<String> select(Predicate<Entry> predicate) {
+        return this.entries.values().stream().filter(predicate).map(Entry::name).toList();
+    }
+
+
+    static private Entry read(ClassModel model) {
+        var annotations = new LinkedHashSet<String>();
+
+        for (var element : model) {
+            SubmissionIndex.collectAnnotations(element, annotations);
+        }
+
+        var methods = new ArrayList<Member>();
+
+        for (var method : model.methods()) {
+            var methodAnnotations = new LinkedHashSet<String>();
+
+            for (var element : method) {
+                SubmissionIndex.collectAnnotations(element, methodAnnotations);
+            }
+
+            methods.add(new Member(
+                method.methodName().stringValue(), method.methodType().stringValue(),
+                method.flags().flagsMask(), Set.copyOf(methodAnnotations)
+            ));
+        }
+
+        var fields = new ArrayList<Member>();
+
+        for (var field : model.fields()) {
+            var fieldAnnotations = new LinkedHashSet<String>();
+
+            for (var element : field) {
+                SubmissionIndex.collectAnnotations(element, fieldAnnotations);
+            }
+
+            fields.add(new Member(
+                field.fieldName().stringValue(), field.fieldType().stringValue(),
+                field.flags().flagsMask(), Set.copyOf(fieldAnnotations)
+            ));
+        }
+
+        var references = new LinkedHashSet<String>();
+
+        for (var poolEntry : model.constantPool()) {
+            if (poolEntry instanceof ClassEntry classEntry) {
+                // Array classes name their element type in a descriptor, `[[Lassignment/Point;`
+                var name = classEntry.asInternalName().replaceFirst("^\\[+L(.*);$", "$1");
+
+                references.add(SubmissionIndex.binaryName(name));
+            }
+        }
+
+        return new Entry(
+            SubmissionIndex.binaryName(model.thisClass().asInternalName()),
+            model.flags().flagsMask(),
+            model.superclass().map(superclass -> SubmissionIndex.binaryName(superclass.asInternalName())).orElse(null),
+            model.interfaces().stream().map(type -> SubmissionIndex.binaryName(type.asInternalName())).toList(),
+            Set.copyOf(annotations),
+            List.copyOf(methods), List.copyOf(fields),
+            Set.copyOf(references)
+        );
+    }
+
+    static private void collectAnnotations(Object element, Set<String> annotations) {
+        List<Annotation> found = switch (element) {
+            case RuntimeVisibleAnnotationsAttribute attribute -> attribute.annotations();
+            case RuntimeInvisibleAnnotationsAttribute attribute -> attribute.annotations();
+            default -> List.of();
+        };
+
+        for (var annotation : found) {
+            annotations.add(annotation.classSymbol().descriptorString());
+        }
+    }
+
+
+    /// Supertypes of `name`, from the index within the package and from the class path outside of it
+    private Set<String> supertypes(String name) {
+        var supertypes = this.supertypes.get(name);
+
+        if (supertypes != null) {
+            return supertypes;
+        }
+
+        supertypes = new LinkedHashSet<>();
+        this.supertypes.put(name, supertypes);
+
+        var entry = this.entries.get(name);
+
+        if (entry != null) {
+            var direct = new ArrayList<String>(entry.interfaces());
+
+            if (entry.superName() != null) {
+                direct.addFirst(entry.superName());
+            }
+
+            for (var type : direct) {
+                supertypes.add(type);
+                supertypes.addAll(this.supertypes(type));
+            }
+        }
+        else {
+            try {
+                var classObject = Class.forName(name, false, SubmissionIndex.class.getClassLoader());
+
+                for (var supertype : ClassHierarchy.of(classObject).supertypes()) {
+                    supertypes.add(supertype.getName());
+                }
+            } catch (ClassNotFoundException | LinkageError _) {
+                // Missing from the class path, e.g. a class of the package missing from the submission
+            }
+        }
+
+        return supertypes;
+    }
+
+    static private String binaryName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+
+    /// Index of the class files of the class path, built when first used
+    static private final class Local
+    {
+        static final SubmissionIndex INDEX = SubmissionIndex.of(
+            DEFAULT_CLASSES, DEFAULT_PACKAGE, null, _ -> true
+        );
+    }
+}
@@ -0,0 +1,157 @@
+// SPDX-FileCopyrightText: 2025 Marcus Alexander Dahl (programkode)
+// SPDX-License-Identifier: MPL-2.0
+package assignment.testing.framework;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/// Runs student code on a supervised thread within the wall-clock and CPU time budgets in scope
+///
+/// Budgets are only checked when one is in scope (or `-Dassignment.timeout=<millis>` sets a default per call),
+/// otherwise student code runs directly on the calling thread. A call that overruns its budget is interrupted and
+/// abandoned, it can not be stopped, but it keeps writing into the (capped) capture buffer of its test only, while
+/// the test fails with an `AssertionFailedError` and the suite carries on.
+final class Supervisor
+{
+    static private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    static private final long POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+    static private final long UNLIMITED = Long.MAX_VALUE;
+
+    static final ScopedValue<Budget> BUDGET = ScopedValue.newInstance();
+
+    static private final Budget DEFAULT_BUDGET = Long.getLong("assignment.timeout") == null
+        ? null
+        : new Budget(null, TimeUnit.MILLISECONDS.toNanos(Long.getLong("assignment.timeout")), UNLIMITED, UNLIMITED, UNLIMITED);
+
+
+    /// Limits for each call within a scope, and/or a total shared by all calls within the scope
+    static final class Budget
+    {
+        private final Budget parent;
+        private final long callWallClock;
+        private final long callCpu;
+        private final long scopeDeadline;
+        private final AtomicLong scopeCpuRemaining;
+
+        private Budget(Budget parent, long callWallClock, long callCpu, long scopeWallClock, long scopeCpu) {
+            this.parent = parent;
+            this.callWallClock = callWallClock;
+            this.callCpu = callCpu;
+            this.scopeDeadline = scopeWallClock == UNLIMITED ? UNLIMITED : System.nanoTime() + scopeWallClock;
+            this.scopeCpuRemaining = new AtomicLong(scopeCpu);
+        }
+
+        static Budget perCall(Duration wallClock, Duration cpu) {
+            return new Budget(Supervisor.current(), Supervisor.nanos(wallClock), Supervisor.nanos(cpu), UNLIMITED, UNLIMITED);
+        }
+
+        static Budget perScope(Duration wallClock, Duration cpu) {
+            return new Budget(Supervisor.current(), UNLIMITED, UNLIMITED, Supervisor.nanos(wallClock), Supervisor.nanos(cpu));
+        }
+
+        private long wallClockLimit(long now) {
+            var limit = Math.min(this.callWallClock, this.scopeDeadline == UNLIMITED ? UNLIMITED : this.scopeDeadline - now);
+
+            return this.parent == null ? limit : Math.min(limit, this.parent.wallClockLimit(now));
+        }
+
+        private long cpuLimit() {
+            var limit = Math.min(this.callCpu, this.scopeCpuRemaining.get());
+
+            return this.parent == null ? limit : Math.min(limit, this.parent.cpuLimit());
+        }
+
+        private void charge(long cpu) {
+            if (this.scopeCpuRemaining.get() != UNLIMITED) {
+                this.scopeCpuRemaining.addAndGet(-cpu);
+            }
+
+            if (this.parent != null) {
+                this.parent.charge(cpu);
+            }
+        }
+    }
+
+
+    static boolean isActive() {
+        return BUDGET.isBound() || DEFAULT_BUDGET != null;
+    }
+
+    static private Budget current() {
+        return BUDGET.isBound() ? BUDGET.get() : DEFAULT_BUDGET;
+    }
+
+
+    /// Run `task` on a supervised platform thread, failing when it overruns the budget in scope; `name` is used
+    /// in the failure message
+    static <T> T call(String name, Callable<T> task) throws Exception {
+        var budget = Supervisor.current();
+        var started = System.nanoTime();
+        var wallClockLimit = Math.max(0, budget.wallClockLimit(started));
+        var cpuLimit = Math.max(0, budget.cpuLimit());
+
+        var cpuUsed = new AtomicLong();
+        var contextTask = Utilities.inheritContext(task);
+        var future = new FutureTask<T>(() -> {
+            try {
+                return contextTask.call();
+            } finally {
+                cpuUsed.set(Supervisor.threads.getCurrentThreadCpuTime());
+            }
+        });
+
+        var thread = Thread.ofPlatform().daemon().name("student-code: " + name).start(future);
+
+        while (true) {
+            try {
+                var result = future.get(POLL_INTERVAL, TimeUnit.NANOSECONDS);
+
+                budget.charge(cpuUsed.get());
+
+                return result;
+            } catch (ExecutionException e) {
+                budget.charge(cpuUsed.get());
+
+                if (e.getCause() instanceof Exception exception) throw exception;
+                if (e.getCause() instanceof Error error) throw error;
+                throw e;
+            } catch (TimeoutException _) {
+                var wallClock = System.nanoTime() - started;
+                var cpu = Math.max(0, Supervisor.threads.getThreadCpuTime(thread.threadId()));
+
+                if (wallClock >= wallClockLimit || cpu >= cpuLimit) {
+                    thread.interrupt();
+                    budget.charge(cpu);
+
+                    throw new BudgetExceededError(
+                        "%s exceeded its time budget: %d ms wall-clock time (budget %s), %d ms CPU time (budget %s)".formatted(
+                            name,
+                            TimeUnit.NANOSECONDS.toMillis(wallClock), Supervisor.describe(wallClockLimit),
+                            TimeUnit.NANOSECONDS.toMillis(cpu), Supervisor.describe(cpuLimit)
+                        )
+                    );
+                }
+            }
+        }
+    }
+
+
+    static private long nanos(Duration duration) {
+        return duration == null ? UNLIMITED : duration.toNanos();
+    }
+
+    static private String describe(long nanos) {
+        return nanos == UNLIMITED ? "unlimited" : "%d ms".formatted(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+
+    private Supervisor() {}
+}
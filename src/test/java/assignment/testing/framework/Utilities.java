@@ -4,18 +4,41 @@ package assignment.testing.framework;
 
 import org.opentest4j.AssertionFailedError;
 
-import java.io.ByteArrayOutputStream;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.lang.annotation.Annotation;
 
 import static java.lang.ScopedValue.where;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.lang.ScopedValue;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 
 public class Utilities
@@ -24,160 +47,1332 @@ public class Utilities
     ///# Section: Standard I/O
     ///-----------------------------------------------------------------------------------------------------------------
     static private final PrintStream stdout = System.out;
-    static private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    /// Capture buffer of the current test on the thread running it (or a thread given its context)
+    static private final ThreadLocal<CaptureBuffer> output = new ThreadLocal<>();
+
+    /// The same buffer, inherited by threads the student code starts; used until its test releases it, and never by
+    /// fork-join workers, which are pooled and write for whichever test submits to them later
+    static private final InheritableThreadLocal<CaptureBuffer> inheritedOutput = new InheritableThreadLocal<>();
+
+    /// Capture buffer of the current `captureStandardOutput` scope, takes precedence over the per-test buffer
+    static private final ScopedValue<CaptureBuffer> OUTPUT = ScopedValue.newInstance();
+
+    /// Installed once as `System.out`, forwards every call to the buffer of the calling thread (or scope), and
+    /// falls through to the original standard output when nothing is being captured
+    static private final PrintStream multiplexer = new MultiplexingPrintStream(Utilities::currentPrintStream);
+
+    static private final InputStream stdin = System.in;
+
+    /// Standard input of the current test on the thread running it (or a thread given its context)
+    static private final ThreadLocal<InputFeed> input = new ThreadLocal<>();
+
+    /// The same input, inherited by threads the student code starts; used until its test closes it, and never by
+    /// fork-join workers, as for the capture buffer
+    static private final InheritableThreadLocal<InputFeed> inheritedInput = new InheritableThreadLocal<>();
+
+    /// Installed as `System.in` when the framework is loaded, before any student class can keep a `Scanner` over the
+    /// original, forwards every read to the input of the calling thread, and falls through to the original standard
+    /// input when there is none; installed again whenever a test provides input, in case student code replaced it
+    static private final InputStream inputMultiplexer = new MultiplexingInputStream(Utilities::currentInputStream);
+
+    static {
+        System.setIn(Utilities.inputMultiplexer);
+    }
 
 
     static public String getStandardOutput() {
-        return Utilities.output.toString().replaceAll("\\p{Cntrl}", "");
+        var buffer = Utilities.currentCapture();
+
+        return buffer == null ? "" : buffer.toNormalizedString();
+    }
+
+    /// Start capturing standard output of the current thread into a fresh buffer
+    static public void setStandardOutput() {
+        Utilities.resetStandardOutput();
+        Utilities.setCapture(new CaptureBuffer());
+        Utilities.setStandardOutput(Utilities.multiplexer);
+    }
+
+    static public void setStandardOutput(PrintStream stream) {
+        System.setOut(stream);
+    }
+
+    /// Stop capturing standard output of the current thread; other threads keep their own buffers
+    static public void resetStandardOutput() {
+        var buffer = Utilities.output.get();
+
+        Utilities.removeCapture();
+
+        if (buffer != null) {
+            buffer.release();
+        }
+    }
+
+    /// Capture standard output written within `fn` into a buffer of its own, e.g. one per `testClass` scope
+    static public void captureStandardOutput(Runnable fn) {
+        Utilities.setStandardOutput(Utilities.multiplexer);
+
+        where(Utilities.OUTPUT, new CaptureBuffer()).run(fn);
+    }
+
+    /// Standard output written within `fn`, normalized, captured into a buffer of its own
+    static String captureStandardOutputOf(Runnable fn) {
+        var buffer = new CaptureBuffer();
+
+        Utilities.setStandardOutput(Utilities.multiplexer);
+        where(Utilities.OUTPUT, buffer).run(fn);
+
+        return buffer.toNormalizedString();
+    }
+
+
+    /// Cap captured standard output at `bytes` per buffer (default 8 MiB, or `-Dassignment.output.limit=<bytes>`),
+    /// applies to buffers created from now on
+    static public void setStandardOutputLimit(long bytes) {
+        CaptureBuffer.setDefaultLimit(bytes);
+    }
+
+    /// Whether the captured standard output was truncated at the limit
+    static public boolean standardOutputOverflowed() {
+        var buffer = Utilities.currentCapture();
+
+        return buffer != null && buffer.overflowed();
+    }
+
+
+    /// Provide `input` as standard input of the current test, e.g. `"3\n1 2 3\n"`
+    static public void provideStandardInput(String input) {
+        Utilities.setStandardInput(InputFeed.of(input, Utilities.currentCapture()));
+    }
+
+    /// Provide `lines` as standard input of the current test, each line ended with `\n`
+    static public void provideStandardInput(List<String> lines) {
+        Utilities.provideStandardInput(lines.stream());
+    }
+
+    /// Provide lines generated as the program reads them as standard input of the current test, for large inputs,
+    /// e.g. `provideStandardInput(IntStream.range(0, 1_000_000).mapToObj(String::valueOf))`
+    static public void provideStandardInput(Stream<String> lines) {
+        Utilities.setStandardInput(InputFeed.of(lines, Utilities.currentCapture()));
+    }
+
+    /// Provide the contents of `file` as standard input of the current test, read as the program reads it
+    static public void provideStandardInput(Path file) {
+        GradingCache.recordFile(file);
+        Utilities.setStandardInput(InputFeed.of(file, Utilities.currentCapture()));
+    }
+
+    /// Stop providing standard input to the current thread, and close its source
+    static public void resetStandardInput() {
+        var feed = Utilities.input.get();
+
+        Utilities.removeFeed();
+
+        if (feed != null) {
+            try {
+                feed.close();
+            } catch (IOException _) {
+                // Nothing is left to read from it anyway
+            }
+        }
+    }
+
+    static private void setStandardInput(InputFeed feed) {
+        Utilities.resetStandardInput();
+        Utilities.setFeed(feed);
+
+        System.setIn(Utilities.inputMultiplexer);
+    }
+
+
+    static private CaptureBuffer currentCapture() {
+        if (OUTPUT.isBound()) {
+            return OUTPUT.get();
+        }
+
+        var buffer = Utilities.output.get();
+
+        if (buffer != null) {
+            return buffer;
+        }
+
+        buffer = Utilities.inheritedOutput.get();
+
+        if (buffer == null || buffer.isReleased() || Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            return null;
+        }
+
+        return buffer;
+    }
+
+    static private void setCapture(CaptureBuffer buffer) {
+        Utilities.output.set(buffer);
+        Utilities.inheritedOutput.set(buffer);
+    }
+
+    static private void removeCapture() {
+        Utilities.output.remove();
+        Utilities.inheritedOutput.remove();
+    }
+
+    static private PrintStream currentPrintStream() {
+        var buffer = Utilities.currentCapture();
+
+        return buffer == null ? Utilities.stdout : buffer.printStream();
+    }
+
+    static private InputFeed currentFeed() {
+        var feed = Utilities.input.get();
+
+        if (feed != null) {
+            return feed;
+        }
+
+        feed = Utilities.inheritedInput.get();
+
+        if (feed == null || feed.isClosed() || Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            return null;
+        }
+
+        return feed;
+    }
+
+    static private void setFeed(InputFeed feed) {
+        Utilities.input.set(feed);
+        Utilities.inheritedInput.set(feed);
+    }
+
+    static private void removeFeed() {
+        Utilities.input.remove();
+        Utilities.inheritedInput.remove();
+    }
+
+    static private InputStream currentInputStream() {
+        var feed = Utilities.currentFeed();
+
+        return feed == null ? Utilities.stdin : feed;
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Scoped values
+    ///
+    ///
+    /// TODO: class constructor scoping
+    /// TODO: class instance scoping
+    ///-----------------------------------------------------------------------------------------------------------------
+    static private final ScopedValue<Class<?>> CLASS = ScopedValue.newInstance();
+    static private final ScopedValue<Method> METHOD = ScopedValue.newInstance();
+    static private final ScopedValue<Field> FIELD = ScopedValue.newInstance();
+
+    /// Submission being graded by `BatchGrader`, class lookups resolve against its class loader
+    static final ScopedValue<SubmissionClassLoader> SUBMISSION = ScopedValue.newInstance();
+
+    static public Class<?> getScopedClass() {
+        return CLASS.get();
+    }
+
+    static public Method getScopedMethod() {
+        return METHOD.get();
+    }
+
+    static public Field getScopedField() {
+        return FIELD.get();
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Classes
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Classes found (or not found) by name, so repeated lookups, misses included, are a single hash probe
+    static private final Map<String, Optional<Class<?>>> classes = new ConcurrentHashMap<>();
+
+
+    static public Optional<Class<?>> findClass(String pkg, String className) {
+        return Utilities.findClass(Utilities.FQCN(pkg, className));
+    }
+
+    static public Optional<Class<?>> findClass(String fullyQualifiedClassName) {
+        GradingCache.record(fullyQualifiedClassName);
+
+        return GradingReport.time(GradingReport.Phase.LOOKUP, () -> Utilities.lookupClass(fullyQualifiedClassName));
+    }
+
+    static private Optional<Class<?>> lookupClass(String fullyQualifiedClassName) {
+        var submission = SUBMISSION.isBound() ? SUBMISSION.get() : null;
+        var classes = submission == null ? Utilities.classes : submission.classes;
+        var classLoader = submission == null ? Utilities.class.getClassLoader() : submission;
+
+        if (InvocationCounter.CURRENT.isBound() || Fuel.isActive()) {
+            var countingClassLoader = CountingClassLoader.of(submission, SandboxFileSystem.CURRENT.isBound());
+
+            classes = countingClassLoader.classes;
+            classLoader = countingClassLoader;
+        }
+        else if (SandboxFileSystem.CURRENT.isBound()) {
+            var sandboxClassLoader = SandboxClassLoader.of(submission);
+
+            classes = sandboxClassLoader.classes;
+            classLoader = sandboxClassLoader;
+        }
+
+        var start = Metrics.start();
+        var classObject = classes.get(fullyQualifiedClassName);
+
+        if (classObject == null) {
+            classObject = Utilities.loadClass(fullyQualifiedClassName, classLoader);
+
+            classes.putIfAbsent(fullyQualifiedClassName, classObject);
+            Metrics.record(Metrics.Operation.CLASS_LOOKUP_MISS, start);
+        }
+        else {
+            Metrics.record(Metrics.Operation.CLASS_LOOKUP_HIT, start);
+        }
+
+        return classObject;
+    }
+
+    static private Optional<Class<?>> loadClass(String fullyQualifiedClassName, ClassLoader classLoader) {
+        // Check for the class file first, a missing class should not cost a ClassNotFoundException
+        if (classLoader.getResource(fullyQualifiedClassName.replace('.', '/') + ".class") == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(Class.forName(fullyQualifiedClassName, true, classLoader));
+        } catch (ClassNotFoundException _) {
+            return Optional.empty();
+        }
+    }
+
+
+    static public void testClass(String pkg, String className, Runnable fn) {
+        Utilities.testClass(Utilities.FQCN(pkg, className), fn);
+    }
+
+    static public void testClass(String fullyQualifiedClassName, Runnable fn) {
+        var classObject = Utilities.findClass(fullyQualifiedClassName);
+
+        if (classObject.isEmpty()) {
+            Utilities.throwClassNotFound(fullyQualifiedClassName);
+        }
+        else {
+            Utilities.testClass(classObject.get(), fn);
+        }
+    }
+
+    static public void testClass(Class<?> classObject, Runnable fn) {
+        GradingCache.record(classObject.getName());
+
+        where(Utilities.CLASS, classObject).run(Metrics.entering(fn));
+    }
+
+
+    static public boolean classExists(String pkg, String className) {
+        return Utilities.classExists(Utilities.FQCN(pkg, className));
+    }
+
+    static public boolean classExists(String fullyQualifiedClassName) {
+        return Utilities.findClass(fullyQualifiedClassName).isPresent();
+    }
+
+
+    static public boolean classIsInnerClass(Class<?> classObject) {
+        return classObject.isMemberClass();
+    }
+
+    /** Scoped CLASS */
+    static public boolean classIsInnerClass() {
+        return Utilities.classIsInnerClass(CLASS.get());
+    }
+
+
+    /** Scoped CLASS */
+    static public boolean classInheritsFrom(Class<?> superClass) {
+        return Utilities.classInheritsFrom(CLASS.get(), superClass);
+    }
+
+    static public boolean classInheritsFrom(Class<?> classObject, Class<?> superClass) {
+        return ClassHierarchy.of(classObject).extendsClass(superClass);
+    }
+
+    /// Whether the class implements `interfaceObject`, directly, through a superinterface or through a superclass
+    /** Scoped CLASS */
+    static public boolean classImplements(Class<?> interfaceObject) {
+        return Utilities.classImplements(CLASS.get(), interfaceObject);
+    }
+
+    static public boolean classImplements(Class<?> classObject, Class<?> interfaceObject) {
+        return ClassHierarchy.of(classObject).implementsInterface(interfaceObject);
+    }
+
+    /// Classes and interfaces of the submission extending or implementing the class, directly or not
+    /** Scoped CLASS */
+    static public List<Class<?>> classSubclasses() {
+        return Utilities.classSubclasses(CLASS.get());
+    }
+
+    static public List<Class<?>> classSubclasses(Class<?> classObject) {
+        return ClassHierarchy.of(classObject).subtypes();
+    }
+
+
+    /** Scoped CLASS */
+    static public Object classCreateInstance(Object... parameterValues) {
+        return Utilities.classCreateInstance(CLASS.get(), parameterValues);
+    }
+
+    static public Object classCreateInstance(Class<?> classObject, Object... parameterValues) {
+        var constructor = Invoker.constructor(classObject, parameterValues);
+
+        if (constructor == null) {
+            Utilities.throwClassConstructorNotFound(classObject.getName(), Utilities.argumentTypes(parameterValues));
+        }
+
+        return Utilities.invoke(classObject.getName(), constructor, null, parameterValues);
+    }
+
+
+    /** Scoped CLASS */
+    static public Object classInstanceInvokeMethod(Object instance, String methodName, Object... parameterValues) {
+        var method = Invoker.method(CLASS.get(), methodName, parameterValues);
+
+        if (method == null) {
+            Utilities.throwClassMethodNotFound(
+                CLASS.get().getName(), methodName, Utilities.argumentTypes(parameterValues)
+            );
+        }
+
+        return Utilities.invoke(
+            "%s#%s".formatted(CLASS.get().getName(), methodName), method, instance, parameterValues
+        );
+    }
+
+
+    /// Exceptions thrown by the student code pass through as-is, checked exceptions wrapped in a RuntimeException;
+    /// runs on a supervised thread when a time budget is in scope, and with a tank of fuel when a fuel budget is
+    static Object invoke(String name, MethodHandle handle, Object instance, Object[] parameterValues) {
+        var start = Metrics.start();
+
+        Callable<Object> direct = () -> Utilities.invoke(handle, instance, parameterValues);
+        var call = Fuel.isActive() ? Fuel.metered(direct) : direct;
+
+        try {
+            return GradingReport.time(
+                GradingReport.Phase.STUDENT, () -> Supervisor.isActive() ? Supervisor.call(name, call) : call.call()
+            );
+        } catch (FuelExhaustedError e) {
+            throw new BudgetExceededError(
+                "%s ran out of fuel: it took more than %,d steps (method calls and loop iterations)".formatted(
+                    name, e.fuel
+                )
+            );
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            Metrics.record(Metrics.Operation.INVOKE, start);
+        }
+    }
+
+    static private Object invoke(MethodHandle handle, Object instance, Object[] parameterValues) throws Exception {
+        if (MemoryMeter.isMeasuring()) {
+            return MemoryMeter.invoke(handle, instance, parameterValues);
+        }
+
+        try {
+            return (Object) handle.invokeExact(instance, parameterValues);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Class index
+    ///
+    ///
+    /// Classes of the submission found by what they are instead of by name, e.g. "a class implementing `Comparable`"
+    /// or "exactly one class with a `main` method". Answered from an index of the class file headers of the assignment
+    /// package read once (see `SubmissionIndex`), only the classes returned are loaded.
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Binary names of all classes of the submission, sorted, without loading any of them
+    static public List<String> findClassNames() {
+        return Utilities.submissionIndex().names();
     }
 
-    static public void setStandardOutput() {
-        Utilities.setStandardOutput(new PrintStream(Utilities.output));
+    /// Classes of the submission extending or implementing `type`, directly or not
+    static public List<Class<?>> findClassesImplementing(Class<?> type) {
+        return Utilities.loadIndexed(Utilities.submissionIndex().subtypesOf(type.getName()));
+    }
+
+    /// Classes of the submission declaring a method `methodName` with exactly `parameterTypes`, whatever it returns,
+    /// e.g. `findClassesWithMethod("main", String[].class)`
+    static public List<Class<?>> findClassesWithMethod(String methodName, Class<?>... parameterTypes) {
+        return Utilities.loadIndexed(
+            Utilities.submissionIndex().declaringMethod(methodName, Bytecode.parameterDescriptor(parameterTypes))
+        );
+    }
+
+    /// Classes of the submission annotated with `annotation`, of any retention
+    static public List<Class<?>> findClassesWithAnnotation(Class<? extends Annotation> annotation) {
+        return Utilities.loadIndexed(Utilities.submissionIndex().annotatedWith(annotation.descriptorString()));
+    }
+
+
+    /// Index of the submission in scope, every class of which the answer of a query depends on
+    static private SubmissionIndex submissionIndex() {
+        var index = SubmissionIndex.current();
+
+        index.names().forEach(GradingCache::record);
+
+        return index;
+    }
+
+    static private List<Class<?>> loadIndexed(List<String> names) {
+        var classes = new ArrayList<Class<?>>();
+
+        for (var name : names) {
+            Utilities.findClass(name).ifPresent(classes::add);
+        }
+
+        return classes;
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Time budgets
+    ///
+    ///
+    /// Student code called through `classCreateInstance` and `classInstanceInvokeMethod` runs on a supervised thread
+    /// while a budget is in scope; `null` means no limit
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Each call into student code within `fn` may take at most `wallClockTime` and `cpuTime`
+    static public void withCallTimeBudget(Duration wallClockTime, Duration cpuTime, Runnable fn) {
+        where(Supervisor.BUDGET, Supervisor.Budget.perCall(wallClockTime, cpuTime)).run(fn);
+    }
+
+    static public void withCallTimeBudget(Duration wallClockTime, Runnable fn) {
+        Utilities.withCallTimeBudget(wallClockTime, null, fn);
+    }
+
+    /// All calls into student code within `fn`, e.g. a `testClass` block, may take at most `wallClockTime` and
+    /// `cpuTime` together
+    static public void withTimeBudget(Duration wallClockTime, Duration cpuTime, Runnable fn) {
+        where(Supervisor.BUDGET, Supervisor.Budget.perScope(wallClockTime, cpuTime)).run(fn);
+    }
+
+    static public void withTimeBudget(Duration wallClockTime, Runnable fn) {
+        Utilities.withTimeBudget(wallClockTime, null, fn);
+    }
+
+
+    /// Wrap `task` to run on another thread with the capture buffer, standard input, submission and allocation
+    /// counter of the calling thread
+    static <T> Callable<T> inheritContext(Callable<T> task) {
+        var capture = Utilities.currentCapture();
+        var feed = Utilities.currentFeed();
+        var contextTask = task;
+
+        if (SUBMISSION.isBound()) {
+            var submission = SUBMISSION.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(SUBMISSION, submission).call(inner::call);
+        }
+
+        if (MemoryMeter.ALLOCATED.isBound()) {
+            var allocated = MemoryMeter.ALLOCATED.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(MemoryMeter.ALLOCATED, allocated).call(inner::call);
+        }
+
+        if (SandboxFileSystem.CURRENT.isBound()) {
+            var sandbox = SandboxFileSystem.CURRENT.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(SandboxFileSystem.CURRENT, sandbox).call(inner::call);
+        }
+
+        if (InvocationCounter.CURRENT.isBound()) {
+            var counts = InvocationCounter.CURRENT.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(InvocationCounter.CURRENT, counts).call(inner::call);
+        }
+
+        if (Fuel.BUDGET.isBound()) {
+            var budget = Fuel.BUDGET.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(Fuel.BUDGET, budget).call(inner::call);
+        }
+
+        if (Snapshots.TEST.isBound()) {
+            var test = Snapshots.TEST.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(Snapshots.TEST, test).call(inner::call);
+        }
+
+        if (GradingReport.CURRENT.isBound()) {
+            var test = GradingReport.CURRENT.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(GradingReport.CURRENT, test).call(inner::call);
+        }
+
+        if (GradingReport.ACTIVE.isBound()) {
+            var span = GradingReport.ACTIVE.get();
+            var inner = contextTask;
+
+            contextTask = () -> where(GradingReport.ACTIVE, span).call(inner::call);
+        }
+
+        var scopedTask = contextTask;
+
+        return () -> {
+            if (capture != null) {
+                Utilities.setCapture(capture);
+            }
+
+            if (feed != null) {
+                Utilities.setFeed(feed);
+            }
+
+            try {
+                return scopedTask.call();
+            } finally {
+                Utilities.removeCapture();
+                Utilities.removeFeed();
+            }
+        };
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Fuel budgets
+    ///
+    ///
+    /// Student classes found within a fuel budget take a step of fuel at every method call and loop iteration, and a
+    /// call into student code that runs out fails the test; unlike a time budget the outcome only depends on the work
+    /// done, not on how busy the machine is, see `Fuel`. Find the classes within the budget, e.g.
+    /// `withCallFuelBudget(1_000_000, () -> testClass("Sorting", () -> { ... }))`
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Each call into student code within `fn` may take at most `fuel` steps
+    static public void withCallFuelBudget(long fuel, Runnable fn) {
+        where(Fuel.BUDGET, Fuel.Budget.perCall(fuel)).run(fn);
+    }
+
+    /// All calls into student code within `fn` may take at most `fuel` steps together
+    static public void withFuelBudget(long fuel, Runnable fn) {
+        where(Fuel.BUDGET, Fuel.Budget.perScope(fuel)).run(fn);
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Complexity
+    ///
+    ///
+    /// Empirical complexity of the scoped method: timed at a geometric series of input sizes (after warming up) and
+    /// fitted against each `ComplexityClass`. Wrap in `withCallTimeBudget` to fail a far too slow solution early,
+    /// each size counts as one call.
+    ///-----------------------------------------------------------------------------------------------------------------
+    static private final int COMPLEXITY_FROM_SIZE = 1 << 8;
+    static private final int COMPLEXITY_TO_SIZE = 1 << 14;
+
+
+    /** Scoped METHOD */
+    static public void assertComplexity(ComplexityClass expected, IntFunction<Object[]> arguments) {
+        Utilities.assertComplexity(expected, COMPLEXITY_FROM_SIZE, COMPLEXITY_TO_SIZE, null, arguments);
+    }
+
+    /** Scoped METHOD */
+    static public void assertComplexity(
+            ComplexityClass expected,
+            IntFunction<Object> instance, IntFunction<Object[]> arguments
+    ) {
+        Utilities.assertComplexity(expected, COMPLEXITY_FROM_SIZE, COMPLEXITY_TO_SIZE, instance, arguments);
+    }
+
+    /// Fails unless the scoped method grows no faster than `expected`, timed at sizes from `fromSize` to `toSize`;
+    /// `instance` creates the receiver for input size `n` (by default a new instance of the declaring class, for
+    /// methods that are not static) and `arguments` the arguments
+    /** Scoped METHOD */
+    static public void assertComplexity(
+            ComplexityClass expected,
+            int fromSize, int toSize,
+            IntFunction<Object> instance, IntFunction<Object[]> arguments
+    ) {
+        var method = METHOD.get();
+
+        if (instance == null && !Modifier.isStatic(method.getModifiers())) {
+            instance = _ -> Utilities.classCreateInstance(method.getDeclaringClass());
+        }
+
+        ComplexityMeter.Measurement measurement;
+
+        try {
+            measurement = new ComplexityMeter(method, instance, arguments).measure(
+                ComplexityMeter.sizes(fromSize, toSize)
+            );
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        if (measurement.fitted().compareTo(expected) > 0) {
+            throw new AssertionFailedError(
+                "%s#%s should be %s, but its running time grows as %s:%s".formatted(
+                    method.getDeclaringClass().getName(), method.getName(),
+                    expected, measurement.fitted(), measurement.describe()
+                ),
+                expected,
+                measurement.fitted()
+            );
+        }
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Differential testing
+    ///
+    ///
+    /// The scoped method against the method of the same name in a reference solution, e.g. `assignment.Person` against
+    /// `reference.Person` for the reference package `reference`, called with the same arguments for each of `cases`
+    /// cases: return values, exceptions and standard output must match. `arguments` creates the arguments of case
+    /// `i`, and must create the same ones every time it is called with `i`, e.g. from `new Random(i)`. Cases run on
+    /// all processors, each on a fresh instance of both classes, so the methods must not keep state in static fields;
+    /// when either class declares a static field that is not final, the cases run one at a time instead. The first
+    /// case that differs fails the test.
+    ///-----------------------------------------------------------------------------------------------------------------
+    static private final int DIFFERENTIAL_CASES = 1_000;
+
+
+    /** Scoped METHOD */
+    static public void assertBehavesLikeReference(String referencePackage, IntFunction<Object[]> arguments) {
+        Utilities.assertBehavesLikeReference(referencePackage, DIFFERENTIAL_CASES, arguments);
+    }
+
+    /** Scoped METHOD */
+    static public void assertBehavesLikeReference(
+            String referencePackage,
+            int cases, IntFunction<Object[]> arguments
+    ) {
+        var method = METHOD.get();
+        var referenceClass = Utilities.referenceClass(referencePackage, method.getDeclaringClass());
+        var referenceMethod = Utilities.findMethod(referenceClass, method.getName(), method.getParameterTypes())
+            .orElse(null);
+
+        if (referenceMethod == null) {
+            Utilities.throwClassMethodNotFound(referenceClass.getName(), method.getName(), method.getParameterTypes());
+        }
+
+        var isStatic = Modifier.isStatic(method.getModifiers());
+
+        Utilities.assertBehavesLikeReference(
+            method.getName(),
+            Utilities.differentialSide(method.getDeclaringClass(), Invoker.method(method), isStatic),
+            Utilities.differentialSide(referenceClass, Invoker.method(referenceMethod), isStatic),
+            cases, arguments
+        );
+    }
+
+    /// Fails unless `methodName` of the scoped class behaves like the one of the reference solution in
+    /// `referencePackage`, for the first `cases` arguments of `arguments`; the method is resolved from the arguments
+    /// of case `0`, and unless it is static both classes need a public no-argument constructor, every case gets fresh
+    /// instances
+    /** Scoped CLASS */
+    static public void assertBehavesLikeReference(
+            String referencePackage, String methodName,
+            int cases, IntFunction<Object[]> arguments
+    ) {
+        var classObject = CLASS.get();
+        var referenceClass = Utilities.referenceClass(referencePackage, classObject);
+        var sample = arguments.apply(0);
+
+        var method = Invoker.method(classObject, methodName, sample);
+        var referenceMethod = Invoker.method(referenceClass, methodName, sample);
+
+        if (method == null) {
+            Utilities.throwClassMethodNotFound(classObject.getName(), methodName, Utilities.argumentTypes(sample));
+        }
+
+        if (referenceMethod == null) {
+            Utilities.throwClassMethodNotFound(referenceClass.getName(), methodName, Utilities.argumentTypes(sample));
+        }
+
+        Utilities.assertBehavesLikeReference(
+            methodName,
+            Utilities.differentialSide(classObject, method, Invoker.isStatic(classObject, methodName, sample)),
+            Utilities.differentialSide(
+                referenceClass, referenceMethod, Invoker.isStatic(referenceClass, methodName, sample)
+            ),
+            cases, arguments
+        );
+    }
+
+
+    static private void assertBehavesLikeReference(
+            String methodName,
+            DifferentialTester.Side student, DifferentialTester.Side reference,
+            int cases, IntFunction<Object[]> arguments
+    ) {
+        DifferentialTester.Divergence divergence;
+
+        try {
+            divergence = new DifferentialTester(methodName, student, reference, arguments).run(cases);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        if (divergence != null) {
+            throw new AssertionFailedError(
+                "%s#%s differs from the reference solution for case %,d of %,d, called with (%s): %s"
+                    .formatted(
+                        student.classObject().getName(), methodName, divergence.index(), cases,
+                        divergence.arguments(),
+                        "the reference solution %s, but it %s".formatted(
+                            divergence.expected().describe(), divergence.actual().describe()
+                        )
+                    ),
+                divergence.expected().describe(),
+                divergence.actual().describe()
+            );
+        }
+    }
+
+    /// Class of the reference solution named as `classObject` is within its package
+    static private Class<?> referenceClass(String referencePackage, Class<?> classObject) {
+        var packageName = classObject.getPackageName();
+        var relativeName = packageName.isEmpty()
+            ? classObject.getName()
+            : classObject.getName().substring(packageName.length() + 1);
+        var referenceClassName = Utilities.FQCN(referencePackage, relativeName);
+        var referenceClass = Utilities.findClass(referenceClassName).orElse(null);
+
+        if (referenceClass == null) {
+            Utilities.throwClassNotFound(referenceClassName);
+        }
+
+        return referenceClass;
+    }
+
+    static private DifferentialTester.Side differentialSide(
+            Class<?> classObject,
+            MethodHandle method, boolean isStatic
+    ) {
+        var constructor = isStatic ? null : Invoker.constructor(classObject, new Object[0]);
+
+        if (!isStatic && constructor == null) {
+            Utilities.throwClassConstructorNotFound(classObject.getName());
+        }
+
+        return new DifferentialTester.Side(classObject, method, constructor);
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Property-based testing
+    ///
+    ///
+    /// `property` is run on generated arguments (by default from the parameter types of the scoped method) for each
+    /// of `cases` cases and must return true; a case where it returns false or throws is shrunk to a minimal one and
+    /// fails the test with the seed the cases were generated from. Run with `-Dassignment.seed=<seed>` to generate
+    /// the same cases again.
+    ///-----------------------------------------------------------------------------------------------------------------
+    static private final int PROPERTY_CASES = 1_000;
+    static private final Long PROPERTY_SEED = Long.getLong("assignment.seed");
+
+
+    /** Scoped METHOD */
+    static public void forAll(Predicate<Object[]> property) {
+        Utilities.forAll(PROPERTY_CASES, property);
+    }
+
+    /** Scoped METHOD */
+    static public void forAll(int cases, Predicate<Object[]> property) {
+        var method = METHOD.get();
+        var generators = new ArrayList<Generator<?>>();
+
+        for (var type : method.getGenericParameterTypes()) {
+            var generator = PropertyTester.generatorFor(type);
+
+            if (generator == null) {
+                throw new AssertionFailedError(
+                    "No default generator for parameter type %s of %s#%s, pass generators to forAll".formatted(
+                        Utilities.getTypeName(type), method.getDeclaringClass().getName(), method.getName()
+                    ),
+                    "Parameter of a primitive, String, enum, array or collection type",
+                    Utilities.getTypeName(type)
+                );
+            }
+
+            generators.add(generator);
+        }
+
+        Utilities.forAll(cases, generators, property);
+    }
+
+    static public void forAll(List<Generator<?>> generators, Predicate<Object[]> property) {
+        Utilities.forAll(PROPERTY_CASES, generators, property);
+    }
+
+    /// Fails unless `property` holds for the arguments of `generators` in each of `cases` cases
+    static public void forAll(int cases, List<Generator<?>> generators, Predicate<Object[]> property) {
+        var seed = PROPERTY_SEED != null ? PROPERTY_SEED : ThreadLocalRandom.current().nextLong();
+        var failure = new PropertyTester(generators, property).run(cases, seed);
+
+        if (failure == null) {
+            return;
+        }
+
+        var name = METHOD.isBound()
+            ? "Property of %s#%s".formatted(METHOD.get().getDeclaringClass().getName(), METHOD.get().getName())
+            : "Property";
+
+        throw new AssertionFailedError(
+            ("%s does not hold for (%s), it %s; shrunk from (%s), case %,d of %,d, in %,d runs, "
+                + "reproduce with -Dassignment.seed=%d").formatted(
+                name, failure.arguments(), failure.outcome(), failure.original(),
+                failure.index(), cases, failure.shrinks(), failure.seed()
+            ),
+            "Property to hold",
+            "(%s) %s".formatted(failure.arguments(), failure.outcome())
+        );
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Memory
+    ///
+    ///
+    /// Allocations are measured per call into student code (`classCreateInstance`, `classInstanceInvokeMethod`),
+    /// retained sizes are estimated by walking the object graph, see `MemoryMeter`
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Bytes allocated by the calls into student code within `fn`
+    static public long allocatedBytes(Runnable fn) {
+        var allocated = new AtomicLong();
+
+        where(MemoryMeter.ALLOCATED, allocated).run(fn);
+
+        return allocated.get();
+    }
+
+    /// Fails when the calls into student code within `fn` allocate more than `bytes` together, e.g.
+    /// `assertAllocatesAtMost(64, () -> classInstanceInvokeMethod(null, "reverse", array))` for reversing in place
+    static public void assertAllocatesAtMost(long bytes, Runnable fn) {
+        var allocated = Utilities.allocatedBytes(fn);
+
+        if (allocated > bytes) {
+            throw new AssertionFailedError(
+                "Allocated %,d bytes, %,d bytes more than the budget of %,d bytes".formatted(
+                    allocated, allocated - bytes, bytes
+                ),
+                bytes,
+                allocated
+            );
+        }
+    }
+
+
+    /// Estimated bytes reachable from `instance`, e.g. an instance created by `classCreateInstance`
+    static public long retainedSize(Object instance) {
+        return MemoryMeter.retainedSize(instance);
+    }
+
+    static public void assertRetainedSizeAtMost(long bytes, Object instance) {
+        var retained = Utilities.retainedSize(instance);
+
+        if (retained > bytes) {
+            throw new AssertionFailedError(
+                "%s retains about %,d bytes, %,d bytes more than the budget of %,d bytes".formatted(
+                    instance.getClass().getName(), retained, retained - bytes, bytes
+                ),
+                bytes,
+                retained
+            );
+        }
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Snapshots
+    ///
+    ///
+    /// Snapshots are stored per test class and test method, and recorded with `-Dassignment.snapshots.update=true`,
+    /// see `Snapshots`
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Fails when the standard output captured so far differs from snapshot `name` of the running test
+    static public void assertMatchesSnapshot(String name) {
+        GradingReport.time(GradingReport.Phase.COMPARISON, () -> {
+            var buffer = Utilities.currentCapture();
+
+            Snapshots.assertMatches(name, buffer == null ? new byte[0] : buffer.toNormalizedBytes(0));
+        });
+    }
+
+    /// Fails when the state of `instance` differs from snapshot `name` of the running test, e.g.
+    /// `assertMatchesSnapshot("empty", classCreateInstance("Inventory"))`; the state is compared as written by
+    /// `ObjectDump`, field by field rather than by `toString`
+    static public void assertMatchesSnapshot(String name, Object instance) {
+        GradingReport.time(
+            GradingReport.Phase.COMPARISON,
+            () -> Snapshots.assertMatches(name, ObjectDump.of(instance).getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: File sandbox
+    ///
+    ///
+    /// Within `withFileSandbox`, student classes are loaded with their file I/O (`java.nio.file`, `File`, the file
+    /// streams, readers and writers, `Scanner`) redirected to an in-memory file system, whose root is the working
+    /// directory; see `SandboxClassLoader` and `SandboxFileSystem`
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Run `fn` with an empty sandbox, e.g.
+    /// `withFileSandbox(() -> testClass("Logger", () -> { ...; assertSandboxFileEquals("log.txt", "started\n"); }))`
+    static public void withFileSandbox(Runnable fn) {
+        Utilities.withFileSandbox(Map.<String, String>of(), fn);
+    }
+
+    /// Run `fn` with a sandbox holding `files`, paths relative to the working directory to (UTF-8) contents
+    static public void withFileSandbox(Map<String, String> files, Runnable fn) {
+        var contents = new HashMap<String, byte[]>();
+
+        files.forEach((path, content) -> contents.put(path, content.getBytes(StandardCharsets.UTF_8)));
+
+        where(SandboxFileSystem.CURRENT, new SandboxFileSystem(contents)).run(fn);
+    }
+
+    /// Run `fn` with a sandbox holding a copy of the `fixtures` directory, e.g. `Path.of("src/test/resources/task3")`;
+    /// the directory is read once, and its contents shared by all sandboxes until written to
+    static public void withFileSandbox(Path fixtures, Runnable fn) {
+        GradingCache.recordFile(fixtures);
+        where(SandboxFileSystem.CURRENT, new SandboxFileSystem(SandboxFileSystem.fixtures(fixtures))).run(fn);
+    }
+
+
+    /// `path` in the current sandbox, for use with `Files` in the test itself
+    static public Path sandboxPath(String path) {
+        return Utilities.currentSandbox().getPath(path);
+    }
+
+    /// Paths of all files in the current sandbox, relative to its root and sorted
+    static public List<String> sandboxFiles() {
+        return Utilities.currentSandbox().files();
+    }
+
+    static public void assertSandboxFileExists(String path) {
+        if (Utilities.currentSandbox().contents(Utilities.sandboxPath(path)) == null) {
+            throw new AssertionFailedError(
+                "Expected file \"%s\" to be written, the sandbox holds %s".formatted(path, Utilities.sandboxFiles())
+            );
+        }
+    }
+
+    /// Fails unless the file at `path` holds `expected` (UTF-8), line separators aside
+    static public void assertSandboxFileEquals(String path, String expected) {
+        Utilities.assertSandboxFileExists(path);
+
+        var contents = Utilities.currentSandbox().contents(Utilities.sandboxPath(path));
+
+        if (contents.mismatch(ByteBuffer.wrap(expected.getBytes(StandardCharsets.UTF_8))) == -1) {
+            return;
+        }
+
+        var actual = StandardCharsets.UTF_8.decode(contents).toString();
+
+        assertEquals(
+            expected.replace("\r\n", "\n"), actual.replace("\r\n", "\n"), "Contents of \"%s\"".formatted(path)
+        );
     }
 
-    static public void setStandardOutput(PrintStream stream) {
-        System.setOut(stream);
+    /// Fails unless the sandbox holds exactly the files at `paths`
+    static public void assertSandboxFiles(String... paths) {
+        var expected = Arrays.stream(paths).sorted().toList();
+        var actual = Utilities.sandboxFiles();
+
+        if (!expected.equals(actual)) {
+            throw new AssertionFailedError("Files in the sandbox", expected, actual);
+        }
     }
 
-    static public void resetStandardOutput() {
-        System.setOut(Utilities.stdout);
+
+    static private SandboxFileSystem currentSandbox() {
+        if (!SandboxFileSystem.CURRENT.isBound()) {
+            throw new IllegalStateException("Not within withFileSandbox");
+        }
+
+        return SandboxFileSystem.CURRENT.get();
     }
 
 
 
     ///-----------------------------------------------------------------------------------------------------------------
-    ///# Section: Scoped values
+    ///# Section: Database
     ///
     ///
-    /// TODO: class constructor scoping
-    /// TODO: class instance scoping
+    /// Within `withDatabase`, student code is handed connections to an embedded database seeded from a script, each
+    /// scope starts from the seeded state and every statement is counted; see `Database`
     ///-----------------------------------------------------------------------------------------------------------------
-    static private final ScopedValue<Class<?>> CLASS = ScopedValue.newInstance();
-    static private final ScopedValue<Method> METHOD = ScopedValue.newInstance();
-    static private final ScopedValue<Field> FIELD = ScopedValue.newInstance();
-
-    static public Class<?> getScopedClass() {
-        return CLASS.get();
+    /// Run `fn` in a transaction on the database seeded from `script` (a file, or a class path resource such as
+    /// `"library.sql"`), rolled back afterwards
+    static public void withDatabase(String script, Runnable fn) {
+        try (var session = Database.open(script)) {
+            where(Database.CURRENT, session).run(fn);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    static public Method getScopedMethod() {
-        return METHOD.get();
+    /// Connection for student code, e.g. `classCreateInstance(databaseConnection())`
+    static public Connection databaseConnection() {
+        return Utilities.currentDatabase().proxy();
     }
 
-    static public Field getScopedField() {
-        return FIELD.get();
+    static public DataSource databaseDataSource() {
+        return Utilities.currentDatabase().dataSource();
     }
 
 
+    /// Rows of `sql` as lists of column values, not counted as issued by the student
+    static public List<List<Object>> databaseQuery(String sql, Object... parameters) {
+        try (var statement = Utilities.currentDatabase().connection().prepareStatement(sql)) {
+            for (var i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
 
-    ///-----------------------------------------------------------------------------------------------------------------
-    ///# Section: Classes
-    ///-----------------------------------------------------------------------------------------------------------------
-    static public Optional<Class<?>> findClass(String pkg, String className) {
-        return Utilities.findClass(Utilities.FQCN(pkg, className));
+            var rows = new ArrayList<List<Object>>();
+
+            try (var resultSet = statement.executeQuery()) {
+                var columns = resultSet.getMetaData().getColumnCount();
+
+                while (resultSet.next()) {
+                    var row = new ArrayList<Object>();
+
+                    for (var column = 1; column <= columns; column++) {
+                        row.add(resultSet.getObject(column));
+                    }
+
+                    rows.add(row);
+                }
+            }
+
+            return rows;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-    static public Optional<Class<?>> findClass(String fullyQualifiedClassName) {
-        try {
-            return Optional.of(Class.forName(fullyQualifiedClassName));
-        } catch (ClassNotFoundException _) {
-            return Optional.empty();
+    /// Fails unless `table` holds exactly `rows`, in any order, e.g.
+    /// `assertTableRows("book", List.of(List.of(1, "Dune"), List.of(2, "Emma")))`; values are compared as strings
+    static public void assertTableRows(String table, List<List<Object>> rows) {
+        Function<List<List<Object>>, List<String>> normalized = list -> list.stream()
+            .map(row -> row.stream().map(String::valueOf).toList().toString())
+            .sorted()
+            .toList()
+        ;
+
+        var expected = normalized.apply(rows);
+        var actual = normalized.apply(Utilities.databaseQuery("SELECT * FROM " + table));
+
+        if (!expected.equals(actual)) {
+            throw new AssertionFailedError("Rows of table " + table, expected, actual);
         }
     }
 
+    static public void assertTableRowCount(String table, int rowCount) {
+        var count = Utilities.databaseQuery("SELECT COUNT(*) FROM " + table).getFirst().getFirst();
 
-    static public void testClass(String pkg, String className, Runnable fn) {
-        Utilities.testClass(Utilities.FQCN(pkg, className), fn);
+        var actual = ((Number) count).intValue();
+
+        assertEquals(rowCount, actual, "Number of rows in table " + table);
     }
 
-    static public void testClass(String fullyQualifiedClassName, Runnable fn) {
-        var classObject = Utilities.findClass(fullyQualifiedClassName);
 
-        if (classObject.isEmpty()) {
-            Utilities.throwClassNotFound(fullyQualifiedClassName);
-        }
-        else {
-            Utilities.testClass(classObject.get(), fn);
-        }
+    /// Fails when the student code within `fn` makes more than `roundTrips` calls to the database (a batch is one),
+    /// e.g. to catch N+1 queries; the most repeated statements are in the failure message
+    static public void assertRoundTripsAtMost(long roundTrips, Runnable fn) {
+        Utilities.assertDatabaseUsage("round trips", roundTrips, session -> session.roundTrips.get(), fn);
     }
 
-    static public void testClass(Class<?> classObject, Runnable fn) {
-        where(Utilities.CLASS, classObject).run(fn);
+    /// Fails when the student code within `fn` executes more than `statements` statements, batched or not
+    static public void assertStatementsAtMost(long statements, Runnable fn) {
+        Utilities.assertDatabaseUsage("statements", statements, session -> session.statements.get(), fn);
     }
 
+    static private void assertDatabaseUsage(
+            String what, long budget, ToLongFunction<Database.Session> count, Runnable fn
+    ) {
+        var session = Utilities.currentDatabase();
+        var before = count.applyAsLong(session);
+        var executionsBefore = new HashMap<String, Long>();
 
-    static public boolean classExists(String pkg, String className) {
-        return Utilities.classExists(Utilities.FQCN(pkg, className));
+        session.executions.forEach((sql, executions) -> executionsBefore.put(sql, executions.sum()));
+
+        fn.run();
+
+        var used = count.applyAsLong(session) - before;
+
+        if (used <= budget) {
+            return;
+        }
+
+        var repeated = new ArrayList<String>();
+
+        session.executions.entrySet().stream()
+            .map(entry -> Map.entry(
+                entry.getKey(), entry.getValue().sum() - executionsBefore.getOrDefault(entry.getKey(), 0L)
+            ))
+            .filter(entry -> entry.getValue() > 1)
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(3)
+            .forEach(entry -> repeated.add("%s (%,d times)".formatted(entry.getKey(), entry.getValue())));
+
+        throw new AssertionFailedError(
+            "Issued %,d %s, %,d more than the budget of %,d%s".formatted(
+                used, what, used - budget, budget,
+                repeated.isEmpty() ? "" : "; repeated: " + String.join(", ", repeated)
+            ),
+            budget,
+            used
+        );
     }
 
-    static public boolean classExists(String fullyQualifiedClassName) {
-        return Utilities.findClass(fullyQualifiedClassName).isPresent();
+
+    static private Database.Session currentDatabase() {
+        if (!Database.CURRENT.isBound()) {
+            throw new IllegalStateException("Not within withDatabase");
+        }
+
+        return Database.CURRENT.get();
     }
 
 
-    static public boolean classIsInnerClass(Class<?> classObject) {
-        return classObject.isMemberClass();
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Invocation counts
+    ///
+    ///
+    /// Within `withInvocationCounting`, student classes are loaded with a counter at the start of every method, so a
+    /// test can tell how often a method ran, e.g. that a memoized `fib(30)` is not computed naively; see
+    /// `CountingClassLoader` and `InvocationCounter`. Classes loaded outside of it are not instrumented at all
+    ///-----------------------------------------------------------------------------------------------------------------
+    /// Run `fn` counting the invocations of the methods of the classes it finds, e.g.
+    /// `withInvocationCounting(() -> testClass("Fibonacci", () -> { ...; assertInvokedAtMost("fib", 31); }))`
+    static public void withInvocationCounting(Runnable fn) {
+        where(InvocationCounter.CURRENT, new InvocationCounter.Counts()).run(fn);
     }
 
-    /** Scoped CLASS */
-    static public boolean classIsInnerClass() {
-        return Utilities.classIsInnerClass(CLASS.get());
+    /// Start counting from `0` again, e.g. after setting up an instance
+    static public void resetInvocationCounts() {
+        Utilities.currentCounts().reset();
     }
 
 
+    /// Invocations of every overload of `methodName` of the scoped class so far, calls on other threads included
     /** Scoped CLASS */
-    static public boolean classInheritsFrom(Class<?> classObject) {
-        var superClass = CLASS.get().getSuperclass();
+    static public long invocationCount(String methodName) {
+        var classObject = Utilities.countedClass(CLASS.get());
 
-        do {
-            if (superClass.equals(classObject)) {
-                return true;
-            }
-
-            superClass = superClass.getSuperclass();
-        } while (superClass != null);
+        return InvocationCounter.count(Utilities.currentCounts(), classObject.getName(), methodName);
+    }
 
-        return false;
+    /** Scoped METHOD */
+    static public long invocationCount() {
+        var method = METHOD.get();
+        var classObject = Utilities.countedClass(method.getDeclaringClass());
+        var descriptor = MethodType.methodType(method.getReturnType(), method.getParameterTypes())
+            .toMethodDescriptorString();
+
+        return InvocationCounter.count(
+            Utilities.currentCounts(), classObject.getName(), method.getName(), descriptor
+        );
     }
 
 
+    /// Fails when `methodName`, any overload, has been invoked more than `times` times so far
     /** Scoped CLASS */
-    static public Object classCreateInstance(Object... parameterValues) {
-        return Utilities.classCreateInstance(CLASS.get(), parameterValues);
+    static public void assertInvokedAtMost(String methodName, long times) {
+        Utilities.assertInvocations(methodName, times, Utilities.invocationCount(methodName));
     }
 
-    static public Object classCreateInstance(Class<?> classObject, Object... parameterValues) {
-        var signature = Arrays.stream(parameterValues).map(Object::getClass).toArray(Class<?>[]::new);
+    /// Fails when `methodName`, any overload, is invoked more than `times` times within `fn`, e.g.
+    /// `assertInvokedAtMost("fib", 31, () -> classInstanceInvokeMethod(null, "fib", 30))`
+    /** Scoped CLASS */
+    static public void assertInvokedAtMost(String methodName, long times, Runnable fn) {
+        var before = Utilities.invocationCount(methodName);
 
-        try {
-            var constructor = signature.length == 0
-                ? classObject.getConstructor()
-                : classObject.getConstructor(signature);
-            ;
-
-            return constructor.newInstance(parameterValues);
-        } catch (NoSuchMethodException | InvocationTargetException | InstantiationException | IllegalAccessException e) {
-            // TODO: better feedback per exception
-            throw new RuntimeException(e);
+        fn.run();
+
+        Utilities.assertInvocations(methodName, times, Utilities.invocationCount(methodName) - before);
+    }
+
+    /** Scoped METHOD */
+    static public void assertInvokedAtMost(long times) {
+        Utilities.assertInvocations(METHOD.get().getName(), times, Utilities.invocationCount());
+    }
+
+    /** Scoped METHOD */
+    static public void assertInvokedAtMost(long times, Runnable fn) {
+        var before = Utilities.invocationCount();
+
+        fn.run();
+
+        Utilities.assertInvocations(METHOD.get().getName(), times, Utilities.invocationCount() - before);
+    }
+
+    static private void assertInvocations(String methodName, long budget, long invocations) {
+        if (invocations > budget) {
+            throw new AssertionFailedError(
+                "Invoked %s %,d times, %,d more than the budget of %,d".formatted(
+                    methodName, invocations, invocations - budget, budget
+                ),
+                budget,
+                invocations
+            );
         }
     }
 
 
-    /** Scoped CLASS */
-    static public void classInstanceInvokeMethod(Object instance, String methodName, Object... parameterValues) {
-        var signature = Arrays.stream(parameterValues).map(Object::getClass).toArray();
+    static private InvocationCounter.Counts currentCounts() {
+        if (!InvocationCounter.CURRENT.isBound()) {
+            throw new IllegalStateException("Not within withInvocationCounting");
+        }
 
-        try {
-            var method = parameterValues.length == 0
-                ? CLASS.get().getMethod(methodName)
-                : CLASS.get().getMethod(methodName, (Class<?>[]) signature)
-            ;
-
-            method.invoke(instance, parameterValues);
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-            // TODO: better feedback per exception
-            throw new RuntimeException(e);
+        return InvocationCounter.CURRENT.get();
+    }
+
+    /// `classObject` when it is instrumented, i.e. was found within `withInvocationCounting`
+    static private Class<?> countedClass(Class<?> classObject) {
+        if (!(classObject.getClassLoader() instanceof CountingClassLoader)) {
+            throw new IllegalStateException(
+                "%s was not found within withInvocationCounting".formatted(classObject.getName())
+            );
         }
+
+        return classObject;
     }
 
 
@@ -213,14 +1408,10 @@ public class Utilities
     }
 
     static public Optional<Method> findMethod(Class<?> classObject, String methodName, Class<?>... parameterTypes) {
-        try {
-            return parameterTypes.length == 0
-                ? Optional.of(classObject.getMethod(methodName))
-                : Optional.of(classObject.getMethod(methodName, parameterTypes))
-            ;
-        } catch (NoSuchMethodException _) {
-            return Optional.empty();
-        }
+        return GradingReport.time(
+            GradingReport.Phase.LOOKUP,
+            () -> Optional.ofNullable(MemberIndex.of(classObject).method(methodName, parameterTypes))
+        );
     }
 
 
@@ -255,14 +1446,7 @@ public class Utilities
             Class<?> classObject,
             String methodName, Class<?>... parameterTypes
     ) {
-        try {
-            return parameterTypes.length == 0
-                ? Optional.of(classObject.getDeclaredMethod(methodName))
-                : Optional.of(classObject.getDeclaredMethod(methodName, parameterTypes))
-            ;
-        } catch (NoSuchMethodException _) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(MemberIndex.of(classObject).declaredMethod(methodName, parameterTypes));
     }
 
 
@@ -309,7 +1493,18 @@ public class Utilities
     }
 
     static public void testMethod(Method methodObject, Runnable fn) {
-        where(Utilities.METHOD, methodObject).run(fn);
+        where(Utilities.METHOD, methodObject).run(Metrics.entering(fn));
+    }
+
+    /// Call the scoped method on `instance` (ignored for static methods), e.g. within a `forAll` property
+    /** Scoped METHOD */
+    static public Object methodInvoke(Object instance, Object... parameterValues) {
+        var method = METHOD.get();
+
+        return Utilities.invoke(
+            "%s#%s".formatted(method.getDeclaringClass().getName(), method.getName()),
+            Invoker.method(method), instance, parameterValues
+        );
     }
 
 
@@ -393,7 +1588,7 @@ public class Utilities
                 Utilities.throwClassMethodNotFound(fullyQualifiedClassName, methodName, parameterTypes);
             }
 
-            where(Utilities.METHOD, methodOptional.get()).run(fn);
+            where(Utilities.METHOD, methodOptional.get()).run(Metrics.entering(fn));
         });
     }
 
@@ -506,7 +1701,9 @@ public class Utilities
 
     /** Scoped CLASS+METHOD */
     static public boolean methodIsInherited() {
-        return (METHOD.get().getDeclaringClass() != CLASS.get());
+        var declaringClass = METHOD.get().getDeclaringClass();
+
+        return declaringClass != CLASS.get() && ClassHierarchy.of(CLASS.get()).isSubtypeOf(declaringClass);
     }
 
 
@@ -534,22 +1731,150 @@ public class Utilities
     }
 
     static public boolean methodOverrides(Method methodObject) {
-        var superClass = methodObject.getDeclaringClass().getSuperclass();
+        var hierarchy = ClassHierarchy.of(methodObject.getDeclaringClass());
 
-        while (superClass != null) {
-            try {
-                if (!superClass.getMethod(methodObject.getName(), methodObject.getParameterTypes()).equals(methodObject)) {
-                    return true;
-                }
-            } catch (NoSuchMethodException e) {}
+        return hierarchy.overridden(methodObject) != null || !hierarchy.implemented(methodObject).isEmpty();
+    }
+
+    /// Whether the method implements (or overrides) a method of an interface of its class
+    /** Scoped METHOD */
+    static public boolean methodImplementsInterface() {
+        return Utilities.methodImplementsInterface(METHOD.get());
+    }
+
+    static public boolean methodImplementsInterface(Method methodObject) {
+        return !ClassHierarchy.of(methodObject.getDeclaringClass()).implemented(methodObject).isEmpty();
+    }
 
-            superClass = superClass.getSuperclass();
+    static public boolean methodImplementsInterface(Method methodObject, Class<?> interfaceObject) {
+        for (var implemented : ClassHierarchy.of(methodObject.getDeclaringClass()).implemented(methodObject)) {
+            if (implemented.getDeclaringClass() == interfaceObject) {
+                return true;
+            }
         }
 
         return false;
     }
 
+    /// Whether the static method hides a static method of a superclass
+    /** Scoped METHOD */
+    static public boolean methodHides() {
+        return ClassHierarchy.of(METHOD.get().getDeclaringClass()).hidden(METHOD.get()) != null;
+    }
+
+    /// Whether a class of the submission extending the declaring class overrides the method
+    /** Scoped METHOD */
+    static public boolean methodIsOverriddenBySubclass() {
+        return Utilities.methodIsOverriddenBySubclass(METHOD.get());
+    }
+
+    static public boolean methodIsOverriddenBySubclass(Method methodObject) {
+        return ClassHierarchy.of(methodObject.getDeclaringClass()).isOverriddenBySubtype(methodObject);
+    }
+
+
+
+
+
+    ///-----------------------------------------------------------------------------------------------------------------
+    ///# Section: Bytecode analysis
+    ///
+    ///
+    /// Static checks on the bytecode of a method, without running it; calls are matched by the owner named in the
+    /// bytecode (the declared type of the receiver), see `Bytecode`
+    ///-----------------------------------------------------------------------------------------------------------------
+    /** Scoped METHOD */
+    static public int methodMaxLoopDepth() {
+        return Utilities.methodMaxLoopDepth(METHOD.get());
+    }
+
+    static public int methodMaxLoopDepth(Method methodObject) {
+        return Bytecode.of(methodObject).maxLoopDepth();
+    }
+
+    /** Scoped METHOD */
+    static public boolean methodHasNestedLoops() {
+        return Utilities.methodMaxLoopDepth() > 1;
+    }
+
+
+    /** Scoped METHOD */
+    static public boolean methodIsRecursive() {
+        return Utilities.methodIsRecursive(METHOD.get());
+    }
+
+    /// Calls itself, directly or through other methods of classes in its package
+    static public boolean methodIsRecursive(Method methodObject) {
+        return Bytecode.isRecursive(methodObject, false);
+    }
+
+    /** Scoped METHOD */
+    static public boolean methodIsDirectlyRecursive() {
+        return Utilities.methodIsDirectlyRecursive(METHOD.get());
+    }
+
+    static public boolean methodIsDirectlyRecursive(Method methodObject) {
+        return Bytecode.isRecursive(methodObject, true);
+    }
+
+
+    /** Scoped METHOD */
+    static public boolean methodCalls(Class<?> owner, String methodName, Class<?>... parameterTypes) {
+        return Utilities.methodCalls(METHOD.get(), owner, methodName, parameterTypes);
+    }
+
+    /// Calls `owner#methodName`, any overload unless `parameterTypes` are given
+    static public boolean methodCalls(
+            Method methodObject,
+            Class<?> owner, String methodName, Class<?>... parameterTypes
+    ) {
+        var target = new Bytecode.Target(owner, methodName, parameterTypes);
+
+        return Bytecode.of(methodObject).calls().stream().anyMatch(
+            call -> target.matches(call, methodObject.getDeclaringClass())
+        );
+    }
+
+    /** Scoped METHOD */
+    static public boolean methodCallsInLoop(Class<?> owner, String methodName, Class<?>... parameterTypes) {
+        return Utilities.methodCallsInLoop(METHOD.get(), owner, methodName, parameterTypes);
+    }
+
+    /// Calls `owner#methodName` within a loop, e.g. `methodCallsInLoop(List.class, "remove", int.class)`
+    static public boolean methodCallsInLoop(
+            Method methodObject,
+            Class<?> owner, String methodName, Class<?>... parameterTypes
+    ) {
+        var target = new Bytecode.Target(owner, methodName, parameterTypes);
+
+        return Bytecode.of(methodObject).calls().stream().anyMatch(
+            call -> call.isInLoop() && target.matches(call, methodObject.getDeclaringClass())
+        );
+    }
+
+    /** Scoped METHOD */
+    static public boolean methodCallsLinearTimeMethodInLoop() {
+        return Utilities.methodCallsLinearTimeMethodInLoop(METHOD.get());
+    }
+
+    /// Calls a JDK method taking linear time (`List#contains`, `List#remove(int)`, `String#indexOf`, ...) within a
+    /// loop, see `Bytecode.LINEAR_TIME`
+    static public boolean methodCallsLinearTimeMethodInLoop(Method methodObject) {
+        return Bytecode.of(methodObject).calls().stream().anyMatch(call -> call.isInLoop()
+            && Bytecode.LINEAR_TIME.stream().anyMatch(target -> target.matches(call, methodObject.getDeclaringClass()))
+        );
+    }
+
 
+    /** Scoped METHOD */
+    static public boolean methodAllocatesInLoop() {
+        return Utilities.methodAllocatesInLoop(METHOD.get());
+    }
+
+    /// Creates an object or array, or concatenates strings, within a loop
+    static public boolean methodAllocatesInLoop(Method methodObject) {
+        return Bytecode.of(methodObject).allocations().stream().anyMatch(Bytecode.Allocation::isInLoop);
+    }
 
 
 
@@ -574,11 +1899,7 @@ public class Utilities
     }
 
     static public Optional<Field> findField(Class<?> classObject, String fieldName) {
-        try {
-            return Optional.of(classObject.getField(fieldName));
-        } catch (NoSuchFieldException _) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(MemberIndex.of(classObject).field(fieldName));
     }
 
 
@@ -597,11 +1918,7 @@ public class Utilities
     }
 
     static public Optional<Field> findDeclaredField(Class<?> classObject, String fieldName) {
-        try {
-            return Optional.of(classObject.getDeclaredField(fieldName));
-        } catch (NoSuchFieldException _) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(MemberIndex.of(classObject).declaredField(fieldName));
     }
 
 
@@ -633,7 +1950,7 @@ public class Utilities
     }
 
     static public void testField(Field fieldObject, Runnable fn) {
-        where(Utilities.FIELD, fieldObject).run(fn);
+        where(Utilities.FIELD, fieldObject).run(Metrics.entering(fn));
     }
 
 
@@ -685,7 +2002,7 @@ public class Utilities
                 Utilities.throwClassFieldNotFound(fullyQualifiedClassName, fieldName);
             }
 
-            where(Utilities.FIELD, fieldObject.get()).run(fn);
+            where(Utilities.FIELD, fieldObject.get()).run(Metrics.entering(fn));
         });
     }
 
@@ -811,6 +2128,14 @@ public class Utilities
     }
 
 
+    static private Class<?>[] argumentTypes(Object... parameterValues) {
+        return Arrays.stream(parameterValues)
+            .map(value -> value == null ? null : value.getClass())
+            .toArray(Class<?>[]::new)
+        ;
+    }
+
+
     static public String stripPackageFromClassName(String fullyQualifiedClassName) {
         return List.of(fullyQualifiedClassName.split("\\.")).getLast();
     }
@@ -823,22 +2148,123 @@ public class Utilities
 
     //## Assertions
     static public void assertStandardOutputEquals(String input) {
-        assertEquals("\"%s\"".formatted(input), "\"%s\"".formatted(Utilities.getStandardOutput()));
+        GradingReport.time(GradingReport.Phase.COMPARISON, () -> {
+            var buffer = Utilities.currentCapture();
+
+            if (buffer != null) {
+                Utilities.assertStandardOutputWithinLimit(buffer);
+
+                // Compare the bytes first, and only decode the output to describe a mismatch
+                if (buffer.normalizedEquals(input)) {
+                    return;
+                }
+            }
+
+            assertEquals("\"%s\"".formatted(input), "\"%s\"".formatted(Utilities.getStandardOutput()));
+        });
+    }
+
+    /// Fails when the program did not read all of the standard input provided to the current test
+    static public void assertStandardInputConsumed() {
+        var feed = Utilities.currentFeed();
+
+        if (feed == null) {
+            throw new AssertionFailedError("No standard input was provided to the test");
+        }
+
+        if (!feed.exhausted()) {
+            throw new AssertionFailedError(
+                "Standard input was not read to the end (%,d lines read)".formatted(feed.linesRead())
+            );
+        }
+    }
+
+    /// Compare the captured output, with every line of standard input shown where the program read it (as it would
+    /// appear in a terminal), to `expected`, e.g. `"Name: Ada\nHello, Ada!\n"`; line separators are normalized
+    static public void assertTranscript(String expected) {
+        GradingReport.time(GradingReport.Phase.COMPARISON, () -> {
+            var feed = Utilities.currentFeed();
+
+            if (feed == null) {
+                throw new AssertionFailedError("No standard input was provided to the test");
+            }
+
+            var actual = feed.transcript().replace("\r\n", "\n");
+
+            if (!actual.equals(expected.replace("\r\n", "\n"))) {
+                throw new AssertionFailedError("Transcript differs from the expected one", expected, actual);
+            }
+        });
+    }
+
+    /// Compare the standard output written within `fn` to `input` while it is being written, and fail (stopping
+    /// the student code) at the first character that differs
+    static public void assertStandardOutputEquals(String input, Runnable fn) {
+        GradingReport.time(GradingReport.Phase.COMPARISON, () -> {
+            var buffer = Utilities.currentCapture();
+
+            if (buffer == null) {
+                Utilities.setStandardOutput();
+
+                buffer = Utilities.currentCapture();
+            }
+
+            buffer.expect(input);
+
+            try {
+                fn.run();
+            } catch (CaptureBuffer.Mismatch _) {
+                // The first differing byte stopped the student code, reported below
+            } catch (RuntimeException | Error e) {
+                buffer.stopExpecting();
+
+                throw e;
+            }
+
+            if (!buffer.stopExpecting()) {
+                Utilities.assertStandardOutputWithinLimit(buffer);
+
+                throw new AssertionFailedError(
+                    buffer.mismatchAt() < 0
+                        ? "Standard output ended before the expected output was complete"
+                        : "Standard output differs from the expected output at byte %d".formatted(buffer.mismatchAt()),
+                    "\"%s\"".formatted(input),
+                    "\"%s\"".formatted(buffer.toNormalizedString(buffer.expectedFrom()))
+                );
+            }
+        });
+    }
+
+    static private void assertStandardOutputWithinLimit(CaptureBuffer buffer) {
+        if (buffer.overflowed()) {
+            throw new AssertionFailedError(
+                "Standard output exceeded the limit of %d bytes (%d bytes written)".formatted(
+                    buffer.limit(), buffer.written()
+                )
+            );
+        }
     }
 
 
     // TODO: improve later, goal is to preserve indentation when removing leading whitespace from multiline string given
     // TODO: handle when first line does not set the proper (intended) indentation level
     static public void provideHintIfAssertionFails(String hint, Runnable fn) {
+        var start = System.nanoTime();
+
         try {
             fn.run();
+
+            GradingReport.assertion(hint, null, System.nanoTime() - start);
         } catch (AssertionFailedError e) {
-            Utilities.resetStandardOutput();
+            GradingReport.assertion(hint, e, System.nanoTime() - start);
 
-            IO.println();
+            // Hints go to the original standard output, so the captured output of the test is left untouched
+            var hintOutput = Utilities.stdout;
+
+            hintOutput.println();
 
             if (hint.lines().count() == 1) {
-                IO.println(hint);
+                hintOutput.println(hint);
             }
             else {
                 var firstLine = hint.lines().findFirst();
@@ -847,14 +2273,12 @@ public class Utilities
                     var indentation = firstLine.get().length() - firstLine.get().stripLeading().length();
 
                     hint.lines().forEach(line -> {
-                        if (line.length() > indentation) IO.println(line.substring(indentation));
-                        else IO.println(line.stripLeading());
+                        if (line.length() > indentation) hintOutput.println(line.substring(indentation));
+                        else hintOutput.println(line.stripLeading());
                     });
                 }
             }
 
-            Utilities.setStandardOutput();
-
             throw e;
         }
     }
@@ -883,6 +2307,17 @@ public class Utilities
     }
 
 
+    static private void throwClassConstructorNotFound(String fullyQualifiedClassName, Class<?>... parameterTypes) {
+        throw new AssertionFailedError(
+            "Class-constructor not found: %s(%s)".formatted(
+                fullyQualifiedClassName, parameterTypes.length == 0 ? "" : Arrays.toString(parameterTypes)
+            ),
+            "Public constructor applicable to the given arguments",
+            "No applicable constructor within class"
+        );
+    }
+
+
     static private void throwClassFieldNotFound(String fullyQualifiedClassName, String fieldName) {
         throw new AssertionFailedError(
             "Class-field not found: %s#%s".formatted(